@@ -0,0 +1,280 @@
+package com.learnbalochi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caps concurrent calls to an upstream at a limit that adapts to observed latency (gradient
+ * algorithm: the limit shrinks as latency rises above the best recently seen, and grows while
+ * latency stays flat). Callers over the limit wait in a bounded priority queue and are turned
+ * away early when their estimated wait would exceed the deadline for their priority.
+ */
+public class AdaptiveConcurrencyLimiter implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    private static final double SMOOTHING = 0.2;
+    private static final int MIN_RTT_RESET_SAMPLES = 500;
+
+    /**
+     * Limits and deadlines, read from "{prefix}.limiter.*" properties.
+     */
+    public record Settings(int initialLimit, int minLimit, int maxLimit, double rttTolerance,
+                           int maxQueueSize, Map<TranslationPriority, Duration> deadlines) {
+
+        public static Settings from(Environment env, String prefix) {
+            String p = prefix + ".limiter.";
+            Map<TranslationPriority, Duration> deadlines = new EnumMap<>(TranslationPriority.class);
+            deadlines.put(TranslationPriority.INTERACTIVE, env.getProperty(p + "deadline.interactive", Duration.class, Duration.ofSeconds(15)));
+            deadlines.put(TranslationPriority.BATCH, env.getProperty(p + "deadline.batch", Duration.class, Duration.ofSeconds(60)));
+            deadlines.put(TranslationPriority.BACKFILL, env.getProperty(p + "deadline.backfill", Duration.class, Duration.ofMinutes(5)));
+            return new Settings(
+                    env.getProperty(p + "initial-limit", Integer.class, 4),
+                    env.getProperty(p + "min-limit", Integer.class, 1),
+                    env.getProperty(p + "max-limit", Integer.class, 32),
+                    env.getProperty(p + "rtt-tolerance", Double.class, 1.5),
+                    env.getProperty(p + "max-queue-size", Integer.class, 200),
+                    deadlines);
+        }
+    }
+
+    private static final class Waiter {
+        final TranslationPriority priority;
+        final long sequence;
+        final Condition admitted;
+        boolean granted;
+
+        Waiter(TranslationPriority priority, long sequence, Condition admitted) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.admitted = admitted;
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.<Waiter, TranslationPriority>comparing(w -> w.priority).thenComparingLong(w -> w.sequence));
+
+    private double limit;
+    private int inFlight;
+    private long sequence;
+    private double minRttMs = Double.MAX_VALUE;
+    private double smoothedRttMs;
+    private int samplesSinceMinRttReset;
+
+    private final Map<TranslationPriority, AtomicLong> admitted = new EnumMap<>(TranslationPriority.class);
+    private final Map<TranslationPriority, AtomicLong> queueTimeMs = new EnumMap<>(TranslationPriority.class);
+    private final Map<TranslationPriority, AtomicLong> maxQueueTimeMs = new EnumMap<>(TranslationPriority.class);
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedDeadline = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.limit = settings.initialLimit();
+        for (TranslationPriority priority : TranslationPriority.values()) {
+            admitted.put(priority, new AtomicLong());
+            queueTimeMs.put(priority, new AtomicLong());
+            maxQueueTimeMs.put(priority, new AtomicLong());
+        }
+    }
+
+    /**
+     * Runs the call once admitted.
+     * @throws TranslatorUnavailableException if the queue is full or the deadline cannot be met
+     */
+    public <T> T execute(TranslationPriority priority, Supplier<T> call) {
+        return execute(priority, true, call);
+    }
+
+    /**
+     * Runs the call once admitted.
+     * @param sampled whether the call's latency and outcome adjust the limit; calls whose duration
+     *                does not reflect upstream load, such as streams paced by their reader, pass false
+     * @throws TranslatorUnavailableException if the queue is full or the deadline cannot be met
+     */
+    public <T> T execute(TranslationPriority priority, boolean sampled, Supplier<T> call) {
+        acquire(priority);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            release((System.nanoTime() - start) / 1_000_000.0, failed, sampled);
+        }
+    }
+
+    /**
+     * Takes a permit only if one is free and nobody is waiting, for optional extra load such as a
+     * hedged request. A permit taken here is returned with {@link #releaseUnsampled()}.
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && queue.isEmpty()) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void releaseUnsampled() {
+        release(0, false, false);
+    }
+
+    private void acquire(TranslationPriority priority) {
+        long enqueuedAt = System.nanoTime();
+        long deadlineNanos = settings.deadlines().get(priority).toNanos();
+
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && queue.isEmpty()) {
+                inFlight++;
+                recordAdmission(priority, 0);
+                return;
+            }
+            if (queue.size() >= settings.maxQueueSize()) {
+                rejectedQueueFull.incrementAndGet();
+                throw new TranslatorUnavailableException(name + " queue is full", 1);
+            }
+
+            // Reject up front if the callers ahead of us will not drain before our deadline
+            long ahead = queue.stream().filter(w -> w.priority.compareTo(priority) <= 0).count();
+            double estimatedWaitMs = (ahead + 1) * smoothedRttMs / Math.max(1.0, limit);
+            if (estimatedWaitMs * 1_000_000 > deadlineNanos) {
+                rejectedDeadline.incrementAndGet();
+                throw new TranslatorUnavailableException(name + " is overloaded", Math.max(1, (long) (estimatedWaitMs / 1000)));
+            }
+
+            Waiter waiter = new Waiter(priority, sequence++, lock.newCondition());
+            queue.add(waiter);
+            long remainingNanos = deadlineNanos;
+            try {
+                while (!waiter.granted) {
+                    if (remainingNanos <= 0) {
+                        queue.remove(waiter);
+                        rejectedDeadline.incrementAndGet();
+                        throw new TranslatorUnavailableException(name + " is overloaded", 1);
+                    }
+                    remainingNanos = waiter.admitted.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    inFlight--;
+                    admitWaiters();
+                } else {
+                    queue.remove(waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new TranslatorUnavailableException(name + " call interrupted while queued", 1);
+            }
+            recordAdmission(priority, (System.nanoTime() - enqueuedAt) / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(double latencyMs, boolean failed, boolean sampled) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (sampled) {
+                updateLimit(latencyMs, failed);
+            }
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLimit(double latencyMs, boolean failed) {
+        smoothedRttMs = smoothedRttMs == 0 ? latencyMs : smoothedRttMs * (1 - SMOOTHING) + latencyMs * SMOOTHING;
+
+        if (failed) {
+            // Multiplicative decrease on errors, which often mean the upstream is overwhelmed
+            limit = Math.max(settings.minLimit(), limit * 0.9);
+            return;
+        }
+
+        // Periodically forget the best latency so the baseline can follow the upstream's real capacity
+        if (++samplesSinceMinRttReset >= MIN_RTT_RESET_SAMPLES) {
+            minRttMs = latencyMs;
+            samplesSinceMinRttReset = 0;
+        }
+        minRttMs = Math.min(minRttMs, latencyMs);
+
+        double gradient = Math.max(0.5, Math.min(1.0, settings.rttTolerance() * minRttMs / smoothedRttMs));
+        double headroom = Math.sqrt(limit);
+        double newLimit = limit * gradient + headroom;
+        limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(),
+                limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        logger.trace("Limiter '{}': latency={}ms minRtt={}ms limit={}", name, latencyMs, minRttMs, limit);
+    }
+
+    private void admitWaiters() {
+        while (inFlight < (int) limit && !queue.isEmpty()) {
+            Waiter next = queue.poll();
+            next.granted = true;
+            inFlight++;
+            next.admitted.signal();
+        }
+    }
+
+    private void recordAdmission(TranslationPriority priority, long waitedMs) {
+        admitted.get(priority).incrementAndGet();
+        queueTimeMs.get(priority).addAndGet(waitedMs);
+        maxQueueTimeMs.get(priority).accumulateAndGet(waitedMs, Math::max);
+    }
+
+    @Override
+    public String metricsName() {
+        return "concurrencyLimiter." + name;
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            metrics.put("limit", (int) limit);
+            metrics.put("inFlight", inFlight);
+            metrics.put("queued", queue.size());
+            metrics.put("minRttMs", minRttMs == Double.MAX_VALUE ? 0 : minRttMs);
+            metrics.put("smoothedRttMs", smoothedRttMs);
+        } finally {
+            lock.unlock();
+        }
+        metrics.put("rejectedQueueFull", rejectedQueueFull.get());
+        metrics.put("rejectedDeadline", rejectedDeadline.get());
+
+        Map<String, Object> byPriority = new LinkedHashMap<>();
+        for (TranslationPriority priority : TranslationPriority.values()) {
+            long count = admitted.get(priority).get();
+            Map<String, Object> priorityMetrics = new LinkedHashMap<>();
+            priorityMetrics.put("admitted", count);
+            priorityMetrics.put("meanQueueTimeMs", count == 0 ? 0 : queueTimeMs.get(priority).get() / count);
+            priorityMetrics.put("maxQueueTimeMs", maxQueueTimeMs.get(priority).get());
+            byPriority.put(priority.name(), priorityMetrics);
+        }
+        metrics.put("priorities", byPriority);
+        return metrics;
+    }
+}
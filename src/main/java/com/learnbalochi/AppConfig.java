@@ -1,14 +1,50 @@
 package com.learnbalochi;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Each upstream gets its own connection pool, so a slow translator cannot starve InPage
+ * conversions of connections (or the other way round).
+ */
 @Configuration
 public class AppConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public UpstreamHttpClient translatorHttpClient(Environment env) {
+        return new UpstreamHttpClient("translator", UpstreamHttpClient.Settings.from(env, "translator"));
     }
-}
\ No newline at end of file
+
+    @Bean
+    public UpstreamHttpClient inpageConvertorHttpClient(Environment env) {
+        return new UpstreamHttpClient("inpageConvertor", UpstreamHttpClient.Settings.from(env, "inpage.convertor"));
+    }
+
+    @Bean
+    public RestTemplate translatorRestTemplate(@Qualifier("translatorHttpClient") UpstreamHttpClient translatorHttpClient) {
+        return translatorHttpClient.getRestTemplate();
+    }
+
+    @Bean
+    public RestTemplate inpageConvertorRestTemplate(@Qualifier("inpageConvertorHttpClient") UpstreamHttpClient inpageConvertorHttpClient) {
+        return inpageConvertorHttpClient.getRestTemplate();
+    }
+
+    @Bean
+    public CircuitBreaker translatorCircuitBreaker(Environment env) {
+        return new CircuitBreaker("translator", CircuitBreaker.Settings.from(env, "translator"));
+    }
+
+    @Bean
+    public ReplicaBalancer translatorBalancer(Environment env, AdaptiveConcurrencyLimiter translatorConcurrencyLimiter) {
+        return new ReplicaBalancer("translator", ReplicaBalancer.Settings.from(env, "translator"), translatorConcurrencyLimiter);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter translatorConcurrencyLimiter(Environment env) {
+        return new AdaptiveConcurrencyLimiter("translator", AdaptiveConcurrencyLimiter.Settings.from(env, "translator"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.learnbalochi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A translation held in memory, as read from or written to the "Translations" collection.
+ */
+public record CachedTranslation(String documentId, String originalText, String translatedText) {
+
+    /**
+     * Rough heap footprint used to bound the translation cache by bytes.
+     */
+    public int estimatedBytes() {
+        return 64 + 2 * (length(documentId) + length(originalText) + length(translatedText));
+    }
+
+    public static CachedTranslation fromDocument(Map<String, Object> document) {
+        return new CachedTranslation(
+                (String) document.get("documentId"),
+                (String) document.get("originalText"),
+                (String) document.get("translatedText"));
+    }
+
+    public Map<String, Object> toResponse(boolean fromCache) {
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("originalText", originalText);
+        responseBody.put("translatedText", translatedText);
+        responseBody.put("fromCache", fromCache);
+        responseBody.put("documentId", documentId);
+        return responseBody;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,234 @@
+package com.learnbalochi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Count-based circuit breaker. Opens when the failure rate or slow-call rate over the last
+ * window of calls crosses its threshold, fails fast while open, and lets a few probe calls
+ * through once the wait has elapsed before closing again.
+ */
+public class CircuitBreaker implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Thresholds, read from "{prefix}.circuit-breaker.*" properties.
+     */
+    public record Settings(int windowSize, int minimumCalls, double failureRateThreshold,
+                           double slowCallRateThreshold, Duration slowCallDuration,
+                           Duration openDuration, int halfOpenProbes) {
+
+        public static Settings from(Environment env, String prefix) {
+            String p = prefix + ".circuit-breaker.";
+            return new Settings(
+                    env.getProperty(p + "window-size", Integer.class, 20),
+                    env.getProperty(p + "minimum-calls", Integer.class, 10),
+                    env.getProperty(p + "failure-rate-threshold", Double.class, 0.5),
+                    env.getProperty(p + "slow-call-rate-threshold", Double.class, 0.8),
+                    env.getProperty(p + "slow-call-duration", Duration.class, Duration.ofSeconds(10)),
+                    env.getProperty(p + "open-duration", Duration.class, Duration.ofSeconds(30)),
+                    env.getProperty(p + "half-open-probes", Integer.class, 3));
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+
+    // Ring buffer of the last windowSize outcomes
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int recordedCalls;
+    private int nextSlot;
+    private int failedInWindow;
+    private int slowInWindow;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final Map<String, AtomicLong> transitions = new ConcurrentHashMap<>();
+
+    public CircuitBreaker(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.failedCalls = new boolean[settings.windowSize()];
+        this.slowCalls = new boolean[settings.windowSize()];
+    }
+
+    /**
+     * Runs the call if the circuit allows it.
+     * @throws TranslatorUnavailableException if the circuit is open
+     */
+    public <T> T execute(Supplier<T> call) {
+        acquirePermission();
+        return executePermitted(call);
+    }
+
+    /**
+     * Takes permission for one call, to be made with {@link #executePermitted} or handed back
+     * with {@link #releasePermission} if the call never starts.
+     * @throws TranslatorUnavailableException if the circuit is open
+     */
+    public void acquirePermission() {
+        if (!tryAcquirePermission()) {
+            rejectedCalls.incrementAndGet();
+            throw new TranslatorUnavailableException(name + " is unavailable", retryAfterSeconds());
+        }
+    }
+
+    /**
+     * Returns the permission of a call that was not made, so a half-open probe slot is not lost.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * Runs a call whose permission was taken with {@link #acquirePermission} and records its outcome.
+     */
+    public <T> T executePermitted(Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            onResult(false, System.nanoTime() - start);
+            return result;
+        } catch (HttpClientErrorException e) {
+            // A 4xx is the caller's problem, not a sign the upstream is unhealthy
+            onResult(false, System.nanoTime() - start);
+            throw e;
+        } catch (RuntimeException e) {
+            onResult(true, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @throws TranslatorUnavailableException if the circuit is currently open
+     */
+    public void checkAvailable() {
+        if (getState() == State.OPEN) {
+            throw new TranslatorUnavailableException(name + " is unavailable", retryAfterSeconds());
+        }
+    }
+
+    public synchronized long retryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 1;
+        }
+        long remainingNanos = settings.openDuration().toNanos() - (System.nanoTime() - openedAtNanos);
+        return Math.max(1, Duration.ofNanos(remainingNanos).toSeconds());
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < settings.openDuration().toNanos()) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= settings.halfOpenProbes()) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    private synchronized void onResult(boolean failed, long durationNanos) {
+        boolean slow = durationNanos > settings.slowCallDuration().toNanos();
+
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                transitionTo(State.OPEN);
+            } else if (++probesSucceeded >= settings.halfOpenProbes()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return; // a call that started before the circuit opened
+        }
+
+        if (recordedCalls == failedCalls.length) {
+            failedInWindow -= failedCalls[nextSlot] ? 1 : 0;
+            slowInWindow -= slowCalls[nextSlot] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextSlot] = failed;
+        slowCalls[nextSlot] = slow;
+        failedInWindow += failed ? 1 : 0;
+        slowInWindow += slow ? 1 : 0;
+        nextSlot = (nextSlot + 1) % failedCalls.length;
+
+        if (recordedCalls >= settings.minimumCalls()
+                && (failureRate() >= settings.failureRateThreshold() || slowCallRate() >= settings.slowCallRateThreshold())) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("Circuit breaker '{}' {} -> {} (failureRate={}, slowCallRate={})",
+                name, state, newState, failureRate(), slowCallRate());
+        transitions.computeIfAbsent(state + "->" + newState, k -> new AtomicLong()).incrementAndGet();
+        state = newState;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (newState == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (newState == State.CLOSED) {
+            recordedCalls = 0;
+            nextSlot = 0;
+            failedInWindow = 0;
+            slowInWindow = 0;
+        }
+    }
+
+    private double failureRate() {
+        return recordedCalls == 0 ? 0.0 : (double) failedInWindow / recordedCalls;
+    }
+
+    private double slowCallRate() {
+        return recordedCalls == 0 ? 0.0 : (double) slowInWindow / recordedCalls;
+    }
+
+    @Override
+    public String metricsName() {
+        return "circuitBreaker." + name;
+    }
+
+    @Override
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("state", state.name());
+        metrics.put("failureRate", failureRate());
+        metrics.put("slowCallRate", slowCallRate());
+        metrics.put("recordedCalls", recordedCalls);
+        metrics.put("rejectedCalls", rejectedCalls.get());
+        Map<String, Long> transitionCounts = new LinkedHashMap<>();
+        transitions.forEach((transition, count) -> transitionCounts.put(transition, count.get()));
+        metrics.put("transitions", transitionCounts);
+        return metrics;
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -89,23 +90,28 @@ public class ClientLogController {
     }
 
     @GetMapping("/list")
-    public ResponseEntity<PaginatedResponse> getLogs(
+    public CompletableFuture<ResponseEntity<PaginatedResponse>> getLogs(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "50") int size,
             @RequestParam(required = false) String level,
             @RequestParam(required = false) String userId,
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String pageToken
     ) {
-        try {
-            // For now, return all logs with basic pagination
-            // TODO: Implement filtering by level, userId, date range
-            PaginatedResponse response = firestoreService.getDocumentsWithoutContentPaginated(COLLECTION_NAME, page, size);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Failed to retrieve logs: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+        // For now, return all logs with basic pagination
+        // TODO: Implement filtering by level, userId, date range
+        // An invalid pageToken is thrown here, before any read, and answered with 400
+        CompletableFuture<PaginatedResponse> response = pageToken != null
+                ? firestoreService.getLogsPageAsync(COLLECTION_NAME, pageToken.isEmpty() ? null : pageToken, size)
+                : firestoreService.getLogsPaginatedAsync(COLLECTION_NAME, page, size);
+        return response.handle((logs, e) -> {
+            if (e != null) {
+                logger.error("Failed to retrieve logs: {}", e.getMessage());
+                return ResponseEntity.internalServerError().build();
+            }
+            return ResponseEntity.ok(logs);
+        });
     }
 
     @GetMapping("/stats")
@@ -0,0 +1,110 @@
+package com.learnbalochi;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.firestore.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Document counts for paginated listings, computed with Firestore's server-side count()
+ * aggregation (billed as one read per 1000 documents, and nothing is downloaded) and cached
+ * briefly per collection and filter. Writes through MyFirestoreService invalidate the
+ * collection's counts; writes from elsewhere show up once the cached count expires.
+ */
+@Component
+public class CollectionCounts implements MetricsSource {
+
+    /**
+     * @param approximate true when served from the cache, so it may miss writes made elsewhere
+     */
+    public record Count(long value, boolean approximate) {
+    }
+
+    private final Cache<String, Long> counts;
+    private final boolean allowApproximate;
+    // Bumped by every invalidation, so a count that started before a write doesn't cache its result
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong aggregations = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public CollectionCounts(
+            @Value("${firestore.count.cache-ttl:PT30S}") Duration cacheTtl,
+            @Value("${firestore.count.allow-approximate:true}") boolean allowApproximate) {
+        this.allowApproximate = allowApproximate;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Counts the documents matching the query.
+     * @param collectionName collection the query runs on, for invalidation
+     * @param filter identifies the query's filters within the collection, e.g. "fileName" for
+     *               documents that have a fileName
+     */
+    public Count count(String collectionName, String filter, Query query) throws ExecutionException, InterruptedException {
+        return countAsync(collectionName, filter, query).get();
+    }
+
+    /**
+     * Non-blocking {@link #count}: a cached count completes immediately.
+     */
+    public CompletableFuture<Count> countAsync(String collectionName, String filter, Query query) {
+        String key = collectionName + "|" + filter;
+        if (allowApproximate) {
+            Long cached = counts.getIfPresent(key);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return CompletableFuture.completedFuture(new Count(cached, true));
+            }
+        }
+
+        aggregations.incrementAndGet();
+        long generation = generation(collectionName);
+        return FirestoreFutures.toCompletable(query.count().get()).thenApply(snapshot -> {
+            if (generation(collectionName) == generation) {
+                counts.put(key, snapshot.getCount());
+                // An invalidation between the check and the put has bumped the generation by now
+                if (generation(collectionName) != generation) {
+                    counts.invalidate(key);
+                }
+            }
+            return new Count(snapshot.getCount(), false);
+        });
+    }
+
+    private long generation(String collectionName) {
+        return generations.computeIfAbsent(collectionName, name -> new AtomicLong()).get();
+    }
+
+    public void invalidate(String collectionName) {
+        generations.computeIfAbsent(collectionName, name -> new AtomicLong()).incrementAndGet();
+        String prefix = collectionName + "|";
+        counts.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @Override
+    public String metricsName() {
+        return "collectionCounts";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cached", counts.estimatedSize());
+        metrics.put("aggregations", aggregations.get());
+        metrics.put("cacheHits", cacheHits.get());
+        return metrics;
+    }
+}
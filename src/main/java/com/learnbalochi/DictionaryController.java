@@ -0,0 +1,51 @@
+package com.learnbalochi;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/dictionary")
+public class DictionaryController {
+
+    @Autowired
+    private DictionaryService dictionaryService;
+
+    @GetMapping("/lookup")
+    public ResponseEntity<Map<String, Object>> lookup(@RequestParam String word) {
+        CachedTranslation translation = dictionaryService.lookup(word);
+
+        if (translation != null) {
+            return ResponseEntity.ok(translation.toResponse(true));
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Map<String, Object>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        if (limit < 1 || limit > 50) limit = 10;
+
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (CachedTranslation translation : dictionaryService.autocomplete(prefix, limit)) {
+            suggestions.add(translation.toResponse(true));
+        }
+        return suggestions;
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<String> reload() {
+        boolean started = dictionaryService.reloadAsync();
+        return started
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body("Dictionary reload started")
+                : ResponseEntity.status(HttpStatus.CONFLICT).body("Dictionary reload already running");
+    }
+}
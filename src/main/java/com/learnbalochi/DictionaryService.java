@@ -0,0 +1,211 @@
+package com.learnbalochi;
+
+import com.google.firebase.FirebaseApp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Word and short-phrase dictionary served from an in-memory trie, built from short entries in
+ * "Translations" plus an optional tab-separated glossary file. Reloads build a new trie in the
+ * background and swap it in, so lookups never pause. The scheduled reload only reads translations
+ * stored since the previous one; the startup load and a reload on demand read them all, which also
+ * drops deleted translations.
+ */
+@Service
+public class DictionaryService implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryService.class);
+    // Trailing question and exclamation marks are kept: "Really?" and "Really!" translate differently
+    private static final Pattern EDGE_PUNCTUATION = Pattern.compile("^[\\p{P}\\p{S}]+|[\\p{P}\\p{S}&&[^?!\\u061F]]+$");
+    // Incremental reloads re-read this far back, for writes committed late or stamped by a slower clock
+    private static final long RELOAD_OVERLAP_MS = Duration.ofMinutes(10).toMillis();
+
+    @Autowired
+    private MyFirestoreService firestoreService;
+
+    @Value("${translation.dictionary.max-words:2}")
+    private int maxWords;
+
+    @Value("${translation.dictionary.glossary-path:}")
+    private String glossaryPath;
+
+    private volatile DictionaryTrie trie = DictionaryTrie.empty();
+    // Short stored translations by key as of the last reload, without the glossary
+    private volatile Map<String, CachedTranslation> stored = Map.of();
+    // Short translations added since the last build, until the next reload folds them in
+    private final Map<String, CachedTranslation> recent = new ConcurrentHashMap<>();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private volatile long loadedAt;
+    // Start of the last reload that read Firestore; the next incremental reload continues from here
+    private volatile long loadedFrom;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong fullReloads = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialLoad() {
+        reloadAsync();
+    }
+
+    @Scheduled(initialDelayString = "${translation.dictionary.reload-interval:PT1H}", fixedDelayString = "${translation.dictionary.reload-interval:PT1H}")
+    public void scheduledReload() {
+        reloadAsync(loadedFrom == 0);
+    }
+
+    /**
+     * Rebuilds the trie in the background from every stored translation.
+     * @return false if a reload is already running
+     */
+    public boolean reloadAsync() {
+        return reloadAsync(true);
+    }
+
+    private boolean reloadAsync(boolean full) {
+        if (!reloading.compareAndSet(false, true)) {
+            return false;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                reload(full);
+            } catch (Exception e) {
+                logger.error("Dictionary reload failed, keeping the previous dictionary", e);
+            } finally {
+                reloading.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void reload(boolean full) throws Exception {
+        long start = System.currentTimeMillis();
+        Map<String, CachedTranslation> storedEntries = full ? new HashMap<>() : new HashMap<>(stored);
+
+        if (!FirebaseApp.getApps().isEmpty()) {
+            Consumer<CachedTranslation> addShort = translation -> {
+                if (isShort(translation.originalText())) {
+                    storedEntries.putIfAbsent(normalize(translation.originalText()), translation);
+                }
+            };
+            if (full) {
+                firestoreService.forEachTranslation(addShort);
+            } else {
+                firestoreService.forEachTranslationSince(Math.max(0, loadedFrom - RELOAD_OVERLAP_MS), addShort);
+            }
+            loadedFrom = start;
+        }
+        stored = storedEntries;
+
+        // Curated glossary entries take precedence over model output
+        Map<String, CachedTranslation> entries = new HashMap<>(storedEntries);
+        entries.putAll(readGlossary());
+
+        DictionaryTrie built = DictionaryTrie.build(entries);
+        trie = built;
+        // Entries added during the build may not be in the snapshot yet (write-behind), so only
+        // those the new trie covers are dropped
+        recent.keySet().removeIf(key -> built.get(key) != null);
+        loadedAt = System.currentTimeMillis();
+        reloads.incrementAndGet();
+        if (full) {
+            fullReloads.incrementAndGet();
+        }
+        logger.info("Dictionary {} with {} entries in {} ms", full ? "loaded" : "updated", trie.size(), loadedAt - start);
+    }
+
+    private Map<String, CachedTranslation> readGlossary() throws IOException {
+        Map<String, CachedTranslation> glossary = new HashMap<>();
+        if (!StringUtils.hasText(glossaryPath) || !Files.isRegularFile(Path.of(glossaryPath))) {
+            return glossary;
+        }
+        for (String line : Files.readAllLines(Path.of(glossaryPath), StandardCharsets.UTF_8)) {
+            String[] columns = line.split("\t");
+            if (columns.length >= 2 && !line.startsWith("#")) {
+                String source = columns[0].trim();
+                glossary.put(normalize(source), new CachedTranslation(TranslationKeys.documentId(source), source, columns[1].trim()));
+            }
+        }
+        return glossary;
+    }
+
+    /**
+     * Whether the text is short enough (in words) to be a dictionary entry.
+     */
+    public boolean isShort(String text) {
+        String normalized = normalize(text);
+        return !normalized.isEmpty() && normalized.split(" ").length <= maxWords;
+    }
+
+    public CachedTranslation lookup(String text) {
+        lookups.incrementAndGet();
+        String key = normalize(text);
+        CachedTranslation translation = recent.get(key);
+        if (translation == null) {
+            translation = trie.get(key);
+        }
+        if (translation != null) {
+            hits.incrementAndGet();
+        }
+        return translation;
+    }
+
+    public List<CachedTranslation> autocomplete(String prefix, int limit) {
+        // Same normalization as the trie's keys, so a prefix matches what lookup would
+        return trie.complete(normalize(prefix), limit);
+    }
+
+    /**
+     * Makes a newly stored short translation available before the next reload.
+     */
+    public void add(CachedTranslation translation) {
+        if (isShort(translation.originalText())) {
+            recent.put(normalize(translation.originalText()), translation);
+        }
+    }
+
+    private static String normalize(String text) {
+        return EDGE_PUNCTUATION.matcher(TranslationKeys.normalize(text)).replaceAll("").trim();
+    }
+
+    @Override
+    public String metricsName() {
+        return "dictionary";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("entries", trie.size());
+        metrics.put("recentEntries", recent.size());
+        metrics.put("loadedAt", loadedAt);
+        metrics.put("reloading", reloading.get());
+        metrics.put("reloads", reloads.get());
+        metrics.put("fullReloads", fullReloads.get());
+        metrics.put("lookups", lookups.get());
+        metrics.put("hits", hits.get());
+        return metrics;
+    }
+}
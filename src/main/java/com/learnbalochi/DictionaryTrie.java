@@ -0,0 +1,152 @@
+package com.learnbalochi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable character trie flattened into parallel arrays (first-child / next-sibling layout),
+ * mapping normalized words and short phrases to translations. Safe for concurrent reads.
+ */
+public final class DictionaryTrie {
+    private static final int NONE = -1;
+
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] valueIndex;
+    private final CachedTranslation[] values;
+
+    private DictionaryTrie(char[] labels, int[] firstChild, int[] nextSibling, int[] valueIndex, CachedTranslation[] values) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.valueIndex = valueIndex;
+        this.values = values;
+    }
+
+    public static DictionaryTrie empty() {
+        return build(Map.of());
+    }
+
+    /**
+     * @param entries translations keyed by normalized source text
+     */
+    public static DictionaryTrie build(Map<String, CachedTranslation> entries) {
+        BuilderNode root = new BuilderNode();
+        for (Map.Entry<String, CachedTranslation> entry : entries.entrySet()) {
+            BuilderNode node = root;
+            for (int i = 0; i < entry.getKey().length(); i++) {
+                node = node.children.computeIfAbsent(entry.getKey().charAt(i), c -> new BuilderNode());
+            }
+            node.value = entry.getValue();
+        }
+
+        int nodeCount = root.count();
+        char[] labels = new char[nodeCount];
+        int[] firstChild = new int[nodeCount];
+        int[] nextSibling = new int[nodeCount];
+        int[] valueIndex = new int[nodeCount];
+        List<CachedTranslation> values = new ArrayList<>(entries.size());
+        flatten(root, '\0', 0, new int[]{1}, labels, firstChild, nextSibling, valueIndex, values);
+        return new DictionaryTrie(labels, firstChild, nextSibling, valueIndex, values.toArray(new CachedTranslation[0]));
+    }
+
+    /**
+     * Writes the node at position and its subtree in preorder, children in character order.
+     * @param next the next free position, shared across the recursion
+     */
+    private static void flatten(BuilderNode node, char label, int position, int[] next, char[] labels, int[] firstChild,
+                                int[] nextSibling, int[] valueIndex, List<CachedTranslation> values) {
+        labels[position] = label;
+        nextSibling[position] = NONE;
+        if (node.value != null) {
+            valueIndex[position] = values.size();
+            values.add(node.value);
+        } else {
+            valueIndex[position] = NONE;
+        }
+
+        firstChild[position] = node.children.isEmpty() ? NONE : next[0];
+        int previousChild = NONE;
+        for (Map.Entry<Character, BuilderNode> child : node.children.entrySet()) {
+            int childPosition = next[0]++;
+            if (previousChild != NONE) {
+                nextSibling[previousChild] = childPosition;
+            }
+            flatten(child.getValue(), child.getKey(), childPosition, next, labels, firstChild, nextSibling, valueIndex, values);
+            previousChild = childPosition;
+        }
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public CachedTranslation get(String key) {
+        int node = find(key);
+        return node == NONE || valueIndex[node] == NONE ? null : values[valueIndex[node]];
+    }
+
+    /**
+     * @return up to limit entries whose key starts with the prefix, shortest and then alphabetical first
+     */
+    public List<CachedTranslation> complete(String prefix, int limit) {
+        List<CachedTranslation> results = new ArrayList<>();
+        int start = find(prefix);
+        if (start == NONE) {
+            return results;
+        }
+        // Breadth-first from the prefix node, so whole words come before longer continuations
+        List<Integer> level = List.of(start);
+        while (!level.isEmpty() && results.size() < limit) {
+            List<Integer> nextLevel = new ArrayList<>();
+            for (int node : level) {
+                if (valueIndex[node] != NONE) {
+                    results.add(values[valueIndex[node]]);
+                    if (results.size() >= limit) {
+                        return results;
+                    }
+                }
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    nextLevel.add(child);
+                }
+            }
+            level = nextLevel;
+        }
+        return results;
+    }
+
+    private int find(String key) {
+        if (labels.length == 0) {
+            return NONE;
+        }
+        int node = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            int child = firstChild[node];
+            while (child != NONE && labels[child] < c) {
+                child = nextSibling[child];
+            }
+            if (child == NONE || labels[child] != c) {
+                return NONE;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private static final class BuilderNode {
+        final TreeMap<Character, BuilderNode> children = new TreeMap<>();
+        CachedTranslation value;
+
+        int count() {
+            int total = 1;
+            for (BuilderNode child : children.values()) {
+                total += child.count();
+            }
+            return total;
+        }
+    }
+}
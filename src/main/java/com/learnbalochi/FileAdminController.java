@@ -0,0 +1,41 @@
+package com.learnbalochi;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin/files")
+public class FileAdminController {
+
+    @Autowired
+    private FileContentMigration fileContentMigration;
+
+    // The only collection whose documents follow the file layout FileContentMigration rewrites
+    @Value("${files.catalog.collection:inpage_converted_files}")
+    private String filesCollection;
+
+    @PostMapping("/migrate-content")
+    public ResponseEntity<Map<String, Object>> migrateContent(
+            @RequestParam(required = false) String collection
+    ) {
+        if (collection != null && !collection.equals(filesCollection)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Only the files collection " + filesCollection + " can be migrated");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        boolean started = fileContentMigration.start(filesCollection);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(fileContentMigration.getStatus());
+    }
+
+    @GetMapping("/migrate-content")
+    public Map<String, Object> getMigrationStatus() {
+        return fileContentMigration.getStatus();
+    }
+}
@@ -0,0 +1,384 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-memory replica of the file catalogue's metadata, kept current by a Firestore snapshot
+ * listener that applies each add, modify and remove as it happens. Listing, search and privacy
+ * filtering for that collection are served from here once the initial sync has completed;
+ * until then, and whenever the listener has failed, {@link #serves(String)} is false and
+ * callers query Firestore directly. The listener receives whole documents, so it is only
+ * subscribed once no file in the collection still holds its content inline.
+ */
+@Component
+public class FileCatalog implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(FileCatalog.class);
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing((Entry entry) -> entry.sortName)
+            .thenComparing(entry -> entry.metadata.documentId());
+
+    /**
+     * Notified, on the listener thread, of every file change the catalog applies, then once the
+     * whole snapshot is visible to list and search calls.
+     */
+    public interface ChangeListener {
+        default void onFileChanged(String documentId, Map<String, Object> data) {
+        }
+
+        default void onFileRemoved(String documentId) {
+        }
+
+        default void onSnapshotApplied() {
+        }
+    }
+
+    /**
+     * A file's metadata plus its searchable fields, normalized once when the change arrives.
+     */
+    private record Entry(FileMetadata metadata, String sortName, List<String> searchFields, boolean inlineContent) {
+
+        static Entry of(FileMetadata metadata, boolean inlineContent) {
+            List<String> searchFields = new ArrayList<>();
+            addSearchField(searchFields, metadata.fileName());
+            if (metadata.authorName() instanceof List<?> authors) {
+                for (Object author : authors) {
+                    addSearchField(searchFields, String.valueOf(author));
+                }
+            } else if (metadata.authorName() instanceof String author) {
+                addSearchField(searchFields, author);
+            }
+            addSearchField(searchFields, metadata.description());
+            addSearchField(searchFields, metadata.category());
+            String sortName = metadata.fileName() != null ? metadata.fileName() : "";
+            return new Entry(metadata, sortName, searchFields, inlineContent);
+        }
+
+        private static void addSearchField(List<String> searchFields, String value) {
+            if (value != null) {
+                searchFields.add(SearchText.normalize(value));
+            }
+        }
+
+        boolean matches(String normalizedQuery) {
+            if (normalizedQuery.isBlank()) {
+                return true;
+            }
+            for (String field : searchFields) {
+                if (field.contains(normalizedQuery)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Value("${files.catalog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${files.catalog.collection:inpage_converted_files}")
+    private String collectionName;
+
+    @Value("${files.catalog.resubscribe-delay-ms:5000}")
+    private long resubscribeDelayMs;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entries in (fileName, documentId) order, replaced after every snapshot
+    private volatile List<Entry> sorted = List.of();
+    private volatile boolean ready;
+    // Files not yet moved to chunks; search matches their content, which the catalog doesn't hold
+    private volatile int inlineContentFiles;
+    // Files with a fileName, i.e. those the keyset listing can reach
+    private volatile int listableFiles;
+    private volatile long lastSnapshotAt;
+    private ListenerRegistration registration;
+    // Set when a new listener is subscribed; its first snapshot is the whole collection
+    private volatile boolean awaitingFullSnapshot;
+    // Set while files with inline content keep the listener from subscribing
+    private volatile boolean awaitingContentMigration;
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "file-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong changesApplied = new AtomicLong();
+    private final AtomicLong listenerFailures = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        startIfContentMigrated();
+    }
+
+    /**
+     * Subscribes the listener unless it is already subscribed or files with inline content
+     * remain, whose content the initial sync would pull into memory. FileContentMigration calls
+     * this again once it has finished the collection.
+     */
+    public synchronized void startIfContentMigrated() {
+        if (!enabled || registration != null || FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+        try {
+            if (hasInlineContent()) {
+                awaitingContentMigration = true;
+                logger.warn("File catalog not started: {} still has files with inline content, run POST /api/v1/admin/files/migrate-content", collectionName);
+                return;
+            }
+        } catch (ExecutionException e) {
+            logger.error("File catalog not started: checking {} for inline content failed", collectionName, e.getCause());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        awaitingContentMigration = false;
+        subscribe();
+    }
+
+    // content != null only matches documents that still have the field
+    private boolean hasInlineContent() throws ExecutionException, InterruptedException {
+        return !FirestoreClient.getFirestore().collection(collectionName)
+                .whereNotEqualTo("content", null)
+                .select(FileContentStore.LAYOUT_FIELD)
+                .limit(1)
+                .get().get().isEmpty();
+    }
+
+    /**
+     * Whether list and search requests for the collection can be answered from memory.
+     */
+    public boolean serves(String collection) {
+        return ready && collectionName.equals(collection);
+    }
+
+    /**
+     * Whether searches can be answered from memory: only once every file's content is chunked,
+     * since search on older files also matches their inline content.
+     */
+    public boolean servesSearch(String collection) {
+        return serves(collection) && inlineContentFiles == 0;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public String collectionName() {
+        return collectionName;
+    }
+
+    public boolean contains(String documentId) {
+        return entries.containsKey(documentId);
+    }
+
+    private synchronized void subscribe() {
+        awaitingFullSnapshot = true;
+        // File documents hold metadata only once their content is chunked, which
+        // startIfContentMigrated has checked, so the initial sync and later changes carry no content
+        registration = FirestoreClient.getFirestore().collection(collectionName)
+                .addSnapshotListener(scheduler, this::onSnapshot);
+        logger.info("File catalog listening to {}", collectionName);
+    }
+
+    private void onSnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            // The listener is finished after an error: serve from Firestore until a new one syncs
+            ready = false;
+            listenerFailures.incrementAndGet();
+            logger.error("File catalog listener failed, resubscribing in {} ms", resubscribeDelayMs, error);
+            scheduler.schedule(this::resubscribe, resubscribeDelayMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        if (awaitingFullSnapshot) {
+            // After a resubscribe, files deleted while disconnected are simply absent
+            awaitingFullSnapshot = false;
+            Set<String> present = new HashSet<>();
+            snapshot.getDocuments().forEach(document -> present.add(document.getId()));
+            for (String documentId : new ArrayList<>(entries.keySet())) {
+                if (!present.contains(documentId)) {
+                    remove(documentId);
+                }
+            }
+        }
+
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            String documentId = change.getDocument().getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                remove(documentId);
+            } else {
+                Map<String, Object> data = change.getDocument().getData();
+                boolean inlineContent = data.containsKey("content") && !FileContentStore.isChunked(data);
+                entries.put(documentId, Entry.of(FileMetadata.fromData(documentId, data), inlineContent));
+                changeListeners.forEach(listener -> listener.onFileChanged(documentId, data));
+            }
+            changesApplied.incrementAndGet();
+        }
+        List<Entry> resorted = new ArrayList<>(entries.values());
+        resorted.sort(ORDER);
+        sorted = Collections.unmodifiableList(resorted);
+        inlineContentFiles = (int) resorted.stream().filter(Entry::inlineContent).count();
+        listableFiles = (int) resorted.stream().filter(entry -> entry.metadata().fileName() != null).count();
+
+        snapshots.incrementAndGet();
+        lastSnapshotAt = System.currentTimeMillis();
+        if (!ready) {
+            ready = true;
+            logger.info("File catalog synced with {} files", resorted.size());
+        }
+        // Last, so listeners see the snapshot exactly as list and search calls will
+        changeListeners.forEach(ChangeListener::onSnapshotApplied);
+    }
+
+    private void remove(String documentId) {
+        entries.remove(documentId);
+        changeListeners.forEach(listener -> listener.onFileRemoved(documentId));
+    }
+
+    private synchronized void resubscribe() {
+        if (registration != null) {
+            registration.remove();
+        }
+        subscribe();
+    }
+
+    public PaginatedResponse list(int page, int size, String currentUserUid, boolean privacyFilter) {
+        return pageOf(filter(entry -> true, currentUserUid, privacyFilter), page, size);
+    }
+
+    public List<FileMetadata> matches(String searchQuery, String currentUserUid, boolean privacyFilter) {
+        String normalizedQuery = SearchText.normalize(searchQuery);
+        return filter(entry -> entry.matches(normalizedQuery), currentUserUid, privacyFilter);
+    }
+
+    /**
+     * @return the file's metadata, or null if the catalog doesn't hold it
+     */
+    public FileMetadata get(String documentId) {
+        Entry entry = entries.get(documentId);
+        return entry != null ? entry.metadata() : null;
+    }
+
+    public List<FileMetadata> listAll() {
+        return filter(entry -> true, null, false);
+    }
+
+    /**
+     * Keyset page in the same (fileName, documentId) order and with the same tokens as the
+     * Firestore-backed listing, so clients can move between the two mid-listing. As with the
+     * fileName ordering there, files without a fileName are not listed.
+     */
+    public PaginatedResponse listAfter(String pageToken, int size, String currentUserUid, boolean privacyFilter) {
+        List<Entry> snapshot = sorted;
+        int start = 0;
+        if (pageToken != null) {
+            PageToken cursor = PageToken.decode(pageToken);
+            Entry probe = Entry.of(new FileMetadata(cursor.documentId(), cursor.fileName(),
+                    null, null, null, null, null, null, null, null, null), false);
+            int position = Collections.binarySearch(snapshot, probe, ORDER);
+            start = position >= 0 ? position + 1 : -position - 1;
+        }
+
+        List<FileMetadata> documents = new ArrayList<>();
+        boolean hasNext = false;
+        for (int i = start; i < snapshot.size(); i++) {
+            FileMetadata metadata = snapshot.get(i).metadata();
+            if (metadata.fileName() == null || (privacyFilter && !metadata.isAccessibleTo(currentUserUid))) {
+                continue;
+            }
+            if (documents.size() == size) {
+                hasNext = true;
+                break;
+            }
+            documents.add(metadata);
+        }
+
+        PaginatedResponse.PaginationMeta paginationMeta = PaginatedResponse.PaginationMeta.forCursor(size, hasNext, pageToken != null);
+        if (!privacyFilter) {
+            paginationMeta.setTotalElements(listableFiles);
+        }
+        String nextPageToken = null;
+        if (hasNext) {
+            FileMetadata last = documents.get(documents.size() - 1);
+            nextPageToken = new PageToken(last.fileName(), last.documentId()).encode();
+        }
+        return new PaginatedResponse(documents, paginationMeta, nextPageToken);
+    }
+
+    private List<FileMetadata> filter(Predicate<Entry> predicate, String currentUserUid, boolean privacyFilter) {
+        List<FileMetadata> documents = new ArrayList<>();
+        for (Entry entry : sorted) {
+            if (predicate.test(entry) && (!privacyFilter || entry.metadata().isAccessibleTo(currentUserUid))) {
+                documents.add(entry.metadata());
+            }
+        }
+        return documents;
+    }
+
+    private static PaginatedResponse pageOf(List<FileMetadata> documents, int page, int size) {
+        int startIndex = (int) Math.min((long) (page - 1) * size, documents.size());
+        int endIndex = Math.min(startIndex + size, documents.size());
+        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, documents.size());
+        return new PaginatedResponse(new ArrayList<>(documents.subList(startIndex, endIndex)), paginationMeta);
+    }
+
+    @Override
+    public String metricsName() {
+        return "fileCatalog";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("collection", collectionName);
+        metrics.put("ready", ready);
+        metrics.put("awaitingContentMigration", awaitingContentMigration);
+        metrics.put("files", sorted.size());
+        metrics.put("inlineContentFiles", inlineContentFiles);
+        metrics.put("snapshots", snapshots.get());
+        metrics.put("changesApplied", changesApplied.get());
+        metrics.put("listenerFailures", listenerFailures.get());
+        metrics.put("lastSnapshotAt", lastSnapshotAt);
+        return metrics;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.remove();
+        }
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,228 @@
+package com.learnbalochi;
+
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.*;
+import com.google.firebase.cloud.FirestoreClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves files from the single "content" field layout to content chunks: writes the chunks,
+ * then records the layout on the file document and deletes its "content" field.
+ */
+@Component
+public class FileContentMigration {
+    private static final Logger logger = LoggerFactory.getLogger(FileContentMigration.class);
+    private static final int PAGE_SIZE = 10; // whole documents, each up to 1 MiB
+
+    @Autowired
+    private FileContentStore fileContentStore;
+
+    @Autowired
+    private FileCatalog fileCatalog;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "file-content-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong alreadyChunked = new AtomicLong();
+    private final AtomicLong changed = new AtomicLong();
+    private volatile String collectionName;
+    private volatile String lastDocumentId;
+    private volatile String lastError;
+
+    /**
+     * Starts the migration of one collection in the background.
+     * @return false if a migration is already running.
+     */
+    public boolean start(String collectionName) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        this.collectionName = collectionName;
+        scanned.set(0);
+        migrated.set(0);
+        alreadyChunked.set(0);
+        changed.set(0);
+        lastDocumentId = null;
+        lastError = null;
+
+        executor.submit(() -> {
+            try {
+                migrate(collectionName);
+                logger.info("File content migration finished: {}", getStatus());
+                if (collectionName.equals(fileCatalog.collectionName())) {
+                    fileCatalog.startIfContentMigrated();
+                }
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                logger.error("File content migration failed after document {}", lastDocumentId, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("collection", collectionName);
+        status.put("scanned", scanned.get());
+        status.put("migrated", migrated.get());
+        status.put("alreadyChunked", alreadyChunked.get());
+        // Files that kept changing while being migrated; a later run picks them up
+        status.put("changed", changed.get());
+        status.put("lastDocumentId", lastDocumentId);
+        // Whole documents are read PAGE_SIZE at a time, and each page's updates committed as one batch
+        status.put("pageSize", PAGE_SIZE);
+        status.put("error", lastError);
+        return status;
+    }
+
+    private void migrate(String collectionName) throws ExecutionException, InterruptedException {
+        Firestore db = FirestoreClient.getFirestore();
+        CollectionReference collection = db.collection(collectionName);
+        DocumentSnapshot cursor = null;
+
+        while (true) {
+            Query query = collection.orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+            if (cursor != null) {
+                query = query.startAfter(cursor);
+            }
+            List<QueryDocumentSnapshot> page = query.get().get().getDocuments();
+            if (page.isEmpty()) {
+                return;
+            }
+            // The page's layout updates are committed together once all of its chunks are written
+            List<LayoutUpdate> updates = new ArrayList<>();
+            for (QueryDocumentSnapshot document : page) {
+                LayoutUpdate update = migrateDocument(db, document);
+                if (update != null) {
+                    updates.add(update);
+                }
+            }
+            if (!updates.isEmpty()) {
+                commit(db, updates);
+            }
+            lastDocumentId = page.get(page.size() - 1).getId();
+            cursor = page.get(page.size() - 1);
+        }
+    }
+
+    // The layout fields to set on a document, valid while it is unchanged since it was read
+    private record LayoutUpdate(DocumentSnapshot document, Map<String, Object> fields) {
+
+        Precondition precondition() {
+            return Precondition.updatedAt(document.getUpdateTime());
+        }
+
+        int chunkCount() {
+            return ((Number) fields.get(FileContentStore.CHUNK_COUNT_FIELD)).intValue();
+        }
+    }
+
+    /**
+     * Writes the document's chunks.
+     * @return the layout update for the document, or null if it needed no migration
+     */
+    private LayoutUpdate migrateDocument(Firestore db, DocumentSnapshot document) throws ExecutionException, InterruptedException {
+        scanned.incrementAndGet();
+        String content = document.getString("content");
+        if (FileContentStore.isChunked(document.getData()) || content == null) {
+            alreadyChunked.incrementAndGet();
+            return null;
+        }
+
+        // Chunks first: until the layout fields are written, readers keep using "content"
+        Map<String, Object> updates = new LinkedHashMap<>(fileContentStore.write(db, document.getReference(), content));
+        updates.put("content", FieldValue.delete());
+        return new LayoutUpdate(document, updates);
+    }
+
+    /**
+     * Commits the layout updates, each on condition that its document is unchanged since it was
+     * read, so content written in the meantime is never deleted. The batch is all or nothing, so
+     * when a document did change, the updates are committed one at a time instead.
+     */
+    private void commit(Firestore db, List<LayoutUpdate> updates) throws ExecutionException, InterruptedException {
+        WriteBatch batch = db.batch();
+        for (LayoutUpdate update : updates) {
+            batch.update(update.document().getReference(), update.fields(), update.precondition());
+        }
+        try {
+            batch.commit().get();
+            migrated.addAndGet(updates.size());
+            return;
+        } catch (ExecutionException e) {
+            if (!changedSinceRead(e)) {
+                throw e;
+            }
+        }
+        for (LayoutUpdate update : updates) {
+            if (!commitOne(update)) {
+                retry(db, update);
+            }
+        }
+    }
+
+    // false if the document changed since it was read
+    private boolean commitOne(LayoutUpdate update) throws ExecutionException, InterruptedException {
+        try {
+            update.document().getReference().update(update.fields(), update.precondition()).get();
+            migrated.incrementAndGet();
+            return true;
+        } catch (ExecutionException e) {
+            if (!changedSinceRead(e)) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Migrates a document that changed after it was read, from a fresh read. The chunks already
+     * written for it are overwritten, or deleted if the document is gone; a document that keeps
+     * changing is left for the next run.
+     */
+    private void retry(Firestore db, LayoutUpdate stale) throws ExecutionException, InterruptedException {
+        DocumentReference file = stale.document().getReference();
+        DocumentSnapshot current = file.get().get();
+        LayoutUpdate update = current.exists() ? migrateDocument(db, current) : null;
+        int chunkCount = 0;
+        if (update != null) {
+            chunkCount = update.chunkCount();
+            if (!commitOne(update)) {
+                changed.incrementAndGet();
+                logger.warn("Document {} changed again while its content was migrated, leaving it for the next run", file.getId());
+            }
+        }
+        // Chunks of a file already chunked by someone else are its own
+        if (!FileContentStore.isChunked(current.getData()) && chunkCount < stale.chunkCount()) {
+            fileContentStore.delete(db, file, chunkCount, stale.chunkCount());
+        }
+    }
+
+    // A document deleted since it was read fails with NOT_FOUND rather than the precondition
+    private static boolean changedSinceRead(ExecutionException e) {
+        return FirestoreFutures.failedWith(e, StatusCode.Code.FAILED_PRECONDITION)
+                || FirestoreFutures.failedWith(e, StatusCode.Code.NOT_FOUND);
+    }
+}
@@ -0,0 +1,209 @@
+package com.learnbalochi;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Stores a file's text as ordered chunk documents in its "chunks" subcollection, so a
+ * converted book is not capped by the 1 MiB document limit and can be read a range at a time.
+ * The file document records the layout in {@link #LAYOUT_FIELD}, {@link #CHUNK_COUNT_FIELD}
+ * and {@link #LENGTH_FIELD}; documents without them still hold their text in "content".
+ */
+@Component
+public class FileContentStore {
+    static final String CHUNKS_COLLECTION = "chunks";
+    static final String LAYOUT_FIELD = "contentLayout";
+    static final String CHUNKED_LAYOUT = "chunked";
+    static final String CHUNK_COUNT_FIELD = "contentChunks";
+    static final String LENGTH_FIELD = "contentLength";
+
+    // Characters per chunk; Arabic-script text is two bytes per character in UTF-8
+    @Value("${files.content.chunk-chars:200000}")
+    private int chunkChars;
+
+    // Chunks per write batch, keeping each commit well under the 10 MiB request limit
+    @Value("${files.content.chunks-per-batch:8}")
+    private int chunksPerBatch;
+
+    public static boolean isChunked(Map<String, Object> documentData) {
+        return documentData != null && CHUNKED_LAYOUT.equals(documentData.get(LAYOUT_FIELD));
+    }
+
+    /**
+     * Writes the content as chunks, committing the batches in parallel.
+     * @return the layout fields to store on the file document once the chunks are written
+     */
+    public Map<String, Object> write(Firestore db, DocumentReference file, String content) throws ExecutionException, InterruptedException {
+        List<String> chunks = split(content, chunkChars);
+        CollectionReference chunkCollection = file.collection(CHUNKS_COLLECTION);
+
+        List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+        for (int start = 0; start < chunks.size(); start += chunksPerBatch) {
+            WriteBatch batch = db.batch();
+            for (int index = start; index < Math.min(start + chunksPerBatch, chunks.size()); index++) {
+                Map<String, Object> chunk = new HashMap<>();
+                chunk.put("index", index);
+                chunk.put("text", chunks.get(index));
+                batch.set(chunkCollection.document(chunkId(index)), chunk);
+            }
+            commits.add(batch.commit());
+        }
+        ApiFutures.allAsList(commits).get();
+
+        Map<String, Object> layout = new HashMap<>();
+        layout.put(LAYOUT_FIELD, CHUNKED_LAYOUT);
+        layout.put(CHUNK_COUNT_FIELD, chunks.size());
+        layout.put(LENGTH_FIELD, content.length());
+        return layout;
+    }
+
+    /**
+     * Reads chunks [from, from + count) in one multi-document read.
+     * @return the chunk texts in order, stopping at the first missing chunk
+     */
+    public List<String> read(Firestore db, DocumentReference file, int from, int count) throws ExecutionException, InterruptedException {
+        return readAsync(db, file, from, count).get();
+    }
+
+    /**
+     * Non-blocking {@link #read}.
+     */
+    public CompletableFuture<List<String>> readAsync(Firestore db, DocumentReference file, int from, int count) {
+        if (count <= 0) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        DocumentReference[] references = new DocumentReference[count];
+        for (int i = 0; i < count; i++) {
+            references[i] = file.collection(CHUNKS_COLLECTION).document(chunkId(from + i));
+        }
+
+        return FirestoreFutures.toCompletable(db.getAll(references)).thenApply(chunks -> {
+            List<String> texts = new ArrayList<>(count);
+            for (DocumentSnapshot chunk : chunks) {
+                if (!chunk.exists()) {
+                    break;
+                }
+                texts.add(chunk.getString("text"));
+            }
+            return texts;
+        });
+    }
+
+    /**
+     * Reads the content one chunk at a time, so a large file is never held whole.
+     */
+    public Reader reader(Firestore db, DocumentReference file, int chunkCount) {
+        return new Reader() {
+            private int nextChunk;
+            private String chunk = "";
+            private int offset;
+
+            @Override
+            public int read(char[] buffer, int off, int len) throws IOException {
+                while (offset == chunk.length()) {
+                    if (nextChunk == chunkCount) {
+                        return -1;
+                    }
+                    chunk = readChunk(nextChunk++);
+                    offset = 0;
+                }
+                int count = Math.min(len, chunk.length() - offset);
+                chunk.getChars(offset, offset + count, buffer, off);
+                offset += count;
+                return count;
+            }
+
+            private String readChunk(int index) throws IOException {
+                try {
+                    List<String> texts = FileContentStore.this.read(db, file, index, 1);
+                    if (texts.isEmpty()) {
+                        throw new IOException("Chunk " + index + " of " + file.getPath() + " is missing");
+                    }
+                    return texts.get(0);
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to read chunk " + index + " of " + file.getPath(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted reading chunk " + index + " of " + file.getPath());
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    public String readAll(Firestore db, DocumentReference file, int chunkCount) throws ExecutionException, InterruptedException {
+        return readAllAsync(db, file, chunkCount).get();
+    }
+
+    public CompletableFuture<String> readAllAsync(Firestore db, DocumentReference file, int chunkCount) {
+        return readAsync(db, file, 0, chunkCount).thenApply(texts -> String.join("", texts));
+    }
+
+    public void delete(Firestore db, DocumentReference file, int chunkCount) throws ExecutionException, InterruptedException {
+        delete(db, file, 0, chunkCount);
+    }
+
+    /**
+     * Deletes chunks [from, to), such as those left past the end when a file is rewritten shorter.
+     */
+    public void delete(Firestore db, DocumentReference file, int from, int to) throws ExecutionException, InterruptedException {
+        List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+        for (int start = from; start < to; start += 500) {
+            WriteBatch batch = db.batch();
+            for (int index = start; index < Math.min(start + 500, to); index++) {
+                batch.delete(file.collection(CHUNKS_COLLECTION).document(chunkId(index)));
+            }
+            commits.add(batch.commit());
+        }
+        ApiFutures.allAsList(commits).get();
+    }
+
+    /**
+     * Splits at chunkChars, moving each cut back to the last line break in the final tenth of
+     * the chunk when there is one, and never between the two halves of a surrogate pair.
+     */
+    static List<String> split(String content, int chunkChars) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(start + chunkChars, content.length());
+            if (end < content.length()) {
+                int lineBreak = content.lastIndexOf('\n', end - 1);
+                if (lineBreak >= end - chunkChars / 10 && lineBreak > start) {
+                    end = lineBreak + 1;
+                } else if (Character.isHighSurrogate(content.charAt(end - 1))) {
+                    end--;
+                }
+            }
+            chunks.add(content.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // Zero-padded so the subcollection lists in order
+    private static String chunkId(int index) {
+        return String.format("%06d", index);
+    }
+}
@@ -0,0 +1,69 @@
+package com.learnbalochi;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.util.Map;
+
+/**
+ * List view of a converted file: everything but its content. {@link #FIELDS} is the projection
+ * listing queries select, so the content never leaves Firestore.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FileMetadata(
+        String documentId,
+        String fileName,
+        Object authorName,
+        String description,
+        String category,
+        Boolean isPublic,
+        String uploaderEmail,
+        String uploaderUid,
+        Long uploadDate,
+        Long contentChunks,
+        Long contentLength) {
+
+    public static final String[] FIELDS = {
+            "fileName", "authorName", "description", "category",
+            "isPublic", "uploaderEmail", "uploaderUid", "uploadDate",
+            FileContentStore.CHUNK_COUNT_FIELD, FileContentStore.LENGTH_FIELD
+    };
+
+    public static FileMetadata from(DocumentSnapshot document) {
+        return fromData(document.getId(), document.getData());
+    }
+
+    static FileMetadata fromData(String documentId, Map<String, Object> data) {
+        return new FileMetadata(
+                documentId,
+                asString(data.get("fileName")),
+                data.get("authorName"), // a list of names, or a single name on older uploads
+                asString(data.get("description")),
+                asString(data.get("category")),
+                data.get("isPublic") instanceof Boolean isPublic ? isPublic : null,
+                asString(data.get("uploaderEmail")),
+                asString(data.get("uploaderUid")),
+                asLong(data.get("uploadDate")),
+                asLong(data.get(FileContentStore.CHUNK_COUNT_FIELD)),
+                asLong(data.get(FileContentStore.LENGTH_FIELD)));
+    }
+
+    /**
+     * Same rule as the map-based check: anonymous users see public files, signed-in users also
+     * see their own.
+     */
+    public boolean isAccessibleTo(String currentUserUid) {
+        if (Boolean.TRUE.equals(isPublic)) {
+            return true;
+        }
+        return currentUserUid != null && !currentUserUid.isEmpty() && currentUserUid.equals(uploaderUid);
+    }
+
+    private static String asString(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+
+    private static Long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.learnbalochi;
+
+import com.google.firebase.FirebaseApp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory near-duplicate index over the source text of stored translations. Texts are reduced
+ * to character trigrams, summarized by MinHash signatures and bucketed with locality-sensitive
+ * hashing, so a query only compares against the few entries that share a band with it.
+ */
+@Component
+public class FuzzyTranslationIndex implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(FuzzyTranslationIndex.class);
+    private static final int SHINGLE_SIZE = 3;
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS_PER_BAND;
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(SIGNATURE_SIZE).toArray();
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}]");
+
+    /**
+     * A stored translation whose source text is similar to the query, with estimated Jaccard similarity.
+     */
+    public record Match(CachedTranslation translation, double similarity) {
+    }
+
+    private record Entry(CachedTranslation translation, int[] signature) {
+    }
+
+    @Autowired
+    private MyFirestoreService firestoreService;
+
+    @Value("${translation.fuzzy.enabled:true}")
+    private boolean enabled;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final AtomicLong candidatesCompared = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        if (!enabled || FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                firestoreService.forEachTranslation(this::add);
+                ready = true;
+                logger.info("Fuzzy translation index built with {} entries in {} ms", entries.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to build fuzzy translation index", e);
+            }
+        });
+    }
+
+    public void add(CachedTranslation translation) {
+        if (!enabled || translation.originalText() == null) {
+            return;
+        }
+        int[] signature = signature(translation.originalText());
+        if (signature == null) {
+            return;
+        }
+        Entry previous = entries.put(translation.documentId(), new Entry(translation, signature));
+        if (previous == null) {
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), k -> ConcurrentHashMap.newKeySet())
+                        .add(translation.documentId());
+            }
+        }
+    }
+
+    /**
+     * @return up to k stored translations most similar to the text, best first, at or above minSimilarity
+     */
+    public List<Match> findSimilar(String text, int k, double minSimilarity) {
+        long start = System.nanoTime();
+        int[] signature = enabled ? signature(text) : null;
+        if (signature == null) {
+            return List.of();
+        }
+
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (String candidate : candidates) {
+            Entry entry = entries.get(candidate);
+            double similarity = estimateSimilarity(signature, entry.signature());
+            if (similarity >= minSimilarity) {
+                matches.add(new Match(entry.translation(), similarity));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed());
+
+        queries.incrementAndGet();
+        candidatesCompared.addAndGet(candidates.size());
+        queryNanos.addAndGet(System.nanoTime() - start);
+        return matches.size() > k ? matches.subList(0, k) : matches;
+    }
+
+    /**
+     * MinHash signature over character trigrams of the normalized text, ignoring punctuation.
+     */
+    private static int[] signature(String text) {
+        String normalized = PUNCTUATION.matcher(TranslationKeys.normalize(text)).replaceAll("").trim();
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        String padded = " " + normalized + " ";
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, padded.length() - SHINGLE_SIZE + 1);
+        for (int i = 0; i < shingles; i++) {
+            long shingleHash = padded.substring(i, Math.min(padded.length(), i + SHINGLE_SIZE)).hashCode();
+            for (int h = 0; h < SIGNATURE_SIZE; h++) {
+                int value = (int) mix(shingleHash ^ SEEDS[h]);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double estimateSimilarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS_PER_BAND; row++) {
+            key = mix(key * 31 + signature[band * ROWS_PER_BAND + row]);
+        }
+        return key;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public String metricsName() {
+        return "fuzzyIndex";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long queryCount = queries.get();
+        metrics.put("ready", ready);
+        metrics.put("entries", entries.size());
+        metrics.put("buckets", buckets.size());
+        metrics.put("queries", queryCount);
+        metrics.put("meanQueryMicros", queryCount == 0 ? 0 : queryNanos.get() / queryCount / 1000);
+        metrics.put("meanCandidates", queryCount == 0 ? 0 : candidatesCompared.get() / queryCount);
+        return metrics;
+    }
+}
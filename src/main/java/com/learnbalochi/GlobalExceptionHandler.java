@@ -72,4 +72,47 @@ public class GlobalExceptionHandler {
                 .headers(headers)
                 .body(error);
     }
-} 
\ No newline at end of file
+
+    @ExceptionHandler(TranslationTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleTranslationTimeout(TranslationTimeoutException exc) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", exc.getMessage());
+        
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attributes != null ? attributes.getRequest() : null;
+        HttpHeaders headers = createCorsHeaders(request);
+        
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .headers(headers)
+                .body(error);
+    }
+
+    @ExceptionHandler(TranslatorUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleTranslatorUnavailable(TranslatorUnavailableException exc) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Translation service temporarily unavailable");
+        
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attributes != null ? attributes.getRequest() : null;
+        HttpHeaders headers = createCorsHeaders(request);
+        headers.add(HttpHeaders.RETRY_AFTER, String.valueOf(exc.getRetryAfterSeconds()));
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .headers(headers)
+                .body(error);
+    }
+
+    @ExceptionHandler(InvalidPageTokenException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidPageToken(InvalidPageTokenException exc) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", exc.getMessage());
+        
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attributes != null ? attributes.getRequest() : null;
+        HttpHeaders headers = createCorsHeaders(request);
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .headers(headers)
+                .body(error);
+    }
+}
@@ -0,0 +1,111 @@
+package com.learnbalochi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight table: concurrent callers with the same key share one execution of the loader.
+ */
+@Component
+public class InFlightTranslations implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(InFlightTranslations.class);
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    @Value("${translation.coalesce.timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    /**
+     * Runs the loader for the key, or waits for the execution already in progress.
+     * A follower that times out or is interrupted stops waiting without cancelling the shared call.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Callable<T> loader) throws ExecutionException, InterruptedException {
+        while (true) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+
+            if (existing == null) {
+                leaders.incrementAndGet();
+                return (T) lead(key, future, loader);
+            }
+
+            coalesced.incrementAndGet();
+            logger.debug("Coalescing request for key '{}' onto in-flight call", key);
+            try {
+                return (T) existing.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timeouts.incrementAndGet();
+                throw new TranslationTimeoutException("Timed out waiting for in-flight translation");
+            } catch (CancellationException e) {
+                // The leader was interrupted; retry and let one of the waiters take over
+                logger.debug("In-flight call for key '{}' was cancelled, retrying", key);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private Object lead(String key, CompletableFuture<Object> future, Callable<?> loader) throws ExecutionException, InterruptedException {
+        try {
+            Object result = loader.call();
+            future.complete(result);
+            return result;
+        } catch (InterruptedException e) {
+            cancelled.incrementAndGet();
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+            throw e;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw new ExecutionException(e);
+        } catch (Error e) {
+            // Followers would otherwise wait out their timeout on a future nobody completes
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "translationCoalescing";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("leaderCalls", leaders.get());
+        metrics.put("coalescedCalls", coalesced.get());
+        metrics.put("waitTimeouts", timeouts.get());
+        metrics.put("cancelledLeaders", cancelled.get());
+        metrics.put("inFlight", inFlight.size());
+        return metrics;
+    }
+}
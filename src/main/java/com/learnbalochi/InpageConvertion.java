@@ -2,6 +2,7 @@ package com.learnbalochi;
 
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
 import org.springframework.util.LinkedMultiValueMap;
@@ -14,6 +15,7 @@ import org.springframework.beans.factory.annotation.Value;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -21,6 +23,7 @@ import java.util.concurrent.ExecutionException;
 public class InpageConvertion {
     private static final Logger logger = LoggerFactory.getLogger(InpageConvertion.class);
     @Autowired
+    @Qualifier("inpageConvertorRestTemplate")
     private RestTemplate restTemplate;
     @Autowired
     private MyFirestoreService firestoreService; // Use your MyFirestoreService to save data
@@ -29,25 +32,55 @@ public class InpageConvertion {
     @Value("${inpage.convertor.url}")
     private String inpageConvertorApiUrl;
 
+    /**
+     * Pass pageToken (empty for the first page, then each response's nextPageToken) for keyset
+     * pagination; page/size is kept for existing clients. The request thread is released while
+     * Firestore reads.
+     */
     @GetMapping("/list")
-    public PaginatedResponse listFiles(
+    public CompletableFuture<PaginatedResponse> listFiles(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String userUid
-    ) throws ExecutionException, InterruptedException {
+            @RequestParam(required = false) String userUid,
+            @RequestParam(required = false) String pageToken
+    ) {
         // Validate pagination parameters
         if (page < 1) page = 1;
         if (size < 1 || size > 100) size = 10; // Limit max page size to 100
 
-        return firestoreService.getDocumentsWithPrivacyFilter(collectionName, page, size, userUid);
+        if (pageToken != null) {
+            return firestoreService.getDocumentsWithPrivacyFilterPageAsync(collectionName, pageToken.isEmpty() ? null : pageToken, size, userUid);
+        }
+        return firestoreService.getDocumentsWithPrivacyFilterAsync(collectionName, page, size, userUid);
     }
 
     @GetMapping("/{documentId}")
-    public ResponseEntity<Map<String, Object>> getDocumentById(@PathVariable String documentId) throws ExecutionException, InterruptedException {
-        Map<String, Object> document = firestoreService.getDocumentById(collectionName, documentId);
-        
-        if (document != null) {
-            return ResponseEntity.ok(document);
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getDocumentById(@PathVariable String documentId) {
+        return firestoreService.getDocumentByIdAsync(collectionName, documentId).thenApply(document -> {
+            if (document != null) {
+                return ResponseEntity.ok(document);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        });
+    }
+
+    /**
+     * A range of the file's content chunks, so readers can page through a book without loading it all.
+     */
+    @GetMapping("/{documentId}/content")
+    public ResponseEntity<Map<String, Object>> getContentChunks(
+            @PathVariable String documentId,
+            @RequestParam(defaultValue = "0") int fromChunk,
+            @RequestParam(defaultValue = "1") int chunks
+    ) throws ExecutionException, InterruptedException {
+        if (fromChunk < 0) fromChunk = 0;
+        if (chunks < 1 || chunks > 10) chunks = 1;
+
+        Map<String, Object> content = firestoreService.getContentChunks(collectionName, documentId, fromChunk, chunks);
+
+        if (content != null) {
+            return ResponseEntity.ok(content);
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -104,7 +137,8 @@ public class InpageConvertion {
                     dataToSave.put("uploadDate", System.currentTimeMillis());
 
                     try {
-                        String documentId = firestoreService.addDocumentToCollection(collectionName, dataToSave); // Save using MyFirestoreService
+                        // Metadata goes in the file document, the text in its content chunks
+                        String documentId = firestoreService.addDocumentWithContent(collectionName, dataToSave, unicodeText);
 
                         // Add the document ID to the response
                         Map<String, Object> responseData = new HashMap<>(dataToSave);
@@ -132,14 +166,14 @@ public class InpageConvertion {
     }
 
     @GetMapping("/search")
-    public PaginatedResponse searchFiles(
+    public CompletableFuture<PaginatedResponse> searchFiles(
             @RequestParam String query,
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String userUid
-    ) throws ExecutionException, InterruptedException {
+    ) {
         if (page < 1) page = 1;
         if (size < 1 || size > 100) size = 10;
-        return firestoreService.searchDocumentsWithPrivacyFilter(collectionName, query, page, size, userUid);
+        return firestoreService.searchDocumentsWithPrivacyFilterAsync(collectionName, query, page, size, userUid);
     }
 }
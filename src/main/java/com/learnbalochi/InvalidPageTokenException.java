@@ -0,0 +1,11 @@
+package com.learnbalochi;
+
+/**
+ * Thrown when a list request carries a pageToken this service did not issue.
+ */
+public class InvalidPageTokenException extends RuntimeException {
+
+    public InvalidPageTokenException(String message) {
+        super(message);
+    }
+}
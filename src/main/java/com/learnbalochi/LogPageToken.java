@@ -0,0 +1,34 @@
+package com.learnbalochi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for the client log listing: the sort key (timestamp, document ID) of the last
+ * log on a page. Logs are listed newest first, so the next page starts after it going back in time.
+ */
+public record LogPageToken(String timestamp, String documentId) {
+    private static final String VERSION = "log1";
+    private static final char SEPARATOR = '\u0000';
+
+    public String encode() {
+        String raw = VERSION + SEPARATOR + timestamp + SEPARATOR + documentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws InvalidPageTokenException if the token was not produced by {@link #encode()}
+     */
+    public static LogPageToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEPARATOR), -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0]) || parts[1].isEmpty() || parts[2].isEmpty()) {
+                throw new InvalidPageTokenException("Invalid page token");
+            }
+            return new LogPageToken(parts[1], parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageTokenException("Invalid page token");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.learnbalochi;
+
+import java.util.Map;
+
+/**
+ * Implemented by components that publish counters on /api/v1/metrics.
+ */
+public interface MetricsSource {
+
+    String metricsName();
+
+    Map<String, Object> metrics();
+}
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -14,16 +15,24 @@ public class MyCollectionController {
     @Autowired
     private MyFirestoreService firestoreService;
 
+    /**
+     * Pass pageToken (empty for the first page, then each response's nextPageToken) for keyset
+     * pagination; page/size still works, but every skipped document is read again.
+     */
     @GetMapping
-    public PaginatedResponse getAllDocuments(
+    public CompletableFuture<PaginatedResponse> getAllDocuments(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size
-    ) throws InterruptedException, ExecutionException {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String pageToken
+    ) {
         // Validate pagination parameters
         if (page < 1) page = 1;
         if (size < 1 || size > 100) size = 10; // Limit max page size to 100
 
-        return firestoreService.getAllDocumentsFromCollectionPaginated(collectionName, page, size);
+        if (pageToken != null) {
+            return firestoreService.getAllDocumentsFromCollectionPageAsync(collectionName, pageToken.isEmpty() ? null : pageToken, size);
+        }
+        return firestoreService.getAllDocumentsFromCollectionPaginatedAsync(collectionName, page, size);
     }
 
     @PostMapping
@@ -39,25 +48,25 @@ public class MyCollectionController {
     }
 
     @GetMapping("/{documentId}")
-    public Map<String, Object> getDocumentById(@PathVariable String documentId) throws InterruptedException, ExecutionException {
-        return firestoreService.getDocumentById(collectionName, documentId);
+    public CompletableFuture<Map<String, Object>> getDocumentById(@PathVariable String documentId) {
+        return firestoreService.getDocumentByIdAsync(collectionName, documentId);
     }
 
     @DeleteMapping("/{documentId}")
-    public String deleteDocument(@PathVariable String documentId) {
+    public String deleteDocument(@PathVariable String documentId) throws InterruptedException, ExecutionException {
         firestoreService.deleteDocumentInCollection(collectionName, documentId);
         return "Document deleted successfully";
     }
 
     @GetMapping("/search")
-    public PaginatedResponse searchFiles(
+    public CompletableFuture<PaginatedResponse> searchFiles(
             @RequestParam String query,
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int size
-    ) throws InterruptedException, ExecutionException {
+    ) {
         if (page < 1) page = 1;
         if (size < 1 || size > 100) size = 10;
-        return firestoreService.searchAllDocumentsFromCollection(collectionName, query, page, size);
+        return firestoreService.searchAllDocumentsFromCollectionAsync(collectionName, query, page, size);
     }
 }
 
@@ -1,18 +1,52 @@
 package com.learnbalochi;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.firestore.*;
 import com.google.firebase.cloud.FirestoreClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 @Service
 public class MyFirestoreService {
+    static final String TRANSLATIONS_COLLECTION = "Translations";
+    private static final int TRANSLATION_SCAN_PAGE_SIZE = 1000;
+
+    // Says whether to keep querying by originalText, until the backfill to hashed keys has finished
+    @Autowired
+    private TranslationKeyMigration translationKeyMigration;
+
+    // Lazy: the write-behind itself persists through this service
+    @Lazy
+    @Autowired
+    private TranslationWriteBehind translationWriteBehind;
+
+    @Autowired
+    private CollectionCounts collectionCounts;
+
+    @Autowired
+    private FileContentStore fileContentStore;
+
+    @Autowired
+    private FileCatalog fileCatalog;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
 
     public List<Map<String, Object>> getAllDocumentsFromCollection(String collectionName) throws InterruptedException, ExecutionException {
         Firestore db = FirestoreClient.getFirestore();
@@ -37,92 +71,189 @@ public class MyFirestoreService {
         CollectionReference collection = db.collection(collectionName);
         ApiFuture<DocumentReference> addedDocRef = collection.add(data);
         String documentId = addedDocRef.get().getId();
+        collectionCounts.invalidate(collectionName);
+        searchResultCache.invalidate(collectionName);
         System.out.println("Added document with ID: " + documentId);
         return documentId;
     }
 
+    /**
+     * Updates the given fields. New content for a chunked file is written as chunks, like on
+     * upload, and the chunks past its new end are deleted once the document points at the new ones.
+     */
     public void updateDocumentInCollection(String collectionName, String documentId, Map<String, Object> updates) throws InterruptedException, ExecutionException {
         Firestore db = FirestoreClient.getFirestore();
         DocumentReference docRef = db.collection(collectionName).document(documentId);
+        if (updates.containsKey("content")) {
+            DocumentSnapshot layout = docRef.get(FieldMask.of(FileContentStore.LAYOUT_FIELD, FileContentStore.CHUNK_COUNT_FIELD)).get();
+            if (layout.exists() && FileContentStore.isChunked(layout.getData())) {
+                updateChunkedContent(db, docRef, layout.getLong(FileContentStore.CHUNK_COUNT_FIELD).intValue(), updates);
+                collectionCounts.invalidate(collectionName);
+                searchResultCache.invalidate(collectionName);
+                return;
+            }
+        }
         ApiFuture<WriteResult> writeResult = docRef.update(updates);
         System.out.println("Update time : " + writeResult.get().getUpdateTime());
+        collectionCounts.invalidate(collectionName);
+        searchResultCache.invalidate(collectionName);
     }
 
-    public void deleteDocumentInCollection(String collectionName, String documentId) {
+    private void updateChunkedContent(Firestore db, DocumentReference docRef, int previousChunkCount, Map<String, Object> updates) throws InterruptedException, ExecutionException {
+        Object content = updates.get("content");
+        Map<String, Object> fileUpdates = new HashMap<>(updates);
+        fileUpdates.remove("content");
+        fileUpdates.putAll(fileContentStore.write(db, docRef, content != null ? String.valueOf(content) : ""));
+        docRef.update(fileUpdates).get();
+
+        int chunkCount = ((Number) fileUpdates.get(FileContentStore.CHUNK_COUNT_FIELD)).intValue();
+        if (chunkCount < previousChunkCount) {
+            fileContentStore.delete(db, docRef, chunkCount, previousChunkCount);
+        }
+    }
+
+    /**
+     * Adds a file document with its text stored as content chunks. The chunks are written first,
+     * so a file document never points at chunks that do not exist.
+     * @return the new document's ID
+     */
+    public String addDocumentWithContent(String collectionName, Map<String, Object> data, String content) throws InterruptedException, ExecutionException {
         Firestore db = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = db.collection(collectionName).document(documentId).delete();
+        DocumentReference docRef = db.collection(collectionName).document();
+
+        Map<String, Object> fileData = new HashMap<>(data);
+        fileData.remove("content");
+        fileData.putAll(fileContentStore.write(db, docRef, content));
+        docRef.set(fileData).get();
+        searchIndex.index(collectionName, docRef.getId(), fileData, content);
+        collectionCounts.invalidate(collectionName);
+        searchResultCache.invalidate(collectionName);
+        return docRef.getId();
     }
 
-    public List<Map<String, Object>> getAllDocumentsWithoutContent(String collectionName) throws InterruptedException, ExecutionException {
+    public void deleteDocumentInCollection(String collectionName, String documentId) throws InterruptedException, ExecutionException {
         Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection(collectionName);
-        ApiFuture<QuerySnapshot> querySnapshot = collection.get();
+        DocumentReference docRef = db.collection(collectionName).document(documentId);
 
-        List<Map<String, Object>> documents = new ArrayList<>();
-        for (DocumentSnapshot document : querySnapshot.get().getDocuments()) {
-            Map<String, Object> documentData = document.getData();
-            if (documentData != null) {
-                // Create a new map without the "content" field
-                Map<String, Object> documentWithoutContent = new HashMap<>(documentData);
-                documentWithoutContent.remove("content");
-                // Add the document ID to the data
-                documentWithoutContent.put("documentId", document.getId());
-                documents.add(documentWithoutContent);
-            }
+        // Subcollections are not deleted with their parent
+        DocumentSnapshot layout = docRef.get(FieldMask.of(FileContentStore.LAYOUT_FIELD, FileContentStore.CHUNK_COUNT_FIELD)).get();
+        if (layout.exists() && FileContentStore.isChunked(layout.getData())) {
+            fileContentStore.delete(db, docRef, layout.getLong(FileContentStore.CHUNK_COUNT_FIELD).intValue());
         }
-
-        return documents;
+        docRef.delete().get();
+        collectionCounts.invalidate(collectionName);
+        searchResultCache.invalidate(collectionName);
     }
 
-    public PaginatedResponse getDocumentsWithoutContentPaginated(String collectionName, int page, int size) throws InterruptedException, ExecutionException {
+    /**
+     * Metadata of every file in the collection. Only {@link FileMetadata#FIELDS} are read, so no
+     * content is transferred.
+     */
+    public List<FileMetadata> getAllDocumentsWithoutContent(String collectionName) throws InterruptedException, ExecutionException {
+        if (fileCatalog.serves(collectionName)) {
+            return fileCatalog.listAll();
+        }
         Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection(collectionName);
-        
-        // Get total count first
-        ApiFuture<QuerySnapshot> countQuery = collection.get();
-        long totalElements = countQuery.get().size();
-        
-        // Calculate offset
-        int offset = (page - 1) * size;
-        
-        // Get paginated documents
-        Query query = collection.orderBy("fileName").limit(size).offset(offset);
-        ApiFuture<QuerySnapshot> querySnapshot = query.get();
+        ApiFuture<QuerySnapshot> querySnapshot = db.collection(collectionName).select(FileMetadata.FIELDS).get();
 
-        List<Map<String, Object>> documents = new ArrayList<>();
+        List<FileMetadata> documents = new ArrayList<>();
         for (DocumentSnapshot document : querySnapshot.get().getDocuments()) {
-            Map<String, Object> documentData = document.getData();
-            if (documentData != null) {
-                // Create a new map without the "content" field
-                Map<String, Object> documentWithoutContent = new HashMap<>(documentData);
-                documentWithoutContent.remove("content");
-                // Add the document ID to the data
-                documentWithoutContent.put("documentId", document.getId());
-                documents.add(documentWithoutContent);
-            }
+            documents.add(FileMetadata.from(document));
         }
 
-        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, totalElements);
-        return new PaginatedResponse(documents, paginationMeta);
+        return documents;
     }
 
     public PaginatedResponse getAllDocumentsFromCollectionPaginated(String collectionName, int page, int size) throws InterruptedException, ExecutionException {
+        return getAllDocumentsFromCollectionPaginatedAsync(collectionName, page, size).get();
+    }
+
+    /**
+     * Non-blocking {@link #getAllDocumentsFromCollectionPaginated}.
+     */
+    public CompletableFuture<PaginatedResponse> getAllDocumentsFromCollectionPaginatedAsync(String collectionName, int page, int size) {
+        if (fileCatalog.serves(collectionName)) {
+            return CompletableFuture.completedFuture(fileCatalog.list(page, size, null, false));
+        }
+        return getOffsetPageAsync(collectionName, page, size);
+    }
+
+    // Metadata only, the same shape the file catalog serves
+    private CompletableFuture<PaginatedResponse> getOffsetPageAsync(String collectionName, int page, int size) {
         Firestore db = FirestoreClient.getFirestore();
         CollectionReference collection = db.collection(collectionName);
-        
-        // Get total count first
-        ApiFuture<QuerySnapshot> countQuery = collection.get();
-        long totalElements = countQuery.get().size();
-        
+
+        // Count server-side; only documents with a fileName can appear in the fileName ordering
+        CompletableFuture<CollectionCounts.Count> total = countListableAsync(collectionName);
+
         // Calculate offset
         int offset = (page - 1) * size;
-        
-        // Get paginated documents
-        Query query = collection.orderBy("fileName").limit(size).offset(offset);
-        ApiFuture<QuerySnapshot> querySnapshot = query.get();
 
+        // Get paginated documents; documentId breaks fileName ties so pageTokens stay consistent,
+        // and only the metadata fields are read so the content never leaves Firestore
+        Query query = collection.orderBy("fileName").orderBy(FieldPath.documentId()).select(FileMetadata.FIELDS).limit(size).offset(offset);
+        CompletableFuture<List<QueryDocumentSnapshot>> pageDocuments = FirestoreFutures.toCompletable(query.get()).thenApply(QuerySnapshot::getDocuments);
+
+        return pageDocuments.thenCombine(total, (documents, count) -> {
+            PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, count.value());
+            paginationMeta.setTotalApproximate(count.approximate());
+            return new PaginatedResponse(toMetadata(documents), paginationMeta, nextPageToken(documents, paginationMeta.isHasNext()));
+        });
+    }
+
+    /**
+     * Keyset variant of {@link #getAllDocumentsFromCollectionPaginated}: reads only the requested
+     * page, however deep, by starting after the pageToken's (fileName, documentId).
+     * @param pageToken nextPageToken of the previous page, or null for the first page
+     */
+    public PaginatedResponse getDocumentsWithoutContentPage(String collectionName, String pageToken, int size) throws InterruptedException, ExecutionException {
+        return getDocumentsWithoutContentPageAsync(collectionName, pageToken, size).get();
+    }
+
+    /**
+     * Non-blocking {@link #getDocumentsWithoutContentPage}. An invalid pageToken is thrown
+     * directly rather than through the future.
+     */
+    public CompletableFuture<PaginatedResponse> getDocumentsWithoutContentPageAsync(String collectionName, String pageToken, int size) {
+        return getKeysetPageAsync(collectionName, pageToken, size);
+    }
+
+    /**
+     * Keyset variant of {@link #getAllDocumentsFromCollectionPaginated}.
+     * @param pageToken nextPageToken of the previous page, or null for the first page
+     */
+    public PaginatedResponse getAllDocumentsFromCollectionPage(String collectionName, String pageToken, int size) throws InterruptedException, ExecutionException {
+        return getAllDocumentsFromCollectionPageAsync(collectionName, pageToken, size).get();
+    }
+
+    public CompletableFuture<PaginatedResponse> getAllDocumentsFromCollectionPageAsync(String collectionName, String pageToken, int size) {
+        if (fileCatalog.serves(collectionName)) {
+            return CompletableFuture.completedFuture(fileCatalog.listAfter(pageToken, size, null, false));
+        }
+        return getKeysetPageAsync(collectionName, pageToken, size);
+    }
+
+    private CompletableFuture<PaginatedResponse> getKeysetPageAsync(String collectionName, String pageToken, int size) {
+        // One extra document tells us whether there is a next page
+        Query query = keysetQuery(collectionName, pageToken, size + 1).select(FileMetadata.FIELDS);
+        CompletableFuture<CollectionCounts.Count> total = countListableAsync(collectionName);
+        CompletableFuture<List<QueryDocumentSnapshot>> pageDocuments = FirestoreFutures.toCompletable(query.get()).thenApply(QuerySnapshot::getDocuments);
+
+        return pageDocuments.thenCombine(total, (documents, count) -> {
+            boolean hasNext = documents.size() > size;
+            if (hasNext) {
+                documents = documents.subList(0, size);
+            }
+            PaginatedResponse.PaginationMeta paginationMeta = PaginatedResponse.PaginationMeta.forCursor(size, hasNext, pageToken != null);
+            paginationMeta.setTotalElements(count.value());
+            paginationMeta.setTotalApproximate(count.approximate());
+            return new PaginatedResponse(toMetadata(documents), paginationMeta, nextPageToken(documents, hasNext));
+        });
+    }
+
+    private List<Map<String, Object>> toDocumentMaps(List<QueryDocumentSnapshot> pageDocuments) {
         List<Map<String, Object>> documents = new ArrayList<>();
-        for (DocumentSnapshot document : querySnapshot.get().getDocuments()) {
+        for (DocumentSnapshot document : pageDocuments) {
             Map<String, Object> documentData = document.getData();
             if (documentData != null) {
                 // Add the document ID to the data
@@ -130,86 +261,117 @@ public class MyFirestoreService {
                 documents.add(documentData);
             }
         }
+        return documents;
+    }
 
-        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, totalElements);
-        return new PaginatedResponse(documents, paginationMeta);
+    private CompletableFuture<CollectionCounts.Count> countListableAsync(String collectionName) {
+        Firestore db = FirestoreClient.getFirestore();
+        return collectionCounts.countAsync(collectionName, "fileName", db.collection(collectionName).orderBy("fileName"));
     }
 
-    public PaginatedResponse searchDocumentsWithoutContent(String collectionName, String searchQuery, int page, int size) throws InterruptedException, ExecutionException {
+    private Query keysetQuery(String collectionName, String pageToken, int limit) {
         Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection(collectionName);
-        
-        // Get all documents first (since Firestore doesn't support full-text search natively)
-        ApiFuture<QuerySnapshot> querySnapshot = collection.get();
-        List<QueryDocumentSnapshot> allDocuments = querySnapshot.get().getDocuments();
-        
-        // Filter documents based on search query
-        List<Map<String, Object>> filteredDocuments = new ArrayList<>();
-        String lowerSearchQuery = searchQuery.toLowerCase();
-        
-        for (DocumentSnapshot document : allDocuments) {
-            Map<String, Object> documentData = document.getData();
-            if (documentData != null && matchesSearch(documentData, lowerSearchQuery)) {
-                // Create a new map without the "content" field
-                Map<String, Object> documentWithoutContent = new HashMap<>(documentData);
-                documentWithoutContent.remove("content");
-                // Add the document ID to the data
-                documentWithoutContent.put("documentId", document.getId());
-                filteredDocuments.add(documentWithoutContent);
-            }
+        Query query = db.collection(collectionName)
+                .orderBy("fileName")
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (pageToken != null) {
+            PageToken cursor = PageToken.decode(pageToken);
+            query = query.startAfter(cursor.fileName(), cursor.documentId());
         }
-        
-        // Calculate pagination
-        long totalElements = filteredDocuments.size();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        int startIndex = (page - 1) * size;
-        int endIndex = Math.min(startIndex + size, filteredDocuments.size());
-        
-        // Get paginated subset
-        List<Map<String, Object>> paginatedDocuments = new ArrayList<>();
-        if (startIndex < filteredDocuments.size()) {
-            paginatedDocuments = filteredDocuments.subList(startIndex, endIndex);
+        return query;
+    }
+
+    private String nextPageToken(List<? extends DocumentSnapshot> pageDocuments, boolean hasNext) {
+        if (!hasNext || pageDocuments.isEmpty()) {
+            return null;
         }
-        
-        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, totalElements);
-        return new PaginatedResponse(paginatedDocuments, paginationMeta);
+        DocumentSnapshot last = pageDocuments.get(pageDocuments.size() - 1);
+        return new PageToken(String.valueOf(last.get("fileName")), last.getId()).encode();
     }
 
-    public PaginatedResponse searchAllDocumentsFromCollection(String collectionName, String searchQuery, int page, int size) throws InterruptedException, ExecutionException {
-        Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection(collectionName);
-        
-        // Get all documents first (since Firestore doesn't support full-text search natively)
-        ApiFuture<QuerySnapshot> querySnapshot = collection.get();
-        List<QueryDocumentSnapshot> allDocuments = querySnapshot.get().getDocuments();
-        
-        // Filter documents based on search query
-        List<Map<String, Object>> filteredDocuments = new ArrayList<>();
-        String lowerSearchQuery = searchQuery.toLowerCase();
-        
-        for (DocumentSnapshot document : allDocuments) {
-            Map<String, Object> documentData = document.getData();
-            if (documentData != null && matchesSearch(documentData, lowerSearchQuery)) {
-                // Add the document ID to the data
-                documentData.put("documentId", document.getId());
-                filteredDocuments.add(documentData);
-            }
+    /**
+     * Client logs, newest first, by page number.
+     */
+    public CompletableFuture<PaginatedResponse> getLogsPaginatedAsync(String collectionName, int page, int size) {
+        int offset = (page - 1) * size;
+        Query query = logsInListingOrder(collectionName).offset(offset).limit(size);
+        CompletableFuture<CollectionCounts.Count> total = countLogsAsync(collectionName);
+        CompletableFuture<List<QueryDocumentSnapshot>> pageDocuments = FirestoreFutures.toCompletable(query.get()).thenApply(QuerySnapshot::getDocuments);
+
+        return pageDocuments.thenCombine(total, (documents, count) -> {
+            PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, count.value());
+            paginationMeta.setTotalApproximate(count.approximate());
+            return new PaginatedResponse(toDocumentMaps(documents), paginationMeta, nextLogPageToken(documents, paginationMeta.isHasNext()));
+        });
+    }
+
+    /**
+     * Keyset variant of {@link #getLogsPaginatedAsync}: starts after the pageToken's
+     * (timestamp, documentId). An invalid pageToken is thrown directly rather than through the future.
+     * @param pageToken nextPageToken of the previous page, or null for the first page
+     */
+    public CompletableFuture<PaginatedResponse> getLogsPageAsync(String collectionName, String pageToken, int size) {
+        // One extra document tells us whether there is a next page
+        Query query = logsInListingOrder(collectionName).limit(size + 1);
+        if (pageToken != null) {
+            LogPageToken cursor = LogPageToken.decode(pageToken);
+            query = query.startAfter(cursor.timestamp(), cursor.documentId());
         }
-        
-        // Calculate pagination
-        long totalElements = filteredDocuments.size();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        int startIndex = (page - 1) * size;
-        int endIndex = Math.min(startIndex + size, filteredDocuments.size());
-        
-        // Get paginated subset
-        List<Map<String, Object>> paginatedDocuments = new ArrayList<>();
-        if (startIndex < filteredDocuments.size()) {
-            paginatedDocuments = filteredDocuments.subList(startIndex, endIndex);
+        CompletableFuture<CollectionCounts.Count> total = countLogsAsync(collectionName);
+        CompletableFuture<List<QueryDocumentSnapshot>> pageDocuments = FirestoreFutures.toCompletable(query.get()).thenApply(QuerySnapshot::getDocuments);
+
+        return pageDocuments.thenCombine(total, (documents, count) -> {
+            boolean hasNext = documents.size() > size;
+            if (hasNext) {
+                documents = documents.subList(0, size);
+            }
+            PaginatedResponse.PaginationMeta paginationMeta = PaginatedResponse.PaginationMeta.forCursor(size, hasNext, pageToken != null);
+            paginationMeta.setTotalElements(count.value());
+            paginationMeta.setTotalApproximate(count.approximate());
+            return new PaginatedResponse(toDocumentMaps(documents), paginationMeta, nextLogPageToken(documents, hasNext));
+        });
+    }
+
+    // Timestamps are stored as ISO-8601 strings, which sort chronologically; the ID breaks ties
+    private Query logsInListingOrder(String collectionName) {
+        Firestore db = FirestoreClient.getFirestore();
+        return db.collection(collectionName)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+    }
+
+    // Only logs with a timestamp can appear in the timestamp ordering
+    private CompletableFuture<CollectionCounts.Count> countLogsAsync(String collectionName) {
+        Firestore db = FirestoreClient.getFirestore();
+        return collectionCounts.countAsync(collectionName, "timestamp", db.collection(collectionName).orderBy("timestamp"));
+    }
+
+    private String nextLogPageToken(List<? extends DocumentSnapshot> pageDocuments, boolean hasNext) {
+        if (!hasNext || pageDocuments.isEmpty()) {
+            return null;
         }
-        
-        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, totalElements);
-        return new PaginatedResponse(paginatedDocuments, paginationMeta);
+        DocumentSnapshot last = pageDocuments.get(pageDocuments.size() - 1);
+        return new LogPageToken(String.valueOf(last.get("timestamp")), last.getId()).encode();
+    }
+
+    public PaginatedResponse searchDocumentsWithoutContent(String collectionName, String searchQuery, int page, int size) throws InterruptedException, ExecutionException {
+        return searchFilesAsync(collectionName, searchQuery, page, size, null, false).get();
+    }
+
+    /**
+     * Same as {@link #searchDocumentsWithoutContent}: Firestore is scanned with a field mask, since
+     * matching only reads the metadata and the content.
+     */
+    public PaginatedResponse searchAllDocumentsFromCollection(String collectionName, String searchQuery, int page, int size) throws InterruptedException, ExecutionException {
+        return searchAllDocumentsFromCollectionAsync(collectionName, searchQuery, page, size).get();
+    }
+
+    /**
+     * Non-blocking {@link #searchAllDocumentsFromCollection}.
+     */
+    public CompletableFuture<PaginatedResponse> searchAllDocumentsFromCollectionAsync(String collectionName, String searchQuery, int page, int size) {
+        return searchFilesAsync(collectionName, searchQuery, page, size, null, false);
     }
 
     private boolean matchesSearch(Map<String, Object> documentData, String searchQuery) {
@@ -270,134 +432,481 @@ public class MyFirestoreService {
     }
 
     public Map<String, Object> getDocumentById(String collectionName, String documentId) throws InterruptedException, ExecutionException {
+        return getDocumentByIdAsync(collectionName, documentId).get();
+    }
+
+    /**
+     * Non-blocking {@link #getDocumentById}; completes with null if the document doesn't exist.
+     */
+    public CompletableFuture<Map<String, Object>> getDocumentByIdAsync(String collectionName, String documentId) {
         Firestore db = FirestoreClient.getFirestore();
         DocumentReference docRef = db.collection(collectionName).document(documentId);
-        ApiFuture<DocumentSnapshot> documentSnapshot = docRef.get();
-        
-        DocumentSnapshot document = documentSnapshot.get();
+
+        return FirestoreFutures.toCompletable(docRef.get()).thenCompose(document -> {
+            if (!document.exists()) {
+                return CompletableFuture.completedFuture(null); // Document doesn't exist
+            }
+            Map<String, Object> documentData = document.getData();
+            if (documentData == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            // Add the document ID to the data
+            documentData.put("documentId", document.getId());
+            // Reassemble chunked content so existing clients still get the whole text
+            if (FileContentStore.isChunked(documentData)) {
+                int chunkCount = document.getLong(FileContentStore.CHUNK_COUNT_FIELD).intValue();
+                return fileContentStore.readAllAsync(db, docRef, chunkCount).thenApply(content -> {
+                    documentData.put("content", content);
+                    return documentData;
+                });
+            }
+            return CompletableFuture.completedFuture(documentData);
+        });
+    }
+
+    /**
+     * Reads a range of a file's content chunks without the rest of the file. A file still in the
+     * single-field layout is one chunk.
+     * @return the chunks and paging information, or null if the document doesn't exist
+     */
+    public Map<String, Object> getContentChunks(String collectionName, String documentId, int fromChunk, int chunkCount) throws InterruptedException, ExecutionException {
+        Firestore db = FirestoreClient.getFirestore();
+        DocumentReference docRef = db.collection(collectionName).document(documentId);
+        DocumentSnapshot layout = docRef.get(FieldMask.of(FileContentStore.LAYOUT_FIELD, FileContentStore.CHUNK_COUNT_FIELD, FileContentStore.LENGTH_FIELD)).get();
+        if (!layout.exists()) {
+            return null;
+        }
+
+        List<String> chunks;
+        int totalChunks;
+        if (FileContentStore.isChunked(layout.getData())) {
+            totalChunks = layout.getLong(FileContentStore.CHUNK_COUNT_FIELD).intValue();
+            int count = Math.max(0, Math.min(chunkCount, totalChunks - fromChunk));
+            chunks = fileContentStore.read(db, docRef, fromChunk, count);
+        } else {
+            String content = docRef.get(FieldMask.of("content")).get().getString("content");
+            totalChunks = content != null ? 1 : 0;
+            chunks = fromChunk == 0 && content != null ? List.of(content) : List.of();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("documentId", documentId);
+        response.put("fromChunk", fromChunk);
+        response.put("totalChunks", totalChunks);
+        response.put("chunks", chunks);
+        response.put("hasMore", fromChunk + chunks.size() < totalChunks);
+        return response;
+    }
+
+    public Map<String, Object> findTranslationByOriginalText(String originalText) throws InterruptedException, ExecutionException {
+        Firestore db = FirestoreClient.getFirestore();
+        CollectionReference collection = db.collection(TRANSLATIONS_COLLECTION);
+
+        // Translations are stored under a hash of the normalized text, so this is a point read
+        String documentId = TranslationKeys.documentId(originalText);
+        DocumentSnapshot document = collection.document(documentId).get().get();
         if (document.exists()) {
             Map<String, Object> documentData = document.getData();
             if (documentData != null) {
-                // Add the document ID to the data
                 documentData.put("documentId", document.getId());
             }
             return documentData;
-        } else {
-            return null; // Document doesn't exist
         }
+
+        if (!translationKeyMigration.legacyFallbackActive()) {
+            return null; // No translation found
+        }
+        return readRepair(documentId, legacyQuery(collection, originalText).get());
     }
 
-    public Map<String, Object> findTranslationByOriginalText(String originalText) throws InterruptedException, ExecutionException {
+    /**
+     * The pre-migration lookup: documents whose originalText equals the text.
+     */
+    private ApiFuture<QuerySnapshot> legacyQuery(CollectionReference collection, String originalText) {
+        return collection.whereEqualTo("originalText", originalText).limit(1).get();
+    }
+
+    /**
+     * Queues a copy of a legacy hit to its keyed document, so the next lookup for the text is a
+     * point read; the write-behind retries and logs the write like any new translation.
+     * @return the translation under its keyed document ID, or null if the query found none
+     */
+    private Map<String, Object> readRepair(String documentId, QuerySnapshot legacyDocuments) throws InterruptedException {
+        if (legacyDocuments.isEmpty()) {
+            return null; // No translation found
+        }
+        Map<String, Object> documentData = legacyDocuments.getDocuments().get(0).getData();
+        documentData.put("documentId", documentId);
+        translationWriteBehind.enqueue(CachedTranslation.fromDocument(documentData));
+        return documentData;
+    }
+
+    /**
+     * Looks up many translations with one multi-document read.
+     * @param textsByKey source text keyed by its content-addressed document ID
+     * @return the stored documents keyed by document ID; keys without a translation are absent
+     */
+    public Map<String, Map<String, Object>> findTranslationsByKeys(Map<String, String> textsByKey) throws InterruptedException, ExecutionException {
+        Map<String, Map<String, Object>> translations = new HashMap<>();
+        if (textsByKey.isEmpty()) {
+            return translations;
+        }
         Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection("Translations");
-        
-        // Query for documents where originalText equals the provided text
-        Query query = collection.whereEqualTo("originalText", originalText);
-        ApiFuture<QuerySnapshot> querySnapshot = query.get();
-        
-        List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
-        
-        if (!documents.isEmpty()) {
-            // Return the first matching document (assuming unique translations)
-            Map<String, Object> documentData = documents.get(0).getData();
+        CollectionReference collection = db.collection(TRANSLATIONS_COLLECTION);
+
+        DocumentReference[] references = textsByKey.keySet().stream()
+                .map(collection::document)
+                .toArray(DocumentReference[]::new);
+        for (DocumentSnapshot document : db.getAll(references).get()) {
+            Map<String, Object> documentData = document.exists() ? document.getData() : null;
             if (documentData != null) {
-                documentData.put("documentId", documents.get(0).getId());
+                documentData.put("documentId", document.getId());
+                translations.put(document.getId(), documentData);
             }
-            return documentData;
         }
-        
-        return null; // No translation found
+
+        if (translationKeyMigration.legacyFallbackActive()) {
+            // Issue every legacy query before waiting on any of them
+            Map<String, ApiFuture<QuerySnapshot>> legacyQueries = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : textsByKey.entrySet()) {
+                if (!translations.containsKey(entry.getKey())) {
+                    legacyQueries.put(entry.getKey(), legacyQuery(collection, entry.getValue()));
+                }
+            }
+            for (Map.Entry<String, ApiFuture<QuerySnapshot>> query : legacyQueries.entrySet()) {
+                Map<String, Object> legacy = readRepair(query.getKey(), query.getValue().get());
+                if (legacy != null) {
+                    translations.put(query.getKey(), legacy);
+                }
+            }
+        }
+        return translations;
     }
 
-    public PaginatedResponse getDocumentsWithPrivacyFilter(String collectionName, int page, int size, String currentUserUid) throws InterruptedException, ExecutionException {
+    /**
+     * Stores translations under their content-addressed document IDs, in write batches of at most
+     * {@link TranslationWriteBehind#MAX_BATCH_SIZE}. Repeated writes of the same text are idempotent.
+     */
+    public void saveTranslations(List<CachedTranslation> translations) throws InterruptedException, ExecutionException {
+        if (translations.isEmpty()) {
+            return;
+        }
         Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection(collectionName);
-        
-        // Get all documents first
-        ApiFuture<QuerySnapshot> querySnapshot = collection.get();
-        List<QueryDocumentSnapshot> allDocuments = querySnapshot.get().getDocuments();
-        
-        // Filter documents based on privacy settings
-        List<Map<String, Object>> filteredDocuments = new ArrayList<>();
-        for (DocumentSnapshot document : allDocuments) {
-            Map<String, Object> documentData = document.getData();
-            if (documentData != null && isDocumentAccessible(documentData, currentUserUid)) {
-                // Create a new map without the "content" field
-                Map<String, Object> documentWithoutContent = new HashMap<>(documentData);
-                documentWithoutContent.remove("content");
-                // Add the document ID to the data
-                documentWithoutContent.put("documentId", document.getId());
-                filteredDocuments.add(documentWithoutContent);
+        CollectionReference collection = db.collection(TRANSLATIONS_COLLECTION);
+
+        List<ApiFuture<List<WriteResult>>> commits = new ArrayList<>();
+        for (int start = 0; start < translations.size(); start += TranslationWriteBehind.MAX_BATCH_SIZE) {
+            WriteBatch batch = db.batch();
+            for (CachedTranslation translation : translations.subList(start, Math.min(start + TranslationWriteBehind.MAX_BATCH_SIZE, translations.size()))) {
+                batch.set(collection.document(translation.documentId()),
+                        translationData(translation.originalText(), translation.translatedText()));
             }
+            commits.add(batch.commit());
         }
-        
-        // Calculate pagination
-        long totalElements = filteredDocuments.size();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        int startIndex = (page - 1) * size;
-        int endIndex = Math.min(startIndex + size, filteredDocuments.size());
-        
-        // Get paginated subset
-        List<Map<String, Object>> paginatedDocuments = new ArrayList<>();
-        if (startIndex < filteredDocuments.size()) {
-            paginatedDocuments = filteredDocuments.subList(startIndex, endIndex);
+        ApiFutures.allAsList(commits).get();
+    }
+
+    /**
+     * Streams every stored translation to the consumer, a page at a time, reading only the text fields.
+     */
+    public void forEachTranslation(Consumer<CachedTranslation> consumer) throws InterruptedException, ExecutionException {
+        Firestore db = FirestoreClient.getFirestore();
+        forEachTranslation(db.collection(TRANSLATIONS_COLLECTION)
+                .select("originalText", "translatedText")
+                .orderBy(FieldPath.documentId()), consumer);
+    }
+
+    /**
+     * Streams the translations stored at or after the timestamp (epoch millis) to the consumer, a
+     * page at a time.
+     */
+    public void forEachTranslationSince(long timestamp, Consumer<CachedTranslation> consumer) throws InterruptedException, ExecutionException {
+        Firestore db = FirestoreClient.getFirestore();
+        // The cursor is taken from the last document read, so the projection includes the ordering field
+        forEachTranslation(db.collection(TRANSLATIONS_COLLECTION)
+                .whereGreaterThanOrEqualTo("timestamp", timestamp)
+                .select("originalText", "translatedText", "timestamp")
+                .orderBy("timestamp")
+                .orderBy(FieldPath.documentId()), consumer);
+    }
+
+    private void forEachTranslation(Query ordered, Consumer<CachedTranslation> consumer) throws InterruptedException, ExecutionException {
+        DocumentSnapshot cursor = null;
+
+        while (true) {
+            Query query = ordered.limit(TRANSLATION_SCAN_PAGE_SIZE);
+            if (cursor != null) {
+                query = query.startAfter(cursor);
+            }
+            List<QueryDocumentSnapshot> page = query.get().get().getDocuments();
+            for (QueryDocumentSnapshot document : page) {
+                String originalText = document.getString("originalText");
+                String translatedText = document.getString("translatedText");
+                if (originalText != null && translatedText != null) {
+                    consumer.accept(new CachedTranslation(document.getId(), originalText, translatedText));
+                }
+            }
+            if (page.size() < TRANSLATION_SCAN_PAGE_SIZE) {
+                return;
+            }
+            cursor = page.get(page.size() - 1);
         }
-        
-        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, totalElements);
-        return new PaginatedResponse(paginatedDocuments, paginationMeta);
     }
 
-    public PaginatedResponse searchDocumentsWithPrivacyFilter(String collectionName, String searchQuery, int page, int size, String currentUserUid) throws InterruptedException, ExecutionException {
+    /**
+     * Reads one page of a single text field from a collection, in document ID order.
+     * @param afterDocumentId resume after this document, or null to start at the beginning
+     * @return document ID to field value, null where the field is missing, blank or not a string
+     */
+    public LinkedHashMap<String, String> getFieldValuesPage(String collectionName, String field, String afterDocumentId, int limit) throws InterruptedException, ExecutionException {
         Firestore db = FirestoreClient.getFirestore();
-        CollectionReference collection = db.collection(collectionName);
-        
-        // Get all documents first
-        ApiFuture<QuerySnapshot> querySnapshot = collection.get();
-        List<QueryDocumentSnapshot> allDocuments = querySnapshot.get().getDocuments();
-        
-        // Filter documents based on search query and privacy settings
-        List<Map<String, Object>> filteredDocuments = new ArrayList<>();
+        Query query = db.collection(collectionName).select(field)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (afterDocumentId != null) {
+            query = query.startAfter(afterDocumentId);
+        }
+
+        LinkedHashMap<String, String> values = new LinkedHashMap<>();
+        for (QueryDocumentSnapshot document : query.get().get().getDocuments()) {
+            Object value = document.get(field);
+            values.put(document.getId(), value instanceof String text && !text.isBlank() ? text : null);
+        }
+        return values;
+    }
+
+    public long countDocuments(String collectionName) throws InterruptedException, ExecutionException {
+        Firestore db = FirestoreClient.getFirestore();
+        return db.collection(collectionName).count().get().get().getCount();
+    }
+
+    private Map<String, Object> translationData(String originalText, String translatedText) {
+        Map<String, Object> translationData = new HashMap<>();
+        translationData.put("originalText", originalText);
+        translationData.put("translatedText", translatedText);
+        translationData.put("timestamp", System.currentTimeMillis());
+        return translationData;
+    }
+
+    /**
+     * Offset page of the files the user may see. The visibility rule runs in the query, so only
+     * visible files are read, in the same (fileName, documentId) order as the other listings.
+     */
+    public PaginatedResponse getDocumentsWithPrivacyFilter(String collectionName, int page, int size, String currentUserUid) throws InterruptedException, ExecutionException {
+        return getDocumentsWithPrivacyFilterAsync(collectionName, page, size, currentUserUid).get();
+    }
+
+    /**
+     * Non-blocking {@link #getDocumentsWithPrivacyFilter}; the count and the page query run
+     * concurrently.
+     */
+    public CompletableFuture<PaginatedResponse> getDocumentsWithPrivacyFilterAsync(String collectionName, int page, int size, String currentUserUid) {
+        if (fileCatalog.serves(collectionName)) {
+            return CompletableFuture.completedFuture(fileCatalog.list(page, size, currentUserUid, true));
+        }
+        Query visible = inListingOrder(visibleFiles(collectionName, currentUserUid));
+        CompletableFuture<CollectionCounts.Count> total = collectionCounts.countAsync(collectionName, visibilityFilter(currentUserUid), visible);
+
+        int offset = (page - 1) * size;
+        Query query = visible.select(FileMetadata.FIELDS).offset(offset).limit(size);
+        CompletableFuture<List<QueryDocumentSnapshot>> pageDocuments = FirestoreFutures.toCompletable(query.get()).thenApply(QuerySnapshot::getDocuments);
+
+        return pageDocuments.thenCombine(total, (documents, count) -> {
+            PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, count.value());
+            paginationMeta.setTotalApproximate(count.approximate());
+            return new PaginatedResponse(toMetadata(documents), paginationMeta, nextPageToken(documents, paginationMeta.isHasNext()));
+        });
+    }
+
+    /**
+     * Keyset variant of {@link #getDocumentsWithPrivacyFilter}: starts after the pageToken's
+     * (fileName, documentId) and reads one page of visible files.
+     * @param pageToken nextPageToken of the previous page, or null for the first page
+     */
+    public PaginatedResponse getDocumentsWithPrivacyFilterPage(String collectionName, String pageToken, int size, String currentUserUid) throws InterruptedException, ExecutionException {
+        return getDocumentsWithPrivacyFilterPageAsync(collectionName, pageToken, size, currentUserUid).get();
+    }
+
+    /**
+     * Non-blocking {@link #getDocumentsWithPrivacyFilterPage}. An invalid pageToken is thrown
+     * directly rather than through the future.
+     */
+    public CompletableFuture<PaginatedResponse> getDocumentsWithPrivacyFilterPageAsync(String collectionName, String pageToken, int size, String currentUserUid) {
+        if (fileCatalog.serves(collectionName)) {
+            return CompletableFuture.completedFuture(fileCatalog.listAfter(pageToken, size, currentUserUid, true));
+        }
+        Query visible = inListingOrder(visibleFiles(collectionName, currentUserUid));
+        // One extra document tells us whether there is a next page
+        Query query = visible.select(FileMetadata.FIELDS).limit(size + 1);
+        if (pageToken != null) {
+            PageToken cursor = PageToken.decode(pageToken);
+            query = query.startAfter(cursor.fileName(), cursor.documentId());
+        }
+        CompletableFuture<CollectionCounts.Count> total = collectionCounts.countAsync(collectionName, visibilityFilter(currentUserUid), visible);
+        CompletableFuture<List<QueryDocumentSnapshot>> pageDocuments = FirestoreFutures.toCompletable(query.get()).thenApply(QuerySnapshot::getDocuments);
+
+        return pageDocuments.thenCombine(total, (documents, count) -> {
+            boolean hasNext = documents.size() > size;
+            if (hasNext) {
+                documents = documents.subList(0, size);
+            }
+            PaginatedResponse.PaginationMeta paginationMeta = PaginatedResponse.PaginationMeta.forCursor(size, hasNext, pageToken != null);
+            paginationMeta.setTotalElements(count.value());
+            paginationMeta.setTotalApproximate(count.approximate());
+            return new PaginatedResponse(toMetadata(documents), paginationMeta, nextPageToken(documents, hasNext));
+        });
+    }
+
+    private static List<FileMetadata> toMetadata(List<QueryDocumentSnapshot> pageDocuments) {
+        List<FileMetadata> documents = new ArrayList<>();
+        for (QueryDocumentSnapshot document : pageDocuments) {
+            documents.add(FileMetadata.from(document));
+        }
+        return documents;
+    }
+
+    /**
+     * Files the user may see, as a query: isPublic == true for anonymous users, OR'd with
+     * uploaderUid == currentUserUid for signed-in users. Same rule as
+     * {@link FileMetadata#isAccessibleTo}.
+     */
+    static Query visibleFiles(CollectionReference collection, String currentUserUid) {
+        if (currentUserUid == null || currentUserUid.isEmpty()) {
+            return collection.whereEqualTo("isPublic", true);
+        }
+        return collection.where(Filter.or(
+                Filter.equalTo("isPublic", true),
+                Filter.equalTo("uploaderUid", currentUserUid)));
+    }
+
+    private Query visibleFiles(String collectionName, String currentUserUid) {
+        return visibleFiles(FirestoreClient.getFirestore().collection(collectionName), currentUserUid);
+    }
+
+    /**
+     * Each OR branch ordered this way needs its composite index; see firestore.indexes.json.
+     */
+    static Query inListingOrder(Query query) {
+        return query.orderBy("fileName").orderBy(FieldPath.documentId());
+    }
+
+    // Count cache key for the visibility filter: per user, since signed-in users also see their own files
+    private static String visibilityFilter(String currentUserUid) {
+        return currentUserUid == null || currentUserUid.isEmpty()
+                ? "fileName,isPublic"
+                : "fileName,isPublic|uploaderUid=" + currentUserUid;
+    }
+
+    public PaginatedResponse searchDocumentsWithPrivacyFilter(String collectionName, String searchQuery, int page, int size, String currentUserUid) throws InterruptedException, ExecutionException {
+        return searchDocumentsWithPrivacyFilterAsync(collectionName, searchQuery, page, size, currentUserUid).get();
+    }
+
+    /**
+     * Non-blocking {@link #searchDocumentsWithPrivacyFilter}.
+     */
+    public CompletableFuture<PaginatedResponse> searchDocumentsWithPrivacyFilterAsync(String collectionName, String searchQuery, int page, int size, String currentUserUid) {
+        return searchFilesAsync(collectionName, searchQuery, page, size, currentUserUid, true);
+    }
+
+    /**
+     * Answers from the search index, the file catalog or Firestore, whichever is serving. The
+     * ordered matching IDs are cached, so later pages of the same search only resolve their own
+     * files.
+     */
+    private CompletableFuture<PaginatedResponse> searchFilesAsync(String collectionName, String searchQuery, int page, int size, String currentUserUid, boolean privacyFilter) {
+        SearchResultCache.Source source = searchIndex.serves(collectionName) ? SearchResultCache.Source.INDEX
+                : fileCatalog.servesSearch(collectionName) ? SearchResultCache.Source.CATALOG
+                : SearchResultCache.Source.FIRESTORE;
+        SearchResultCache.Key key = SearchResultCache.Key.of(collectionName, source, searchQuery, currentUserUid, privacyFilter);
+        List<String> cachedIds = searchResultCache.get(key);
+        if (cachedIds != null) {
+            return pageOfCachedIdsAsync(collectionName, cachedIds, page, size);
+        }
+
+        long generation = searchResultCache.generation(collectionName);
+        CompletableFuture<List<FileMetadata>> matches = switch (source) {
+            case INDEX -> CompletableFuture.completedFuture(searchIndex.matches(searchQuery, currentUserUid, privacyFilter));
+            case CATALOG -> CompletableFuture.completedFuture(fileCatalog.matches(searchQuery, currentUserUid, privacyFilter));
+            default -> searchFirestoreAsync(collectionName, searchQuery, currentUserUid, privacyFilter);
+        };
+        return matches.thenApply(files -> {
+            searchResultCache.put(key, generation, files.stream().map(FileMetadata::documentId).toList());
+            return pageOf(files, page, size);
+        });
+    }
+
+    /**
+     * Search still matches on content, so content is read, but matches are mapped straight to
+     * {@link FileMetadata} instead of being copied into maps with the content removed.
+     */
+    private CompletableFuture<List<FileMetadata>> searchFirestoreAsync(String collectionName, String searchQuery, String currentUserUid, boolean privacyFilter) {
+        String[] fields = Arrays.copyOf(FileMetadata.FIELDS, FileMetadata.FIELDS.length + 1);
+        fields[fields.length - 1] = "content";
+        // With the privacy filter, only files the user may see are read
+        Query source = privacyFilter
+                ? visibleFiles(collectionName, currentUserUid)
+                : FirestoreClient.getFirestore().collection(collectionName);
+
         String lowerSearchQuery = searchQuery.toLowerCase();
-        
-        for (DocumentSnapshot document : allDocuments) {
-            Map<String, Object> documentData = document.getData();
-            if (documentData != null && isDocumentAccessible(documentData, currentUserUid) && matchesSearch(documentData, lowerSearchQuery)) {
-                // Create a new map without the "content" field
-                Map<String, Object> documentWithoutContent = new HashMap<>(documentData);
-                documentWithoutContent.remove("content");
-                // Add the document ID to the data
-                documentWithoutContent.put("documentId", document.getId());
-                filteredDocuments.add(documentWithoutContent);
+        return FirestoreFutures.toCompletable(source.select(fields).get()).thenApply(querySnapshot -> {
+            // Filter documents based on search query
+            List<FileMetadata> filteredDocuments = new ArrayList<>();
+            for (QueryDocumentSnapshot document : querySnapshot.getDocuments()) {
+                Map<String, Object> documentData = document.getData();
+                if (matchesSearch(documentData, lowerSearchQuery)) {
+                    filteredDocuments.add(FileMetadata.fromData(document.getId(), documentData));
+                }
+            }
+            return filteredDocuments;
+        });
+    }
+
+    /**
+     * Page of a cached search result: only the page's files are read, from the catalog when it
+     * is serving, else with one multi-document read. Files deleted since are left out.
+     */
+    private CompletableFuture<PaginatedResponse> pageOfCachedIdsAsync(String collectionName, List<String> documentIds, int page, int size) {
+        int startIndex = (int) Math.min((long) (page - 1) * size, documentIds.size());
+        List<String> pageIds = documentIds.subList(startIndex, Math.min(startIndex + size, documentIds.size()));
+        PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, documentIds.size());
+
+        if (fileCatalog.serves(collectionName) || pageIds.isEmpty()) {
+            List<FileMetadata> documents = new ArrayList<>();
+            for (String documentId : pageIds) {
+                FileMetadata metadata = fileCatalog.get(documentId);
+                if (metadata != null) {
+                    documents.add(metadata);
+                }
             }
+            return CompletableFuture.completedFuture(new PaginatedResponse(documents, paginationMeta));
         }
-        
-        // Calculate pagination
-        long totalElements = filteredDocuments.size();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
+
+        Firestore db = FirestoreClient.getFirestore();
+        DocumentReference[] references = pageIds.stream()
+                .map(documentId -> db.collection(collectionName).document(documentId))
+                .toArray(DocumentReference[]::new);
+        return FirestoreFutures.toCompletable(db.getAll(references, FieldMask.of(FileMetadata.FIELDS))).thenApply(snapshots -> {
+            List<FileMetadata> documents = new ArrayList<>();
+            for (DocumentSnapshot document : snapshots) {
+                if (document.exists()) {
+                    documents.add(FileMetadata.from(document));
+                }
+            }
+            return new PaginatedResponse(documents, paginationMeta);
+        });
+    }
+
+    private PaginatedResponse pageOf(List<FileMetadata> documents, int page, int size) {
+        long totalElements = documents.size();
         int startIndex = (page - 1) * size;
-        int endIndex = Math.min(startIndex + size, filteredDocuments.size());
-        
-        // Get paginated subset
-        List<Map<String, Object>> paginatedDocuments = new ArrayList<>();
-        if (startIndex < filteredDocuments.size()) {
-            paginatedDocuments = filteredDocuments.subList(startIndex, endIndex);
+        int endIndex = Math.min(startIndex + size, documents.size());
+
+        List<FileMetadata> paginatedDocuments = new ArrayList<>();
+        if (startIndex < documents.size()) {
+            paginatedDocuments = documents.subList(startIndex, endIndex);
         }
-        
+
         PaginatedResponse.PaginationMeta paginationMeta = new PaginatedResponse.PaginationMeta(page, size, totalElements);
         return new PaginatedResponse(paginatedDocuments, paginationMeta);
     }
-
-    private boolean isDocumentAccessible(Map<String, Object> documentData, String currentUserUid) {
-        // If no user is logged in, only show public documents
-        if (currentUserUid == null || currentUserUid.isEmpty()) {
-            Boolean isPublic = (Boolean) documentData.get("isPublic");
-            return isPublic != null && isPublic;
-        }
-        
-        // If user is logged in, show public documents and their own private documents
-        Boolean isPublic = (Boolean) documentData.get("isPublic");
-        String uploaderUid = (String) documentData.get("uploaderUid");
-        
-        return (isPublic != null && isPublic) || currentUserUid.equals(uploaderUid);
-    }
 }
@@ -0,0 +1,34 @@
+package com.learnbalochi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the sort key (fileName, document ID) of the last
+ * document on a page. The next page starts after it instead of skipping an offset.
+ */
+public record PageToken(String fileName, String documentId) {
+    private static final String VERSION = "1";
+    private static final char SEPARATOR = '\u0000';
+
+    public String encode() {
+        String raw = VERSION + SEPARATOR + fileName + SEPARATOR + documentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws InvalidPageTokenException if the token was not produced by {@link #encode()}
+     */
+    public static PageToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEPARATOR), -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0]) || parts[2].isEmpty()) {
+                throw new InvalidPageTokenException("Invalid page token");
+            }
+            return new PageToken(parts[1], parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageTokenException("Invalid page token");
+        }
+    }
+}
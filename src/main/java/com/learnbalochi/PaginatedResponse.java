@@ -1,22 +1,29 @@
 package com.learnbalochi;
 
 import java.util.List;
-import java.util.Map;
 
 public class PaginatedResponse {
-    private List<Map<String, Object>> data;
+    private List<?> data;
     private PaginationMeta pagination;
+    // Cursor for the page after this one, null on the last page
+    private String nextPageToken;
 
-    public PaginatedResponse(List<Map<String, Object>> data, PaginationMeta pagination) {
+    public PaginatedResponse(List<?> data, PaginationMeta pagination) {
         this.data = data;
         this.pagination = pagination;
     }
 
-    public List<Map<String, Object>> getData() {
+    public PaginatedResponse(List<?> data, PaginationMeta pagination, String nextPageToken) {
+        this.data = data;
+        this.pagination = pagination;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<?> getData() {
         return data;
     }
 
-    public void setData(List<Map<String, Object>> data) {
+    public void setData(List<?> data) {
         this.data = data;
     }
 
@@ -28,6 +35,14 @@ public class PaginatedResponse {
         this.pagination = pagination;
     }
 
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
     public static class PaginationMeta {
         private int page;
         private int size;
@@ -35,6 +50,8 @@ public class PaginatedResponse {
         private int totalPages;
         private boolean hasNext;
         private boolean hasPrevious;
+        // The total came from a briefly cached count and may lag recent writes
+        private boolean totalApproximate;
 
         public PaginationMeta(int page, int size, long totalElements) {
             this.page = page;
@@ -45,6 +62,20 @@ public class PaginatedResponse {
             this.hasPrevious = page > 1;
         }
 
+        /**
+         * Metadata for a page fetched by pageToken: there is no page number, and the total is
+         * -1 unless set afterwards.
+         */
+        public static PaginationMeta forCursor(int size, boolean hasNext, boolean hasPrevious) {
+            PaginationMeta meta = new PaginationMeta(1, size, 0);
+            meta.page = 0;
+            meta.totalElements = -1;
+            meta.totalPages = -1;
+            meta.hasNext = hasNext;
+            meta.hasPrevious = hasPrevious;
+            return meta;
+        }
+
         public int getPage() {
             return page;
         }
@@ -92,5 +123,13 @@ public class PaginatedResponse {
         public void setHasPrevious(boolean hasPrevious) {
             this.hasPrevious = hasPrevious;
         }
+
+        public boolean isTotalApproximate() {
+            return totalApproximate;
+        }
+
+        public void setTotalApproximate(boolean totalApproximate) {
+            this.totalApproximate = totalApproximate;
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,582 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background jobs that pre-translate a corpus (an uploaded text file, one entry per line, or a
+ * text field of a Firestore collection) so users rarely wait on the model. Entries already in
+ * "Translations" are skipped, the rest go through the translator in batches at BACKFILL priority
+ * and a capped rate. Progress is checkpointed to Firestore after every batch, together with the
+ * uploaded file itself, so any instance can resume a job.
+ *
+ * Each queued or running job is owned by one instance through a lease on its document: the owner
+ * extends it with every checkpoint and on a timer, and a job whose lease has run out, because its
+ * owner stopped, is claimed in a transaction by the next instance that looks.
+ */
+@Component
+public class PreTranslationJobs {
+    private static final Logger logger = LoggerFactory.getLogger(PreTranslationJobs.class);
+    static final String JOBS_COLLECTION = "PreTranslationJobs";
+
+    public enum SourceType { FILE, COLLECTION }
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    /**
+     * Progress of one job. {@link #toDocument()} is the checkpoint a restart resumes from.
+     */
+    static final class Job {
+        final String id;
+        final SourceType sourceType;
+        final String source;      // collection name, for COLLECTION jobs
+        final String field;
+        final String name;
+        final long createdAt;
+
+        volatile Status status = Status.QUEUED;
+        volatile long total;
+        volatile long position;   // lines consumed, for FILE jobs
+        volatile String cursor;   // last document ID consumed, for COLLECTION jobs
+        volatile long processed;
+        volatile long skipped;
+        volatile long translated;
+        volatile long failed;
+        volatile String error;
+        volatile long updatedAt;
+        volatile int chunkCount;  // input chunks stored under the job document, for FILE jobs
+        volatile String owner;
+        volatile long leaseExpiresAt;
+        volatile boolean cancelRequested;
+        volatile boolean leaseLost;
+
+        // Progress at the start of the current run, for throughput
+        volatile long runStartedAt;
+        volatile long processedAtRunStart;
+        volatile long callsAtRunStart;
+
+        Job(String id, SourceType sourceType, String source, String field, String name, long createdAt) {
+            this.id = id;
+            this.sourceType = sourceType;
+            this.source = source;
+            this.field = field;
+            this.name = name;
+            this.createdAt = createdAt;
+        }
+
+        long modelCalls() {
+            return translated + failed;
+        }
+
+        boolean isActive() {
+            return status == Status.QUEUED || status == Status.RUNNING;
+        }
+
+        Map<String, Object> toDocument() {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("sourceType", sourceType.name());
+            document.put("source", source);
+            document.put("field", field);
+            document.put("name", name);
+            document.put("status", status.name());
+            document.put("total", total);
+            document.put("position", position);
+            document.put("cursor", cursor);
+            document.put("processed", processed);
+            document.put("skipped", skipped);
+            document.put("translated", translated);
+            document.put("failed", failed);
+            document.put("error", error);
+            document.put(FileContentStore.CHUNK_COUNT_FIELD, chunkCount);
+            document.put("owner", owner);
+            document.put("leaseExpiresAt", leaseExpiresAt);
+            document.put("createdAt", createdAt);
+            document.put("updatedAt", updatedAt);
+            return document;
+        }
+
+        static Job fromDocument(String id, Map<String, Object> document) {
+            Job job = new Job(id,
+                    SourceType.valueOf((String) document.get("sourceType")),
+                    (String) document.get("source"),
+                    (String) document.get("field"),
+                    (String) document.get("name"),
+                    longValue(document.get("createdAt")));
+            job.status = Status.valueOf((String) document.get("status"));
+            job.total = longValue(document.get("total"));
+            job.position = longValue(document.get("position"));
+            job.cursor = (String) document.get("cursor");
+            job.processed = longValue(document.get("processed"));
+            job.skipped = longValue(document.get("skipped"));
+            job.translated = longValue(document.get("translated"));
+            job.failed = longValue(document.get("failed"));
+            job.error = (String) document.get("error");
+            job.chunkCount = (int) longValue(document.get(FileContentStore.CHUNK_COUNT_FIELD));
+            job.owner = (String) document.get("owner");
+            job.leaseExpiresAt = longValue(document.get("leaseExpiresAt"));
+            job.updatedAt = longValue(document.get("updatedAt"));
+            return job;
+        }
+
+        Map<String, Object> toStatus() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("jobId", id);
+            status.putAll(toDocument());
+            status.remove("source");
+
+            double throughput = 0;
+            if (this.status == Status.RUNNING && runStartedAt > 0) {
+                double elapsedSeconds = (System.currentTimeMillis() - runStartedAt) / 1000.0;
+                if (elapsedSeconds > 0) {
+                    throughput = (processed - processedAtRunStart) / elapsedSeconds;
+                }
+            }
+            status.put("throughputPerSecond", Math.round(throughput * 100) / 100.0);
+            status.put("etaSeconds", throughput > 0 ? Math.round(Math.max(0, total - processed) / throughput) : null);
+            return status;
+        }
+
+        private static long longValue(Object value) {
+            return value instanceof Number number ? number.longValue() : 0;
+        }
+    }
+
+    /**
+     * Whether an instance may take over the stored job: it is unfinished and nobody holds a lease
+     * on it. Jobs checkpointed before leases existed have none.
+     */
+    static boolean claimable(Map<String, Object> document, long now) {
+        Object status = document.get("status");
+        boolean active = Status.QUEUED.name().equals(status) || Status.RUNNING.name().equals(status);
+        return active && Job.longValue(document.get("leaseExpiresAt")) <= now;
+    }
+
+    // Another instance took the job over after this one's lease ran out
+    private static final class LeaseLostException extends RuntimeException {
+        LeaseLostException(String jobId) {
+            super("Lease on pre-translation job " + jobId + " was lost");
+        }
+    }
+
+    @Autowired
+    private TranslationService translationService;
+
+    @Autowired
+    private TranslatorClient translatorClient;
+
+    @Autowired
+    private MyFirestoreService firestoreService;
+
+    @Autowired
+    private FileContentStore fileContentStore;
+
+    // How long a job stays with this instance without a checkpoint or renewal
+    @Value("${translation.pretranslate.lease:PT5M}")
+    private Duration lease;
+
+    @Value("${translation.pretranslate.batch-size:20}")
+    private int batchSize;
+
+    // Translator calls per second; entries already translated do not count
+    @Value("${translation.pretranslate.rate-per-second:2}")
+    private double ratePerSecond;
+
+    // Retries of a batch whose calls failed or were shed by the translator's concurrency limiter,
+    // doubling the backoff each time; waits for an open circuit don't count
+    @Value("${translation.pretranslate.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${translation.pretranslate.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // One job at a time; later jobs wait in the executor queue
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "pre-translation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        if (FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+        try {
+            claimJobs();
+        } catch (Exception e) {
+            logger.error("Failed to resume pre-translation jobs", e);
+        }
+    }
+
+    /**
+     * Extends the leases on this instance's unfinished jobs, including those still waiting in the
+     * queue, then claims any job whose owner has stopped renewing its lease.
+     */
+    @Scheduled(initialDelayString = "${translation.pretranslate.lease-renewal:PT1M}", fixedDelayString = "${translation.pretranslate.lease-renewal:PT1M}")
+    public void renewLeases() {
+        if (FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+        for (Job job : jobs.values()) {
+            if (job.isActive() && !job.leaseLost) {
+                try {
+                    checkpoint(job);
+                } catch (LeaseLostException e) {
+                    logger.warn("Pre-translation job {} was taken over by another instance", job.id);
+                } catch (Exception e) {
+                    logger.warn("Failed to renew the lease on pre-translation job {}", job.id, e);
+                }
+            }
+        }
+        resumeJobs();
+    }
+
+    private void claimJobs() throws ExecutionException, InterruptedException {
+        Firestore db = FirestoreClient.getFirestore();
+        List<QueryDocumentSnapshot> documents = db.collection(JOBS_COLLECTION)
+                .whereIn("status", List.of(Status.QUEUED.name(), Status.RUNNING.name()))
+                .get().get().getDocuments();
+        long now = System.currentTimeMillis();
+        List<QueryDocumentSnapshot> claimable = documents.stream()
+                .filter(document -> !jobs.containsKey(document.getId()) && claimable(document.getData(), now))
+                .sorted(Comparator.comparingLong(document -> Job.longValue(document.get("createdAt"))))
+                .toList();
+        for (QueryDocumentSnapshot document : claimable) {
+            Job job = claim(db, document.getReference());
+            if (job != null) {
+                logger.info("Resuming pre-translation job {} at {} of {}", job.id, job.processed, job.total);
+                submit(job);
+            }
+        }
+    }
+
+    /**
+     * Takes the lease on a job, unless another instance claimed it since it was listed.
+     * @return the job, or null if it is no longer claimable
+     */
+    private Job claim(Firestore db, DocumentReference reference) throws ExecutionException, InterruptedException {
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(reference).get();
+            long now = System.currentTimeMillis();
+            if (!current.exists() || !claimable(current.getData(), now)) {
+                return null;
+            }
+            Job job = Job.fromDocument(current.getId(), current.getData());
+            job.owner = instanceId;
+            job.leaseExpiresAt = now + lease.toMillis();
+            transaction.update(reference, Map.of("owner", job.owner, "leaseExpiresAt", job.leaseExpiresAt));
+            return job;
+        }).get();
+    }
+
+    /**
+     * Queues a job over an uploaded text file, one entry per line. The file is stored as content
+     * chunks under the job document until the job ends.
+     */
+    public Map<String, Object> startFileJob(MultipartFile file) throws IOException, ExecutionException, InterruptedException {
+        String id = UUID.randomUUID().toString();
+        String content = new String(file.getBytes(), StandardCharsets.UTF_8);
+
+        Job job = new Job(id, SourceType.FILE, null, null, file.getOriginalFilename(), System.currentTimeMillis());
+        job.total = content.lines().count();
+        Firestore db = FirestoreClient.getFirestore();
+        Map<String, Object> layout = fileContentStore.write(db, db.collection(JOBS_COLLECTION).document(id), content);
+        job.chunkCount = ((Number) layout.get(FileContentStore.CHUNK_COUNT_FIELD)).intValue();
+        job.owner = instanceId;
+        checkpoint(job);
+        submit(job);
+        return job.toStatus();
+    }
+
+    /**
+     * Queues a job over one text field of every document in a collection.
+     */
+    public Map<String, Object> startCollectionJob(String collectionName, String field) throws ExecutionException, InterruptedException {
+        Job job = new Job(UUID.randomUUID().toString(), SourceType.COLLECTION, collectionName, field, collectionName + "." + field, System.currentTimeMillis());
+        job.total = firestoreService.countDocuments(collectionName);
+        job.owner = instanceId;
+        checkpoint(job);
+        submit(job);
+        return job.toStatus();
+    }
+
+    public Map<String, Object> getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.toStatus() : null;
+    }
+
+    public List<Map<String, Object>> listJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong((Job job) -> job.createdAt).reversed())
+                .map(Job::toStatus)
+                .toList();
+    }
+
+    /**
+     * Stops the job after its current batch.
+     * @return false if there is no such job
+     */
+    public boolean cancel(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        job.cancelRequested = true;
+        return true;
+    }
+
+    private void submit(Job job) {
+        jobs.put(job.id, job);
+        executor.submit(() -> run(job));
+    }
+
+    private void run(Job job) {
+        if (job.leaseLost) {
+            return;
+        }
+        try {
+            if (!job.cancelRequested) {
+                job.status = Status.RUNNING;
+                job.runStartedAt = System.currentTimeMillis();
+                job.processedAtRunStart = job.processed;
+                job.callsAtRunStart = job.modelCalls();
+                checkpoint(job);
+
+                if (job.sourceType == SourceType.FILE) {
+                    runFile(job);
+                } else {
+                    runCollection(job);
+                }
+            }
+            if (job.leaseLost) {
+                throw new LeaseLostException(job.id);
+            }
+            job.status = job.cancelRequested ? Status.CANCELLED : Status.COMPLETED;
+            logger.info("Pre-translation job {} {}: {}", job.id, job.status, job.toStatus());
+        } catch (InterruptedException | InterruptedIOException e) {
+            // Shutting down: leave the job RUNNING so an instance resumes it from the last checkpoint
+            Thread.currentThread().interrupt();
+            return;
+        } catch (LeaseLostException e) {
+            logger.warn("Pre-translation job {} was taken over by another instance, stopping at {} of {}", job.id, job.processed, job.total);
+            return;
+        } catch (Exception e) {
+            job.status = Status.FAILED;
+            job.error = e.getMessage();
+            logger.error("Pre-translation job {} failed at {} of {}", job.id, job.processed, job.total, e);
+        }
+
+        try {
+            checkpoint(job);
+            if (job.sourceType == SourceType.FILE && job.status != Status.FAILED) {
+                Firestore db = FirestoreClient.getFirestore();
+                fileContentStore.delete(db, db.collection(JOBS_COLLECTION).document(job.id), job.chunkCount);
+            }
+        } catch (LeaseLostException e) {
+            logger.warn("Pre-translation job {} was taken over by another instance before it ended", job.id);
+        } catch (Exception e) {
+            logger.error("Failed to record the end of pre-translation job {}", job.id, e);
+        }
+    }
+
+    private void runFile(Job job) throws IOException, ExecutionException, InterruptedException {
+        Firestore db = FirestoreClient.getFirestore();
+        DocumentReference input = db.collection(JOBS_COLLECTION).document(job.id);
+        try (BufferedReader reader = new BufferedReader(fileContentStore.reader(db, input, job.chunkCount))) {
+            // Skip what earlier runs already checkpointed
+            long line = 0;
+            while (line < job.position && reader.readLine() != null) {
+                line++;
+            }
+
+            List<String> texts = new ArrayList<>(batchSize);
+            int entries = 0;
+            String text;
+            while (!job.cancelRequested && (text = reader.readLine()) != null) {
+                line++;
+                entries++;
+                if (!text.isBlank()) {
+                    texts.add(text.trim());
+                }
+                if (entries >= batchSize) {
+                    translate(job, texts, entries);
+                    job.position = line;
+                    checkpoint(job);
+                    texts.clear();
+                    entries = 0;
+                }
+            }
+            if (entries > 0 && !job.cancelRequested) {
+                translate(job, texts, entries);
+                job.position = line;
+                checkpoint(job);
+            }
+        }
+    }
+
+    private void runCollection(Job job) throws ExecutionException, InterruptedException {
+        while (!job.cancelRequested) {
+            LinkedHashMap<String, String> page = firestoreService.getFieldValuesPage(job.source, job.field, job.cursor, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            List<String> texts = page.values().stream().filter(Objects::nonNull).map(String::trim).toList();
+            translate(job, texts, page.size());
+            job.cursor = page.sequencedKeySet().getLast();
+            checkpoint(job);
+            if (page.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Translates one batch and updates the counters.
+     * @param entries lines or documents the batch was read from, including empty ones
+     */
+    private void translate(Job job, List<String> texts, int entries) throws ExecutionException, InterruptedException {
+        List<TranslationResult> results = texts.isEmpty() ? new ArrayList<>() : translationService.translateBatch(texts, TranslationPriority.BACKFILL);
+        int retries = 0;
+        while (results.contains(null) && !job.cancelRequested) {
+            if (!waitForTranslator()) {
+                // Not an open circuit: BACKFILL calls are the first the limiter sheds under load
+                if (retries == maxRetries) {
+                    break;
+                }
+                long backoffMillis = retryBackoffMs << Math.min(retries, 10);
+                retries++;
+                logger.warn("{} texts of pre-translation job {} not translated, retry {} of {} in {} ms",
+                        results.stream().filter(Objects::isNull).count(), job.id, retries, maxRetries, backoffMillis);
+                Thread.sleep(backoffMillis);
+            }
+            // Retrying the whole batch is cheap: what did get translated is found in memory this time
+            results = translationService.translateBatch(texts, TranslationPriority.BACKFILL);
+        }
+
+        long skipped = entries - texts.size();
+        for (TranslationResult result : results) {
+            if (result == null) {
+                job.failed++;
+            } else if (result.fromCache()) {
+                skipped++;
+            } else {
+                job.translated++;
+            }
+        }
+        job.skipped += skipped;
+        job.processed += entries;
+        pace(job);
+    }
+
+    /**
+     * @return true after waiting out an open circuit, false if the translator is available
+     */
+    private boolean waitForTranslator() throws InterruptedException {
+        try {
+            translatorClient.checkAvailable();
+            return false;
+        } catch (TranslatorUnavailableException e) {
+            logger.warn("Translator unavailable, pausing pre-translation for {} s", e.getRetryAfterSeconds());
+            Thread.sleep(e.getRetryAfterSeconds() * 1000);
+            return true;
+        }
+    }
+
+    /**
+     * Sleeps as long as needed to keep model calls in this run at or below the configured rate.
+     */
+    private void pace(Job job) throws InterruptedException {
+        long expectedMillis = (long) ((job.modelCalls() - job.callsAtRunStart) * 1000 / ratePerSecond);
+        long elapsedMillis = System.currentTimeMillis() - job.runStartedAt;
+        if (expectedMillis > elapsedMillis) {
+            Thread.sleep(expectedMillis - elapsedMillis);
+        }
+    }
+
+    /**
+     * Writes the job's progress and extends its lease, in a transaction that first checks that
+     * this instance still owns the job.
+     * @throws LeaseLostException if another instance has taken the job over; the job stops here
+     */
+    private void checkpoint(Job job) throws ExecutionException, InterruptedException {
+        Firestore db = FirestoreClient.getFirestore();
+        DocumentReference reference = db.collection(JOBS_COLLECTION).document(job.id);
+        boolean owned = db.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(reference).get();
+            if (current.exists() && !instanceId.equals(current.getString("owner"))) {
+                return false;
+            }
+            job.updatedAt = System.currentTimeMillis();
+            job.leaseExpiresAt = job.updatedAt + lease.toMillis();
+            transaction.set(reference, job.toDocument());
+            return true;
+        }).get();
+        if (!owned) {
+            job.leaseLost = true;
+            job.cancelRequested = true;
+            jobs.remove(job.id, job);
+            throw new LeaseLostException(job.id);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        if (FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+        // Let the next instance resume the jobs at once instead of when their leases run out
+        for (Job job : jobs.values()) {
+            if (job.isActive() && !job.leaseLost) {
+                try {
+                    Firestore db = FirestoreClient.getFirestore();
+                    DocumentReference reference = db.collection(JOBS_COLLECTION).document(job.id);
+                    db.runTransaction(transaction -> {
+                        if (instanceId.equals(transaction.get(reference).get().getString("owner"))) {
+                            transaction.update(reference, "leaseExpiresAt", 0L);
+                        }
+                        return null;
+                    }).get();
+                } catch (Exception e) {
+                    logger.warn("Failed to release the lease on pre-translation job {}", job.id, e);
+                }
+            }
+        }
+    }
+}
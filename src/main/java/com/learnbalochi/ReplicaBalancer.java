@@ -0,0 +1,411 @@
+package com.learnbalochi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Client-side balancing over several replicas of one upstream. Each call goes to the healthy
+ * replica with the fewest outstanding requests. Replicas that keep failing or answering slowly
+ * are ejected for a while (passive health checking), and with hedging enabled a call that
+ * outlives the recent p95 latency is also sent to a second replica, first answer wins. A hedge
+ * takes its own permit from the upstream's concurrency limiter and is skipped when none is free.
+ */
+public class ReplicaBalancer implements MetricsSource, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaBalancer.class);
+    private static final double LATENCY_EWMA_WEIGHT = 0.2;
+    private static final int LATENCY_WINDOW = 256;
+
+    /**
+     * Replica URLs from the comma-separated "{prefix}.url", the rest from "{prefix}.balancer.*".
+     */
+    public record Settings(List<String> urls, int ejectAfterFailures, Duration slowCallDuration,
+                           Duration ejectDuration, boolean hedgingEnabled, Duration hedgingMinDelay,
+                           double hedgingMaxRatio, int hedgingMinSamples) {
+
+        public static Settings from(Environment env, String prefix) {
+            String p = prefix + ".balancer.";
+            List<String> urls = Arrays.stream(StringUtils.commaDelimitedListToStringArray(env.getRequiredProperty(prefix + ".url")))
+                    .map(String::trim)
+                    .filter(StringUtils::hasText)
+                    .toList();
+            return new Settings(
+                    urls,
+                    env.getProperty(p + "eject-after-failures", Integer.class, 3),
+                    env.getProperty(p + "slow-call-duration", Duration.class, Duration.ofSeconds(10)),
+                    env.getProperty(p + "eject-duration", Duration.class, Duration.ofSeconds(30)),
+                    env.getProperty(p + "hedging.enabled", Boolean.class, false),
+                    env.getProperty(p + "hedging.min-delay", Duration.class, Duration.ofMillis(200)),
+                    env.getProperty(p + "hedging.max-ratio", Double.class, 0.1),
+                    env.getProperty(p + "hedging.min-samples", Integer.class, 20));
+        }
+    }
+
+    private static final class Replica {
+        final String url;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        // Written under the replica's monitor; choose() reads these two without it
+        volatile double latencyEwmaMs;
+        volatile long ejectedUntilNanos;
+        int consecutiveFailures;
+        int ejections;
+
+        Replica(String url) {
+            this.url = url;
+        }
+
+        boolean isEjected(long now) {
+            long until = ejectedUntilNanos;
+            return until != 0 && now - until < 0;
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ExecutorService hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Ring buffer of recent successful call latencies, for the hedging delay
+    private final long[] latencyWindowNanos = new long[LATENCY_WINDOW];
+    private int latencySamples;
+    private int nextLatencySlot;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicLong hedgesSkippedSaturated = new AtomicLong();
+
+    public ReplicaBalancer(String name, Settings settings, AdaptiveConcurrencyLimiter limiter) {
+        if (settings.urls().isEmpty()) {
+            throw new IllegalArgumentException(name + " has no replica URLs configured");
+        }
+        this.name = name;
+        this.settings = settings;
+        this.limiter = limiter;
+        for (String url : settings.urls()) {
+            replicas.add(new Replica(url));
+        }
+        logger.info("{} balancing over {} replica(s): {}", name, replicas.size(), settings.urls());
+    }
+
+    /**
+     * Runs the call against a chosen replica URL. A failed call (other than a 4xx) is retried
+     * once on another replica; with hedging enabled, a slow call is raced against a second one.
+     */
+    public <T> T execute(Function<String, T> call) {
+        return execute(call, settings.hedgingEnabled());
+    }
+
+    /**
+     * Like {@link #execute(Function)} but never hedges, for calls with side effects such as
+     * streaming tokens to a client.
+     */
+    public <T> T executeWithoutHedging(Function<String, T> call) {
+        return execute(call, false);
+    }
+
+    private <T> T execute(Function<String, T> call, boolean hedge) {
+        requests.incrementAndGet();
+        Replica primary = choose(null);
+        long hedgeDelayNanos = hedge ? hedgeDelayNanos() : -1;
+
+        if (hedgeDelayNanos < 0 || replicas.size() < 2) {
+            try {
+                return invoke(primary, call);
+            } catch (RuntimeException e) {
+                return failover(primary, call, e);
+            }
+        }
+
+        RequestCancellation firstRequest = new RequestCancellation();
+        CompletableFuture<T> first = CompletableFuture.supplyAsync(() -> firstRequest.run(() -> invoke(primary, call)), hedgeExecutor);
+        try {
+            return first.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slower than usual: hedge below
+        } catch (ExecutionException e) {
+            return failover(primary, call, unwrap(e.getCause()));
+        } catch (InterruptedException e) {
+            firstRequest.cancel();
+            Thread.currentThread().interrupt();
+            throw new TranslatorUnavailableException(name + " call interrupted", 1);
+        }
+
+        Replica secondary = choose(primary);
+        if (secondary == primary || !tryAcquireHedge()) {
+            return await(first);
+        }
+        // The hedge is extra load on the upstream, so it needs a permit of its own
+        if (!limiter.tryAcquire()) {
+            hedgesSkippedSaturated.incrementAndGet();
+            return await(first);
+        }
+        hedgesSent.incrementAndGet();
+        RequestCancellation secondRequest = new RequestCancellation();
+        CompletableFuture<T> second;
+        try {
+            second = CompletableFuture.supplyAsync(() -> secondRequest.run(() -> invoke(secondary, call)), hedgeExecutor);
+        } catch (RuntimeException e) {
+            limiter.releaseUnsampled();
+            throw e;
+        }
+        second.whenComplete((result, error) -> limiter.releaseUnsampled());
+
+        // First success wins; if both fail, surface the primary's failure
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        first.whenComplete((result, error) -> {
+            if (error == null) {
+                winner.complete(result);
+            } else {
+                second.whenComplete((r, e) -> {
+                    if (e != null) {
+                        winner.completeExceptionally(error);
+                    }
+                });
+            }
+        });
+        second.whenComplete((result, error) -> {
+            if (error == null && winner.complete(result)) {
+                hedgesWon.incrementAndGet();
+            }
+        });
+        try {
+            return await(winner);
+        } finally {
+            // Abort the loser's HTTP request, freeing its connection and the replica's capacity;
+            // cancelling the winner's already completed request does nothing
+            firstRequest.cancel();
+            secondRequest.cancel();
+        }
+    }
+
+    private <T> T failover(Replica failed, Function<String, T> call, RuntimeException error) {
+        if (error instanceof HttpClientErrorException) {
+            throw error;
+        }
+        Replica fallback = choose(failed);
+        if (fallback == failed) {
+            throw error;
+        }
+        failovers.incrementAndGet();
+        logger.warn("{} replica {} failed, retrying on {}: {}", name, failed.url, fallback.url, error.getMessage());
+        return invoke(fallback, call);
+    }
+
+    private <T> T invoke(Replica replica, Function<String, T> call) {
+        replica.outstanding.incrementAndGet();
+        replica.calls.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(replica.url);
+            long elapsed = System.nanoTime() - start;
+            onResult(replica, elapsed, elapsed > settings.slowCallDuration().toNanos());
+            recordLatency(elapsed);
+            return result;
+        } catch (HttpClientErrorException e) {
+            // A 4xx says nothing about the replica's health
+            onResult(replica, System.nanoTime() - start, false);
+            throw e;
+        } catch (RuntimeException e) {
+            if (RequestCancellation.isCurrentCancelled()) {
+                // Aborted as the losing hedge, which says nothing about the replica's health
+                throw e;
+            }
+            replica.failures.incrementAndGet();
+            onResult(replica, System.nanoTime() - start, true);
+            throw e;
+        } finally {
+            replica.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * Picks the replica with the fewest outstanding requests, breaking ties by latency and
+     * starting from a random position so equal replicas share the load.
+     * @return the chosen replica, or {@code exclude} if it is the only candidate
+     */
+    private Replica choose(Replica exclude) {
+        long now = System.nanoTime();
+        int offset = ThreadLocalRandom.current().nextInt(replicas.size());
+        Replica best = null;
+        Replica leastEjected = null;
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((offset + i) % replicas.size());
+            if (replica == exclude) {
+                continue;
+            }
+            if (replica.isEjected(now)) {
+                if (leastEjected == null || replica.ejectedUntilNanos - leastEjected.ejectedUntilNanos < 0) {
+                    leastEjected = replica;
+                }
+                continue;
+            }
+            if (best == null || isBetter(replica, best)) {
+                best = replica;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        // Everything else is ejected: better to try the replica that comes back soonest than fail
+        if (exclude != null && !exclude.isEjected(now)) {
+            return exclude;
+        }
+        return leastEjected != null ? leastEjected : exclude;
+    }
+
+    private static boolean isBetter(Replica candidate, Replica best) {
+        int a = candidate.outstanding.get();
+        int b = best.outstanding.get();
+        if (a != b) {
+            return a < b;
+        }
+        return candidate.latencyEwmaMs < best.latencyEwmaMs;
+    }
+
+    private void onResult(Replica replica, long elapsedNanos, boolean unhealthy) {
+        double latencyMs = elapsedNanos / 1_000_000.0;
+        synchronized (replica) {
+            replica.latencyEwmaMs = replica.latencyEwmaMs == 0
+                    ? latencyMs
+                    : replica.latencyEwmaMs + LATENCY_EWMA_WEIGHT * (latencyMs - replica.latencyEwmaMs);
+            if (!unhealthy) {
+                replica.consecutiveFailures = 0;
+                if (!replica.isEjected(System.nanoTime())) {
+                    replica.ejections = 0;
+                }
+                return;
+            }
+            replica.consecutiveFailures++;
+            if (replica.consecutiveFailures < settings.ejectAfterFailures() || !canEject(replica)) {
+                return;
+            }
+            // Each ejection in a row doubles the time out, up to 16x
+            replica.ejections++;
+            long ejectNanos = settings.ejectDuration().toNanos() << Math.min(replica.ejections - 1, 4);
+            replica.ejectedUntilNanos = System.nanoTime() + ejectNanos;
+            replica.consecutiveFailures = 0;
+            logger.warn("{} replica {} ejected for {} s after {} failed or slow calls",
+                    name, replica.url, Duration.ofNanos(ejectNanos).toSeconds(), settings.ejectAfterFailures());
+        }
+    }
+
+    /**
+     * Never eject the last replica still in rotation.
+     */
+    private boolean canEject(Replica replica) {
+        long now = System.nanoTime();
+        for (Replica other : replicas) {
+            if (other != replica && !other.isEjected(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryAcquireHedge() {
+        return hedgesSent.get() < settings.hedgingMaxRatio() * requests.get();
+    }
+
+    /**
+     * @return the p95 of recent latencies (at least the configured minimum), or -1 while there
+     * are too few samples to know what slow means
+     */
+    private synchronized long hedgeDelayNanos() {
+        if (latencySamples < settings.hedgingMinSamples()) {
+            return -1;
+        }
+        int count = Math.min(latencySamples, LATENCY_WINDOW);
+        long[] sorted = Arrays.copyOf(latencyWindowNanos, count);
+        Arrays.sort(sorted);
+        long p95 = sorted[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)];
+        return Math.max(p95, settings.hedgingMinDelay().toNanos());
+    }
+
+    private synchronized void recordLatency(long elapsedNanos) {
+        latencyWindowNanos[nextLatencySlot] = elapsedNanos;
+        nextLatencySlot = (nextLatencySlot + 1) % LATENCY_WINDOW;
+        latencySamples++;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    @Override
+    public String metricsName() {
+        return "balancer." + name;
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        long now = System.nanoTime();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("requests", requests.get());
+        metrics.put("failovers", failovers.get());
+        metrics.put("hedgingEnabled", settings.hedgingEnabled());
+        long hedgeDelayNanos = settings.hedgingEnabled() ? hedgeDelayNanos() : -1;
+        metrics.put("hedgeDelayMs", hedgeDelayNanos < 0 ? -1 : hedgeDelayNanos / 1_000_000);
+        metrics.put("hedgesSent", hedgesSent.get());
+        metrics.put("hedgesWon", hedgesWon.get());
+        metrics.put("hedgesSkippedSaturated", hedgesSkippedSaturated.get());
+
+        List<Map<String, Object>> replicaMetrics = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("url", replica.url);
+            entry.put("outstanding", replica.outstanding.get());
+            entry.put("calls", replica.calls.get());
+            entry.put("failures", replica.failures.get());
+            synchronized (replica) {
+                entry.put("latencyEwmaMs", Math.round(replica.latencyEwmaMs));
+                entry.put("ejected", replica.isEjected(now));
+                entry.put("ejections", replica.ejections);
+            }
+            replicaMetrics.add(entry);
+        }
+        metrics.put("replicas", replicaMetrics);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        hedgeExecutor.shutdownNow();
+    }
+}
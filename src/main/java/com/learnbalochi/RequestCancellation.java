@@ -0,0 +1,65 @@
+package com.learnbalochi;
+
+import org.apache.hc.core5.concurrent.Cancellable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collects the HTTP requests a call makes on its thread, so another thread can abort them: the
+ * replica balancer cancels the losing request of a hedged pair this way. Requests are handed
+ * over by {@link UpstreamHttpClient} as it creates them; outside {@link #run} nothing is collected.
+ */
+final class RequestCancellation {
+    private static final ThreadLocal<RequestCancellation> CURRENT = new ThreadLocal<>();
+
+    private final List<Cancellable> requests = new ArrayList<>();
+    private boolean cancelled;
+
+    <T> T run(Supplier<T> call) {
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Aborts the requests in flight, and any the call still makes.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        requests.forEach(Cancellable::cancel);
+        requests.clear();
+    }
+
+    /**
+     * Whether the call running on this thread has been cancelled, so its failure is expected.
+     */
+    static boolean isCurrentCancelled() {
+        RequestCancellation current = CURRENT.get();
+        if (current == null) {
+            return false;
+        }
+        synchronized (current) {
+            return current.cancelled;
+        }
+    }
+
+    static void register(Cancellable request) {
+        RequestCancellation current = CURRENT.get();
+        if (current != null) {
+            current.add(request);
+        }
+    }
+
+    private synchronized void add(Cancellable request) {
+        if (cancelled) {
+            request.cancel();
+        } else {
+            requests.add(request);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.firebase.cloud.FirestoreClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inverted index over the file catalogue: normalized token to the files containing it, each
+ * posting weighted by the fields the token appears in. Files are indexed with their content at
+ * upload, and kept current from the {@link FileCatalog} listener, which also seeds the index on
+ * startup. Search cost depends on the query's posting lists rather than on the corpus text.
+ */
+@Component
+public class SearchIndex implements FileCatalog.ChangeListener, MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final float FILE_NAME_WEIGHT = 8f;
+    private static final float AUTHOR_WEIGHT = 6f;
+    private static final float CATEGORY_WEIGHT = 4f;
+    private static final float DESCRIPTION_WEIGHT = 3f;
+    private static final float CONTENT_WEIGHT = 1f;
+    // Prefix matches rank below exact ones for the same token
+    private static final float PREFIX_FACTOR = 0.7f;
+
+    /**
+     * What is indexed for one file. contentVersion identifies the indexed content, so metadata
+     * changes can be applied without reading the content again. Content and metadata terms are
+     * kept apart and only summed into the postings, so the large content map is held once.
+     */
+    private record IndexedFile(FileMetadata metadata, String contentVersion, Map<String, Float> contentTerms, Map<String, Float> metadataTerms) {
+
+        float weight(String term) {
+            return contentTerms.getOrDefault(term, 0f) + metadataTerms.getOrDefault(term, 0f);
+        }
+    }
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    // Longer content is indexed up to this many characters
+    @Value("${search.index.content-max-chars:5000000}")
+    private int contentMaxChars;
+
+    // Upper bound on the index terms one prefix query token expands to
+    @Value("${search.index.max-prefix-terms:200}")
+    private int maxPrefixTerms;
+
+    @Autowired
+    private FileCatalog fileCatalog;
+
+    @Autowired
+    private FileContentStore fileContentStore;
+
+    private final NavigableMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, IndexedFile> files = new ConcurrentHashMap<>();
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-index-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger pendingLoads = new AtomicInteger();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong contentLoads = new AtomicLong();
+    private final AtomicLong contentLoadFailures = new AtomicLong();
+
+    @PostConstruct
+    void registerWithCatalog() {
+        fileCatalog.addChangeListener(this);
+    }
+
+    /**
+     * Whether searches on the collection can be answered from the index: the catalogue has
+     * synced and every file's content has been indexed.
+     */
+    public boolean serves(String collection) {
+        return enabled && fileCatalog.serves(collection) && pendingLoads.get() == 0;
+    }
+
+    /**
+     * Indexes a file whose content is at hand, as on upload.
+     */
+    public void index(String collection, String documentId, Map<String, Object> data, String content) {
+        if (!enabled || !collection.equals(fileCatalog.collectionName())) {
+            return;
+        }
+        put(documentId, FileMetadata.fromData(documentId, data), contentVersion(data), content);
+    }
+
+    /**
+     * Applies a change delivered by the catalogue listener. The content is read again only when
+     * the file's content layout changed; inline content is taken from the document itself.
+     */
+    @Override
+    public void onFileChanged(String documentId, Map<String, Object> data) {
+        if (!enabled) {
+            return;
+        }
+        FileMetadata metadata = FileMetadata.fromData(documentId, data);
+        String contentVersion = contentVersion(data);
+        IndexedFile indexed = files.get(documentId);
+        if (indexed != null && indexed.contentVersion().equals(contentVersion)) {
+            put(documentId, metadata, contentVersion, indexed.contentTerms());
+        } else if (!FileContentStore.isChunked(data)) {
+            put(documentId, metadata, contentVersion, data.get("content") instanceof String content ? content : "");
+        } else {
+            pendingLoads.incrementAndGet();
+            loader.execute(() -> loadContent(documentId, metadata, contentVersion, data));
+        }
+    }
+
+    @Override
+    public synchronized void onFileRemoved(String documentId) {
+        IndexedFile removed = files.remove(documentId);
+        if (removed != null) {
+            removePostings(documentId, removed);
+        }
+    }
+
+    private void loadContent(String documentId, FileMetadata metadata, String contentVersion, Map<String, Object> data) {
+        try {
+            Firestore db = FirestoreClient.getFirestore();
+            DocumentReference file = db.collection(fileCatalog.collectionName()).document(documentId);
+            int chunkCount = ((Number) data.get(FileContentStore.CHUNK_COUNT_FIELD)).intValue();
+            putIfListed(documentId, metadata, contentVersion, contentTerms(fileContentStore.readAll(db, file, chunkCount)));
+            contentLoads.incrementAndGet();
+        } catch (Exception e) {
+            // Index the metadata so the file is still found by name, author and description
+            contentLoadFailures.incrementAndGet();
+            logger.error("Failed to load content of {} for the search index", documentId, e);
+            putIfListed(documentId, metadata, "unloaded", Map.of());
+        } finally {
+            pendingLoads.decrementAndGet();
+        }
+    }
+
+    private void put(String documentId, FileMetadata metadata, String contentVersion, String content) {
+        put(documentId, metadata, contentVersion, contentTerms(content));
+    }
+
+    // The file may have been deleted while its content was being read
+    private synchronized void putIfListed(String documentId, FileMetadata metadata, String contentVersion, Map<String, Float> contentTerms) {
+        if (fileCatalog.contains(documentId)) {
+            put(documentId, metadata, contentVersion, contentTerms);
+        }
+    }
+
+    private Map<String, Float> contentTerms(String content) {
+        Map<String, Float> contentTerms = new HashMap<>();
+        String indexed = content.length() > contentMaxChars ? content.substring(0, contentMaxChars) : content;
+        addField(contentTerms, SearchText.tokenize(indexed), CONTENT_WEIGHT);
+        return contentTerms;
+    }
+
+    private synchronized void put(String documentId, FileMetadata metadata, String contentVersion, Map<String, Float> contentTerms) {
+        Map<String, Float> metadataTerms = new HashMap<>();
+        addField(metadataTerms, SearchText.tokenize(metadata.fileName()), FILE_NAME_WEIGHT);
+        if (metadata.authorName() instanceof List<?> authors) {
+            for (Object author : authors) {
+                addField(metadataTerms, SearchText.tokenize(String.valueOf(author)), AUTHOR_WEIGHT);
+            }
+        } else if (metadata.authorName() instanceof String author) {
+            addField(metadataTerms, SearchText.tokenize(author), AUTHOR_WEIGHT);
+        }
+        addField(metadataTerms, SearchText.tokenize(metadata.category()), CATEGORY_WEIGHT);
+        addField(metadataTerms, SearchText.tokenize(metadata.description()), DESCRIPTION_WEIGHT);
+
+        IndexedFile file = new IndexedFile(metadata, contentVersion, contentTerms, metadataTerms);
+        IndexedFile previous = files.put(documentId, file);
+        if (previous != null) {
+            removePostings(documentId, previous);
+        }
+        addPostings(documentId, file, file.contentTerms().keySet());
+        // Terms in both maps are simply put twice with the same summed weight
+        addPostings(documentId, file, file.metadataTerms().keySet());
+    }
+
+    private void addPostings(String documentId, IndexedFile file, Iterable<String> terms) {
+        for (String term : terms) {
+            postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(documentId, file.weight(term));
+        }
+    }
+
+    private void removePostings(String documentId, IndexedFile file) {
+        removePostings(documentId, file.contentTerms().keySet());
+        removePostings(documentId, file.metadataTerms().keySet());
+    }
+
+    private void removePostings(String documentId, Iterable<String> terms) {
+        for (String term : terms) {
+            postings.computeIfPresent(term, (key, documents) -> {
+                documents.remove(documentId);
+                return documents.isEmpty() ? null : documents;
+            });
+        }
+    }
+
+    /**
+     * Field weight times 1 + ln(term frequency), summed over the fields a term appears in.
+     */
+    private static void addField(Map<String, Float> terms, List<String> tokens, float weight) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            terms.merge(frequency.getKey(), weight * (1 + (float) Math.log(frequency.getValue())), Float::sum);
+        }
+    }
+
+    private static String contentVersion(Map<String, Object> data) {
+        if (FileContentStore.isChunked(data)) {
+            return "chunked:" + data.get(FileContentStore.CHUNK_COUNT_FIELD) + ":" + data.get(FileContentStore.LENGTH_FIELD);
+        }
+        Object content = data.get("content");
+        return "inline:" + (content instanceof String text ? text.length() + ":" + text.hashCode() : "none");
+    }
+
+    /**
+     * Files containing every query token, best first. The last word, and any word ending in
+     * '*', also matches as a prefix; a blank query lists every file by name.
+     */
+    public List<FileMetadata> matches(String searchQuery, String currentUserUid, boolean privacyFilter) {
+        searches.incrementAndGet();
+        List<FileMetadata> results = new ArrayList<>();
+        if (searchQuery == null || searchQuery.isBlank()) {
+            for (IndexedFile file : files.values()) {
+                results.add(file.metadata());
+            }
+            results.removeIf(metadata -> privacyFilter && !metadata.isAccessibleTo(currentUserUid));
+            results.sort(Comparator.comparing((FileMetadata metadata) -> metadata.fileName() != null ? metadata.fileName() : "")
+                    .thenComparing(FileMetadata::documentId));
+            return results;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        String[] words = searchQuery.strip().split("\\s+");
+        for (int w = 0; w < words.length; w++) {
+            List<String> wordTokens = SearchText.tokenize(words[w]);
+            for (int t = 0; t < wordTokens.size(); t++) {
+                tokens.add(wordTokens.get(t));
+                prefixes.add(t == wordTokens.size() - 1 && (w == words.length - 1 || words[w].endsWith("*")));
+            }
+        }
+
+        Map<String, Float> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            Map<String, Float> tokenScores = score(tokens.get(i), prefixes.get(i));
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                for (Map.Entry<String, Float> score : scores.entrySet()) {
+                    score.setValue(score.getValue() + tokenScores.get(score.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        if (scores != null) {
+            List<Map.Entry<String, Float>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<String, Float>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            for (Map.Entry<String, Float> match : ranked) {
+                IndexedFile file = files.get(match.getKey());
+                if (file != null && (!privacyFilter || file.metadata().isAccessibleTo(currentUserUid))) {
+                    results.add(file.metadata());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Per file, the best weight times idf among the index terms the token matches.
+     */
+    private Map<String, Float> score(String token, boolean prefix) {
+        Map<String, Float> scores = new HashMap<>();
+        int fileCount = Math.max(files.size(), 1);
+        Map<String, Map<String, Float>> matches;
+        if (prefix) {
+            matches = postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        } else {
+            Map<String, Float> exact = postings.get(token);
+            matches = exact != null ? Map.of(token, exact) : Map.of();
+        }
+        int expanded = 0;
+        for (Map.Entry<String, Map<String, Float>> term : matches.entrySet()) {
+            if (expanded++ == maxPrefixTerms) {
+                break;
+            }
+            Map<String, Float> documents = term.getValue();
+            float idf = (float) Math.log(1 + (double) fileCount / Math.max(documents.size(), 1));
+            float factor = term.getKey().equals(token) ? 1f : PREFIX_FACTOR;
+            for (Map.Entry<String, Float> posting : documents.entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * idf * factor, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    @Override
+    public String metricsName() {
+        return "searchIndex";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("files", files.size());
+        metrics.put("terms", postings.size());
+        metrics.put("pendingContentLoads", pendingLoads.get());
+        metrics.put("contentLoads", contentLoads.get());
+        metrics.put("contentLoadFailures", contentLoadFailures.get());
+        metrics.put("searches", searches.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void stop() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,134 @@
+package com.learnbalochi;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ordered IDs of the files matching a search, per collection, normalized query and visibility
+ * class, so paging through results slices the cached list instead of searching again. Writes to
+ * a collection through MyFirestoreService, and changes the file catalog's listener sees,
+ * invalidate that collection's entries; the TTL only bounds staleness for writes made elsewhere
+ * while the catalog is not listening.
+ */
+@Component
+public class SearchResultCache implements FileCatalog.ChangeListener, MetricsSource {
+
+    /**
+     * Where a search was answered from. Each matches differently, so results from one are not
+     * reused for another, and each normalizes the query only as far as its matching does.
+     */
+    public enum Source {
+        INDEX, CATALOG, FIRESTORE;
+
+        String normalize(String searchQuery) {
+            return switch (this) {
+                case INDEX -> SearchText.normalize(searchQuery).strip().replaceAll("\\s+", " ");
+                case CATALOG -> SearchText.normalize(searchQuery);
+                case FIRESTORE -> searchQuery.toLowerCase();
+            };
+        }
+    }
+
+    public record Key(String collectionName, Source source, String query, String visibility) {
+
+        public static Key of(String collectionName, Source source, String searchQuery, String currentUserUid, boolean privacyFilter) {
+            return new Key(collectionName, source, source.normalize(searchQuery), visibility(currentUserUid, privacyFilter));
+        }
+
+        // Anonymous users share one class; signed-in users also see their own files
+        private static String visibility(String currentUserUid, boolean privacyFilter) {
+            if (!privacyFilter) {
+                return "all";
+            }
+            return currentUserUid == null || currentUserUid.isEmpty() ? "public" : "user:" + currentUserUid;
+        }
+    }
+
+    private final Cache<Key, List<String>> results;
+    private final FileCatalog fileCatalog;
+    // Bumped by every invalidation, so a search that started before a write doesn't cache its result
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SearchResultCache(
+            FileCatalog fileCatalog,
+            @Value("${search.result-cache.max-ids:500000}") long maxIds,
+            @Value("${search.result-cache.ttl:PT10M}") Duration ttl) {
+        this.fileCatalog = fileCatalog;
+        // Bounded by the total number of cached IDs, so a few broad queries can't crowd out memory
+        this.results = Caffeine.newBuilder()
+                .maximumWeight(maxIds)
+                .weigher((Key key, List<String> ids) -> ids.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        fileCatalog.addChangeListener(this);
+    }
+
+    public List<String> get(Key key) {
+        return results.getIfPresent(key);
+    }
+
+    /**
+     * Current generation of the collection; pass it to {@link #put} with the result computed after.
+     */
+    public long generation(String collectionName) {
+        return generations.computeIfAbsent(collectionName, name -> new AtomicLong()).get();
+    }
+
+    /**
+     * Caches the result unless the collection was invalidated since generation was read.
+     */
+    public void put(Key key, long generation, List<String> documentIds) {
+        if (generation(key.collectionName()) != generation) {
+            return;
+        }
+        results.put(key, List.copyOf(documentIds));
+        // An invalidation between the check and the put has bumped the generation by now
+        if (generation(key.collectionName()) != generation) {
+            results.invalidate(key);
+        }
+    }
+
+    public void invalidate(String collectionName) {
+        generations.computeIfAbsent(collectionName, name -> new AtomicLong()).incrementAndGet();
+        results.asMap().keySet().removeIf(key -> key.collectionName().equals(collectionName));
+        invalidations.incrementAndGet();
+    }
+
+    // After the catalog and the search index have both applied the changes
+    @Override
+    public void onSnapshotApplied() {
+        invalidate(fileCatalog.collectionName());
+    }
+
+    @Override
+    public String metricsName() {
+        return "searchResultCache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        CacheStats stats = results.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hitCount", stats.hitCount());
+        metrics.put("missCount", stats.missCount());
+        metrics.put("hitRate", stats.hitRate());
+        metrics.put("evictionCount", stats.evictionCount());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("estimatedSize", results.estimatedSize());
+        results.policy().eviction().ifPresent(eviction ->
+                eviction.weightedSize().ifPresent(weight -> metrics.put("cachedIds", weight)));
+        return metrics;
+    }
+}
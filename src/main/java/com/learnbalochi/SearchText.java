@@ -0,0 +1,83 @@
+package com.learnbalochi;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search-side normalization and tokenization for Balochi, Urdu and Latin text. Spelling variants
+ * that differ only by keyboard or encoding fold to one form, so a query typed on an Arabic
+ * keyboard finds text written with Urdu/Balochi code points and vice versa.
+ */
+public final class SearchText {
+
+    private SearchText() {
+    }
+
+    /**
+     * Folds presentation forms (NFKD), drops diacritics, tatweel and zero-width/bidi controls,
+     * unifies yeh, kaf, heh and alef variants, maps Arabic-Indic digits to ASCII and lower-cases
+     * Latin. Yeh barree and do-chashmi heh are distinct letters in Balochi and Urdu and are kept.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || isIgnorable(c)) {
+                continue;
+            }
+            normalized.append(fold(c));
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalized words: maximal runs of letters and digits.
+     */
+    public static List<String> tokenize(String text) {
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (Character.isLetterOrDigit(normalized.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(normalized.substring(start));
+        }
+        return tokens;
+    }
+
+    private static boolean isIgnorable(char c) {
+        return c == '\u0640'                         // tatweel
+                || (c >= '\u200B' && c <= '\u200F') // zero-width space/non-joiner/joiner, LRM, RLM
+                || (c >= '\u2066' && c <= '\u2069') // bidi isolates
+                || c == '\u061C'                     // Arabic letter mark
+                || c == '\uFEFF';                    // byte order mark
+    }
+
+    private static char fold(char c) {
+        return switch (c) {
+            // Arabic yeh, alef maksura and Pashto yeh to Farsi/Urdu yeh
+            case '\u064A', '\u0649', '\u06D0' -> '\u06CC';
+            // Arabic kaf and swash kaf to keheh
+            case '\u0643', '\u06AA' -> '\u06A9';
+            // Arabic heh, ae and teh marbuta to heh goal
+            case '\u0647', '\u06D5', '\u0629' -> '\u06C1';
+            // Alef wasla; hamza/madda forms are already alef plus a dropped mark after NFKD
+            case '\u0671' -> '\u0627';
+            default -> Character.isDigit(c) ? (char) ('0' + Character.digit(c, 10)) : c;
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.learnbalochi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into sentences so each can be translated and cached on its own.
+ * Handles Latin and Arabic-script sentence terminators as well as line breaks.
+ */
+public final class SentenceSegmenter {
+
+    /**
+     * A sentence and the whitespace that followed it in the input.
+     */
+    public record Segment(String text, String separator) {
+    }
+
+    private SentenceSegmenter() {
+    }
+
+    public static List<Segment> split(String text) {
+        List<Segment> segments = new ArrayList<>();
+        if (text == null) {
+            return segments;
+        }
+
+        int length = text.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int end = -1;
+            if (c == '\n' || c == '\r') {
+                end = i;
+            } else if (isTerminator(c)) {
+                int j = i + 1;
+                while (j < length && (isTerminator(text.charAt(j)) || isClosingQuote(text.charAt(j)))) {
+                    j++;
+                }
+                if (j == length || Character.isWhitespace(text.charAt(j))) {
+                    end = j;
+                } else {
+                    i = j;
+                    continue;
+                }
+            }
+
+            if (end < 0) {
+                i++;
+                continue;
+            }
+
+            int separatorEnd = end;
+            while (separatorEnd < length && Character.isWhitespace(text.charAt(separatorEnd))) {
+                separatorEnd++;
+            }
+            addSegment(segments, text.substring(start, end), text.substring(end, separatorEnd));
+            start = separatorEnd;
+            i = separatorEnd;
+        }
+
+        if (start < length) {
+            addSegment(segments, text.substring(start), "");
+        }
+        return segments;
+    }
+
+    public static String join(List<String> translatedSegments, List<Segment> segments) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            joined.append(translatedSegments.get(i)).append(segments.get(i).separator());
+        }
+        return joined.toString().trim();
+    }
+
+    private static void addSegment(List<Segment> segments, String sentence, String separator) {
+        if (sentence.isBlank()) {
+            // Blank lines only contribute whitespace to the previous sentence
+            if (!segments.isEmpty()) {
+                Segment previous = segments.remove(segments.size() - 1);
+                segments.add(new Segment(previous.text(), previous.separator() + sentence + separator));
+            }
+            return;
+        }
+        segments.add(new Segment(sentence.strip(), separator));
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '\u2026' // ellipsis
+                || c == '\u06D4' // Arabic full stop, used in Urdu and Balochi
+                || c == '\u061F'; // Arabic question mark
+    }
+
+    private static boolean isClosingQuote(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == '\u201D' || c == '\u2019' || c == '\u00BB';
+    }
+}
@@ -1,15 +1,18 @@
 package com.learnbalochi;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -19,83 +22,41 @@ public class TranslateController {
     public String ping() {
         return "pong";
     }
-    @Value("${translator.url}")
-    private String translatorUrl;
 
+    @Value("${translator.batch.max-items:100}")
+    private int maxBatchItems;
+
+    @Value("${translation.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${translation.fuzzy.serve-by-default:false}")
+    private boolean fuzzyByDefault;
+
+    @Value("${translation.http-cache.max-age:PT1H}")
+    private Duration browserMaxAge;
+
+    @Value("${translation.http-cache.shared-max-age:P1D}")
+    private Duration sharedMaxAge;
+
+    @Autowired
+    private TranslationService translationService;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private FuzzyTranslationIndex fuzzyTranslationIndex;
 
     @Autowired
-    private MyFirestoreService firestoreService; // Use your MyFirestoreService to save data
+    private TranslationVersions translationVersions;
 
     @PostMapping("/translate")
-    public ResponseEntity<Object> translateText(@RequestBody String text) throws ExecutionException, InterruptedException {
+    public ResponseEntity<Object> translateText(
+            @RequestBody String text,
+            @RequestParam(required = false) Boolean fuzzy
+    ) throws ExecutionException, InterruptedException {
         logger.info("Translate request received for text: {}", text);
-        logger.info("Translator URL configured as: {}", translatorUrl);
-        
-        // First, check if translation already exists in Firestore
-        Map<String, Object> existingTranslation = firestoreService.findTranslationByOriginalText(text);
-        
-        if (existingTranslation != null) {
-            logger.info("Found existing translation for text: {}", text);
-            Map<String, Object> responseBody = new HashMap<>();
-            responseBody.put("originalText", existingTranslation.get("originalText"));
-            responseBody.put("translatedText", existingTranslation.get("translatedText"));
-            responseBody.put("fromCache", true);
-            responseBody.put("documentId", existingTranslation.get("documentId"));
-            return ResponseEntity.ok(responseBody);
-        }
-        
-        logger.info("No existing translation found, making new translation request");
-        
-        // If no existing translation, proceed with new translation
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "balochi-translator");
-
-        List<Map<String, String>> messages = new ArrayList<>();
-        messages.add(Map.of(
-                "role", "system",
-                "content", "You are a helpful assistant that translates English sentences into Balochi."
-        ));
-        messages.add(Map.of(
-                "role", "user",
-                "content", "Translate: " + text
-        ));
-
-        requestBody.put("messages", messages);
-        requestBody.put("max_completion_tokens", 256);
-        requestBody.put("temperature", 0.6);
-        requestBody.put("use_beam_search", true);
-        requestBody.put("top_p", 0.9);
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-        ResponseEntity<Map> response = restTemplate.postForEntity(translatorUrl, request, Map.class);
-
-        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            Map<String, Object> choices = (Map<String, Object>) ((List<?>) response.getBody().get("choices")).get(0);
-            Map<String, Object> message = (Map<String, Object>) choices.get("message");
-            String rawTranslatedText = message.get("content").toString();
-            
-            // Extract the actual translated text consistently
-            String translatedText = extractTranslatedText(rawTranslatedText);
-
-            Map<String, Object> translationData = new HashMap<>();
-            translationData.put("originalText", text);
-            translationData.put("translatedText", translatedText);
-            translationData.put("timestamp", System.currentTimeMillis());
-
-            String documentId = firestoreService.addDocumentToCollection("Translations", translationData);
-
-            Map<String, Object> responseBody = new HashMap<>();
-            responseBody.put("originalText", text);
-            responseBody.put("translatedText", translatedText);
-            responseBody.put("fromCache", false);
-            responseBody.put("documentId", documentId);
-            return ResponseEntity.ok(responseBody);
+
+        TranslationResult result = translationService.translate(text, fuzzy != null ? fuzzy : fuzzyByDefault);
+        if (result != null) {
+            return ResponseEntity.ok(result.toResponse());
         }
 
         Map<String, Object> errorResponse = new HashMap<>();
@@ -104,65 +65,144 @@ public class TranslateController {
     }
 
     /**
-     * Extracts the actual translated text from the API response
-     * Handles both JSON-wrapped responses {"text":"..."} and plain text responses
+     * Cacheable read of a stored translation, for exact matches. It never calls the translator:
+     * a text with no stored translation gets 404, and POST /translate creates it. The strong ETag
+     * is the stored translation's version; a matching If-None-Match gets 304, straight from the
+     * version map when the version is known, so browsers and the CDN can revalidate cheaply.
      */
-    private String extractTranslatedText(String rawResponse) {
-        if (rawResponse == null || rawResponse.trim().isEmpty()) {
-            return rawResponse;
+    @GetMapping("/translate")
+    public ResponseEntity<Object> translateTextCacheable(
+            @RequestParam String text,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) throws ExecutionException, InterruptedException {
+        String key = TranslationKeys.documentId(text);
+        CacheControl cacheControl = CacheControl.maxAge(browserMaxAge).sMaxAge(sharedMaxAge).cachePublic();
+
+        String knownEtag = translationVersions.get(key);
+        if (translationVersions.matches(ifNoneMatch, knownEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(knownEtag).cacheControl(cacheControl).build();
         }
-        
-        String response = rawResponse.trim();
-        logger.debug("Original response: '{}'", response);
-        
-        // Remove "Balochi: " prefix if present
-        if (response.startsWith("Balochi: ")) {
-            response = response.substring("Balochi: ".length());
-            logger.debug("After removing 'Balochi: ' prefix: '{}'", response);
+
+        logger.info("Cacheable translate request received for text: {}", text);
+        TranslationResult result = translationService.findTranslation(text);
+        if (result == null) {
+            // Not cached, so the text can be read here once POST /translate has stored it
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "No stored translation, POST /translate to create one");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).cacheControl(CacheControl.noStore()).body(errorResponse);
         }
-        
-        // Check if the response is wrapped in JSON format {"text":"..."}
-        if (response.startsWith("{\"text\":\"") && response.endsWith("\"}")) {
-            try {
-                // Extract the text value from the JSON
-                String jsonText = response.substring(8, response.length() - 2); // Remove {"text":" and "}
-                logger.debug("Extracted from JSON: '{}'", jsonText);
-                
-                // Clean any remaining quotes from the extracted JSON text
-                while (jsonText.startsWith("\"")) {
-                    jsonText = jsonText.substring(1);
-                }
-                while (jsonText.endsWith("\"")) {
-                    jsonText = jsonText.substring(0, jsonText.length() - 1);
-                }
-                
-                logger.debug("After cleaning JSON text: '{}'", jsonText);
-                return jsonText.trim();
-            } catch (Exception e) {
-                logger.warn("Failed to parse JSON-wrapped translation response: {}", response, e);
-                return response;
+
+        String etag = translationVersions.put(key, result.translation());
+        if (translationVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(result.toResponse());
+    }
+
+    @GetMapping("/translate/similar")
+    public List<Map<String, Object>> findSimilarTranslations(
+            @RequestParam String text,
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(defaultValue = "0.5") double minSimilarity
+    ) {
+        if (k < 1 || k > 50) k = 5;
+
+        List<Map<String, Object>> responseBody = new ArrayList<>();
+        for (FuzzyTranslationIndex.Match match : fuzzyTranslationIndex.findSimilar(text, k, minSimilarity)) {
+            Map<String, Object> item = match.translation().toResponse(true);
+            item.put("similarity", match.similarity());
+            responseBody.add(item);
+        }
+        return responseBody;
+    }
+
+    @PostMapping("/translate/batch")
+    public ResponseEntity<Object> translateBatch(@RequestBody List<String> texts) throws ExecutionException, InterruptedException {
+        logger.info("Batch translate request received for {} texts", texts.size());
+
+        if (texts.size() > maxBatchItems) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Too many texts in batch, maximum is " + maxBatchItems);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        for (int i = 0; i < texts.size(); i++) {
+            if (texts.get(i) == null || texts.get(i).isBlank()) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Text at index " + i + " is empty");
+                return ResponseEntity.badRequest().body(errorResponse);
             }
         }
-        
-        // Remove multiple quotes at the beginning
-        int startQuotes = 0;
-        while (response.startsWith("\"")) {
-            response = response.substring(1);
-            startQuotes++;
+
+        List<TranslationResult> results = translationService.translateBatch(texts, TranslationPriority.BATCH);
+
+        List<Map<String, Object>> responseBody = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            TranslationResult result = results.get(i);
+            if (result != null) {
+                responseBody.add(result.toResponse());
+            } else {
+                Map<String, Object> itemError = new HashMap<>();
+                itemError.put("originalText", texts.get(i));
+                itemError.put("error", "Translation failed");
+                responseBody.add(itemError);
+            }
         }
-        logger.debug("Removed {} quotes from start: '{}'", startQuotes, response);
-        
-        // Remove multiple quotes at the end
-        int endQuotes = 0;
-        while (response.endsWith("\"")) {
-            response = response.substring(0, response.length() - 1);
-            endQuotes++;
+        return ResponseEntity.ok(responseBody);
+    }
+
+    /**
+     * Streams the translation as Server-Sent Events: "token" events carry raw model output as it is
+     * generated, then a "result" event carries the cleaned, stored translation.
+     */
+    @RequestMapping(value = "/translate/stream", method = {RequestMethod.GET, RequestMethod.POST}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter translateStream(
+            @RequestParam(required = false) String text,
+            @RequestBody(required = false) String body
+    ) {
+        String sourceText = text != null ? text : body;
+        logger.info("Streaming translate request received for text: {}", sourceText);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        if (sourceText == null || sourceText.isBlank()) {
+            emitter.completeWithError(new IllegalArgumentException("No text to translate"));
+            return emitter;
         }
-        logger.debug("Removed {} quotes from end: '{}'", endQuotes, response);
-        
-        // Final trim and return
-        String finalResult = response.trim();
-        logger.debug("Final cleaned text: '{}'", finalResult);
-        return finalResult;
+
+        // Once the client is gone the translation still completes and is stored
+        AtomicBoolean clientConnected = new AtomicBoolean(true);
+        emitter.onCompletion(() -> clientConnected.set(false));
+        emitter.onTimeout(() -> clientConnected.set(false));
+        emitter.onError(e -> clientConnected.set(false));
+
+        translationService.translateStreaming(sourceText, token -> {
+            if (clientConnected.get()) {
+                try {
+                    emitter.send(SseEmitter.event().name("token").data(token));
+                } catch (IOException | IllegalStateException e) {
+                    clientConnected.set(false);
+                }
+            }
+        }).whenComplete((result, error) -> {
+            if (!clientConnected.get()) {
+                return;
+            }
+            try {
+                if (error != null) {
+                    logger.error("Streaming translation failed for text: {}", sourceText, error);
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("error", "Translation failed");
+                    emitter.send(SseEmitter.event().name("error").data(errorResponse));
+                } else {
+                    emitter.send(SseEmitter.event().name("result").data(result.toResponse()));
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Client disconnected before the translation result was sent");
+            }
+        });
+        return emitter;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.learnbalochi;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+@RestController
+@RequestMapping("/api/v1/admin/translations")
+public class TranslationAdminController {
+
+    @Autowired
+    private TranslationKeyMigration translationKeyMigration;
+
+    @Autowired
+    private PreTranslationJobs preTranslationJobs;
+
+    @PostMapping("/migrate-keys")
+    public ResponseEntity<Map<String, Object>> migrateKeys() {
+        boolean started = translationKeyMigration.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(translationKeyMigration.getStatus());
+    }
+
+    @GetMapping("/migrate-keys")
+    public Map<String, Object> getMigrationStatus() {
+        return translationKeyMigration.getStatus();
+    }
+
+    @PostMapping("/pretranslate/file")
+    public ResponseEntity<Map<String, Object>> preTranslateFile(@RequestParam("file") MultipartFile file) throws IOException, ExecutionException, InterruptedException {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(preTranslationJobs.startFileJob(file));
+    }
+
+    @PostMapping("/pretranslate/collection")
+    public ResponseEntity<Map<String, Object>> preTranslateCollection(
+            @RequestParam String name,
+            @RequestParam String field
+    ) throws ExecutionException, InterruptedException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(preTranslationJobs.startCollectionJob(name, field));
+    }
+
+    @GetMapping("/pretranslate")
+    public List<Map<String, Object>> listPreTranslationJobs() {
+        return preTranslationJobs.listJobs();
+    }
+
+    @GetMapping("/pretranslate/{jobId}")
+    public ResponseEntity<Map<String, Object>> getPreTranslationJob(@PathVariable String jobId) {
+        Map<String, Object> status = preTranslationJobs.getStatus(jobId);
+
+        if (status != null) {
+            return ResponseEntity.ok(status);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/pretranslate/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelPreTranslationJob(@PathVariable String jobId) {
+        if (!preTranslationJobs.cancel(jobId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(preTranslationJobs.getStatus(jobId));
+    }
+}
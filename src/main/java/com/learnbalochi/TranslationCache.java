@@ -0,0 +1,91 @@
+package com.learnbalochi;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded, frequency-aware (W-TinyLFU) cache of translations in front of the
+ * "Translations" collection.
+ */
+@Component
+public class TranslationCache implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(TranslationCache.class);
+
+    private final Cache<String, CachedTranslation> cache;
+    private final long maxEntries;
+    private final long maxBytes;
+
+    public TranslationCache(
+            @Value("${translation.cache.max-entries:50000}") long maxEntries,
+            @Value("${translation.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${translation.cache.ttl:PT24H}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        // Caffeine bounds either by count or by weight, not both. Every entry weighs at least
+        // maxBytes / maxEntries, so the byte budget also caps the number of entries.
+        int minimumWeight = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / Math.max(1, maxEntries)));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedTranslation value) ->
+                        Math.max(minimumWeight, 2 * key.length() + value.estimatedBytes()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        logger.info("Translation cache configured with maxEntries={}, maxBytes={}, ttl={}", maxEntries, maxBytes, ttl);
+    }
+
+    /**
+     * @param key the translation's document ID, see {@link TranslationKeys#documentId(String)}
+     */
+    public CachedTranslation get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, CachedTranslation translation) {
+        if (key == null || translation == null || translation.translatedText() == null) {
+            return;
+        }
+        cache.put(key, translation);
+    }
+
+    /**
+     * @return up to limit entries the eviction policy considers most valuable, hottest first
+     */
+    public Map<String, CachedTranslation> hottest(int limit) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElse(Map.of());
+    }
+
+    @Override
+    public String metricsName() {
+        return "translationCache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hitCount", stats.hitCount());
+        metrics.put("missCount", stats.missCount());
+        metrics.put("hitRate", stats.hitRate());
+        metrics.put("evictionCount", stats.evictionCount());
+        metrics.put("evictionWeight", stats.evictionWeight());
+        metrics.put("estimatedSize", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction ->
+                eviction.weightedSize().ifPresent(weight -> metrics.put("estimatedBytes", weight)));
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("maxBytes", maxBytes);
+        return metrics;
+    }
+}
@@ -0,0 +1,195 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.*;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backfills the "Translations" collection from auto-generated IDs to content-addressed IDs.
+ * Each legacy document is copied to its keyed document (unless one exists already) and deleted.
+ * Every page is moved in one transaction, so a translation written to a keyed document meanwhile
+ * is never overwritten by its legacy copy.
+ * A completed run is recorded in Firestore, which turns off the legacy lookup fallback on every
+ * instance from its next start.
+ */
+@Component
+public class TranslationKeyMigration {
+    private static final Logger logger = LoggerFactory.getLogger(TranslationKeyMigration.class);
+    private static final int PAGE_SIZE = 200; // two writes per document, within the 500-write batch limit
+    private static final String MIGRATIONS_COLLECTION = "Migrations";
+    private static final String MIGRATION_ID = "translation-keys";
+
+    @Value("${translation.keys.legacy-fallback:true}")
+    private boolean legacyFallback;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "translation-key-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong duplicatesRemoved = new AtomicLong();
+    private final AtomicLong alreadyKeyed = new AtomicLong();
+    private volatile String lastDocumentId;
+    private volatile String lastError;
+    private volatile boolean completed;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCompletion() {
+        if (!legacyFallback || FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+        try {
+            completed = FirestoreClient.getFirestore().collection(MIGRATIONS_COLLECTION).document(MIGRATION_ID).get().get().exists();
+            if (completed) {
+                logger.info("Translation keys already migrated, legacy lookups by originalText are off");
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read the translation key migration state, keeping legacy lookups on", e);
+        }
+    }
+
+    /**
+     * Whether lookups should still fall back to querying by originalText: configured on, and no
+     * migration has completed yet.
+     */
+    public boolean legacyFallbackActive() {
+        return legacyFallback && !completed;
+    }
+
+    /**
+     * Starts the backfill in the background.
+     * @return false if a migration is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        scanned.set(0);
+        moved.set(0);
+        duplicatesRemoved.set(0);
+        alreadyKeyed.set(0);
+        lastDocumentId = null;
+        lastError = null;
+
+        executor.submit(() -> {
+            try {
+                migrate();
+                recordCompletion();
+                logger.info("Translation key migration finished, legacy lookups by originalText are off: {}", getStatus());
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                logger.error("Translation key migration failed after document {}", lastDocumentId, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("scanned", scanned.get());
+        status.put("moved", moved.get());
+        status.put("duplicatesRemoved", duplicatesRemoved.get());
+        status.put("alreadyKeyed", alreadyKeyed.get());
+        status.put("lastDocumentId", lastDocumentId);
+        status.put("error", lastError);
+        status.put("legacyFallbackActive", legacyFallbackActive());
+        return status;
+    }
+
+    private void recordCompletion() throws ExecutionException, InterruptedException {
+        Map<String, Object> record = new LinkedHashMap<>(getStatus());
+        record.remove("running");
+        record.remove("legacyFallbackActive");
+        record.put("completedAt", System.currentTimeMillis());
+        FirestoreClient.getFirestore().collection(MIGRATIONS_COLLECTION).document(MIGRATION_ID).set(record).get();
+        completed = true;
+    }
+
+    private void migrate() throws ExecutionException, InterruptedException {
+        Firestore db = FirestoreClient.getFirestore();
+        CollectionReference collection = db.collection(MyFirestoreService.TRANSLATIONS_COLLECTION);
+        DocumentSnapshot cursor = null;
+
+        while (true) {
+            Query query = collection.orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+            if (cursor != null) {
+                query = query.startAfter(cursor);
+            }
+            List<QueryDocumentSnapshot> page = query.get().get().getDocuments();
+            if (page.isEmpty()) {
+                return;
+            }
+            migratePage(db, collection, page);
+            cursor = page.get(page.size() - 1);
+            lastDocumentId = cursor.getId();
+        }
+    }
+
+    private void migratePage(Firestore db, CollectionReference collection, List<QueryDocumentSnapshot> page) throws ExecutionException, InterruptedException {
+        List<QueryDocumentSnapshot> legacyDocuments = new ArrayList<>();
+        List<DocumentReference> targets = new ArrayList<>();
+        for (QueryDocumentSnapshot document : page) {
+            scanned.incrementAndGet();
+            String originalText = document.getString("originalText");
+            String documentId = TranslationKeys.documentId(originalText);
+            if (originalText == null || documentId.equals(document.getId())) {
+                alreadyKeyed.incrementAndGet();
+                continue;
+            }
+            legacyDocuments.add(document);
+            targets.add(collection.document(documentId));
+        }
+        if (legacyDocuments.isEmpty()) {
+            return;
+        }
+
+        // Reading the keyed documents in the transaction makes a concurrent write to one of them
+        // retry the page, which then sees it exists
+        long pageMoved = db.runTransaction(transaction -> {
+            List<DocumentSnapshot> existing = transaction.getAll(targets.toArray(new DocumentReference[0])).get();
+            Map<String, Boolean> targetExists = new HashMap<>();
+            for (DocumentSnapshot snapshot : existing) {
+                targetExists.put(snapshot.getId(), snapshot.exists());
+            }
+
+            long created = 0;
+            for (int i = 0; i < legacyDocuments.size(); i++) {
+                DocumentReference target = targets.get(i);
+                if (!Boolean.TRUE.equals(targetExists.get(target.getId()))) {
+                    transaction.create(target, legacyDocuments.get(i).getData());
+                    // Later duplicates in the same page must not overwrite this one
+                    targetExists.put(target.getId(), true);
+                    created++;
+                }
+                transaction.delete(legacyDocuments.get(i).getReference());
+            }
+            return created;
+        }).get();
+        moved.addAndGet(pageMoved);
+        duplicatesRemoved.addAndGet(legacyDocuments.size() - pageMoved);
+    }
+}
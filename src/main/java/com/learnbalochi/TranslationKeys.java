@@ -0,0 +1,56 @@
+package com.learnbalochi;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization and content-addressed document IDs for the "Translations" collection.
+ */
+public final class TranslationKeys {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private TranslationKeys() {
+    }
+
+    /**
+     * Unicode NFC, collapsed whitespace, trimmed and lower-cased.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Deterministic "Translations" document ID: SHA-256 of the normalized text, hex encoded.
+     */
+    public static String documentId(String text) {
+        return sha256Hex(normalize(text));
+    }
+
+    /**
+     * Version of a stored translation, used as its HTTP entity tag. It changes exactly when the
+     * translated text does, unlike the document's update time which write-behind sets later.
+     */
+    public static String version(CachedTranslation translation) {
+        return sha256Hex(translation.documentId() + '\u0000' + translation.translatedText()).substring(0, 32);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.learnbalochi;
+
+/**
+ * Admission priority for translator calls, highest first.
+ */
+public enum TranslationPriority {
+    /** A user waiting on a single translation, including each sentence of a multi-sentence text. */
+    INTERACTIVE,
+    /** Batch API requests. */
+    BATCH,
+    /** Background pre-translation and migration work. */
+    BACKFILL
+}
@@ -0,0 +1,23 @@
+package com.learnbalochi;
+
+import java.util.Map;
+
+/**
+ * Outcome of a translation request: the translation, whether it was already stored, and for
+ * near-duplicate matches how similar the stored source text is to the request.
+ */
+public record TranslationResult(CachedTranslation translation, boolean fromCache, Double similarity) {
+
+    public TranslationResult(CachedTranslation translation, boolean fromCache) {
+        this(translation, fromCache, null);
+    }
+
+    public Map<String, Object> toResponse() {
+        Map<String, Object> responseBody = translation.toResponse(fromCache);
+        if (similarity != null) {
+            responseBody.put("fuzzyMatch", true);
+            responseBody.put("similarity", similarity);
+        }
+        return responseBody;
+    }
+}
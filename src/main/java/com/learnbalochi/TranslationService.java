@@ -0,0 +1,372 @@
+package com.learnbalochi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Resolves a translation from memory, Firestore or the translator model, in that order.
+ */
+@Service
+public class TranslationService {
+    private static final Logger logger = LoggerFactory.getLogger(TranslationService.class);
+
+    @Autowired
+    private MyFirestoreService firestoreService;
+
+    @Autowired
+    private TranslationCache translationCache;
+
+    @Autowired
+    private InFlightTranslations inFlightTranslations;
+
+    @Autowired
+    private TranslatorClient translatorClient;
+
+    @Autowired
+    private TranslationWriteBehind translationWriteBehind;
+
+    @Autowired
+    private TranslationSnapshot translationSnapshot;
+
+    @Autowired
+    private FuzzyTranslationIndex fuzzyTranslationIndex;
+
+    @Autowired
+    private DictionaryService dictionaryService;
+
+    @Value("${translation.fuzzy.serve-threshold:0.9}")
+    private double fuzzyServeThreshold;
+
+    @Value("${translation.segmentation.enabled:true}")
+    private boolean segmentationEnabled;
+
+    // Worker pool for parallel batch and backfill translator calls; its size caps their fan-out
+    private final ExecutorService translationExecutor;
+
+    // Sentences of an interactive request must not queue behind batch work before reaching the
+    // concurrency limiter, which already orders waiting calls by priority
+    private final ExecutorService interactiveExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Streamed translations hold a thread for the whole completion, so each gets a virtual thread
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TranslationService(@Value("${translator.batch.concurrency:4}") int batchConcurrency) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.translationExecutor = Executors.newFixedThreadPool(batchConcurrency, r -> {
+            Thread thread = new Thread(r, "translation-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        translationExecutor.shutdown();
+        interactiveExecutor.shutdown();
+        streamExecutor.shutdown();
+    }
+
+    /**
+     * @return the translation, or null if the translator failed to produce one.
+     */
+    public TranslationResult translate(String text) throws ExecutionException, InterruptedException {
+        return translate(text, false);
+    }
+
+    /**
+     * @param allowFuzzy whether a stored translation of a near-identical text may be returned
+     *                   instead of calling the translator
+     * @return the translation, or null if the translator failed to produce one.
+     */
+    public TranslationResult translate(String text, boolean allowFuzzy) throws ExecutionException, InterruptedException {
+        String key = TranslationKeys.documentId(text);
+
+        // Hot phrases are served from memory without a Firestore round trip
+        CachedTranslation cachedTranslation = findInMemory(key);
+        if (cachedTranslation != null) {
+            logger.info("Found in-memory translation for text: {}", text);
+            return new TranslationResult(cachedTranslation, true);
+        }
+
+        // Single words and short phrases are answered from the dictionary without a model call
+        if (dictionaryService.isShort(text)) {
+            CachedTranslation dictionaryEntry = dictionaryService.lookup(text);
+            if (dictionaryEntry != null) {
+                logger.info("Found dictionary translation for text: {}", text);
+                return new TranslationResult(dictionaryEntry, true);
+            }
+        }
+
+        if (allowFuzzy) {
+            List<FuzzyTranslationIndex.Match> matches = fuzzyTranslationIndex.findSimilar(text, 1, fuzzyServeThreshold);
+            if (!matches.isEmpty()) {
+                FuzzyTranslationIndex.Match match = matches.get(0);
+                logger.info("Serving near-duplicate translation (similarity {}) for text: {}", match.similarity(), text);
+                return new TranslationResult(match.translation(), true, match.similarity());
+            }
+        }
+
+        // Multi-sentence input is translated and cached sentence by sentence
+        List<SentenceSegmenter.Segment> segments = segmentationEnabled
+                ? SentenceSegmenter.split(text)
+                : List.of();
+
+        // Concurrent identical requests share one lookup, one model call and one write
+        TranslationResult result = inFlightTranslations.execute(key, () -> segments.size() > 1
+                ? loadSegmented(key, text, segments)
+                : load(key, text));
+        if (result != null) {
+            translationCache.put(key, result.translation());
+        }
+        return result;
+    }
+
+    /**
+     * Finds an exact stored translation in memory, the write-behind queue or Firestore, without
+     * calling the translator.
+     * @return the translation, or null if none is stored
+     */
+    public TranslationResult findTranslation(String text) throws ExecutionException, InterruptedException {
+        String key = TranslationKeys.documentId(text);
+        CachedTranslation cachedTranslation = findInMemory(key);
+        if (cachedTranslation != null) {
+            return new TranslationResult(cachedTranslation, true);
+        }
+
+        CachedTranslation storedTranslation = findStored(key, text);
+        if (storedTranslation == null) {
+            return null;
+        }
+        translationCache.put(key, storedTranslation);
+        return new TranslationResult(storedTranslation, true);
+    }
+
+    /**
+     * Translates the text with a streamed completion, passing model tokens to the consumer as they
+     * arrive. Stored translations complete immediately without any tokens.
+     */
+    public CompletableFuture<TranslationResult> translateStreaming(String text, Consumer<String> onToken) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                String key = TranslationKeys.documentId(text);
+                CachedTranslation cachedTranslation = findInMemory(key);
+                if (cachedTranslation != null) {
+                    return new TranslationResult(cachedTranslation, true);
+                }
+
+                CachedTranslation storedTranslation = findStored(key, text);
+                if (storedTranslation != null) {
+                    translationCache.put(key, storedTranslation);
+                    return new TranslationResult(storedTranslation, true);
+                }
+
+                logger.info("No existing translation found, streaming new translation");
+                String translatedText = translatorClient.translateStreaming(text, onToken);
+                CachedTranslation newTranslation = store(key, text, translatedText);
+                translationCache.put(key, newTranslation);
+                return new TranslationResult(newTranslation, false);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Streamed translation failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Streamed translation interrupted", e);
+            }
+        }, streamExecutor);
+    }
+
+    private TranslationResult load(String key, String text) throws ExecutionException, InterruptedException {
+        // Check if translation already exists in Firestore
+        CachedTranslation storedTranslation = findStored(key, text);
+
+        if (storedTranslation != null) {
+            logger.info("Found existing translation for text: {}", text);
+            return new TranslationResult(storedTranslation, true);
+        }
+
+        logger.info("No existing translation found, making new translation request");
+        String translatedText = translatorClient.translate(text, TranslationPriority.INTERACTIVE);
+        if (translatedText == null) {
+            return null;
+        }
+
+        return new TranslationResult(store(key, text, translatedText), false);
+    }
+
+    /**
+     * Looks in the translation cache, then in the warm-start snapshot left by the previous instance.
+     */
+    private CachedTranslation findInMemory(String key) {
+        CachedTranslation cachedTranslation = translationCache.get(key);
+        if (cachedTranslation == null) {
+            cachedTranslation = translationSnapshot.lookup(key);
+            if (cachedTranslation != null) {
+                translationCache.put(key, cachedTranslation);
+            }
+        }
+        return cachedTranslation;
+    }
+
+    /**
+     * Looks for a translation that is queued for writing or already in Firestore.
+     */
+    private CachedTranslation findStored(String key, String text) throws ExecutionException, InterruptedException {
+        CachedTranslation pendingTranslation = translationWriteBehind.getPending(key);
+        if (pendingTranslation != null) {
+            return pendingTranslation;
+        }
+        Map<String, Object> existingTranslation = firestoreService.findTranslationByOriginalText(text);
+        return existingTranslation != null ? CachedTranslation.fromDocument(existingTranslation) : null;
+    }
+
+    /**
+     * Hands a new translation to the write-behind queue; its document ID is known up front.
+     */
+    private CachedTranslation store(String key, String text, String translatedText) throws InterruptedException {
+        CachedTranslation newTranslation = new CachedTranslation(key, text, translatedText);
+        translationWriteBehind.enqueue(newTranslation);
+        fuzzyTranslationIndex.add(newTranslation);
+        dictionaryService.add(newTranslation);
+        return newTranslation;
+    }
+
+    private TranslationResult loadSegmented(String key, String text, List<SentenceSegmenter.Segment> segments) throws ExecutionException, InterruptedException {
+        // The paragraph itself is stored once assembled, so an exact repeat is still one point read
+        CachedTranslation storedTranslation = findStored(key, text);
+        if (storedTranslation != null) {
+            logger.info("Found existing translation for text: {}", text);
+            return new TranslationResult(storedTranslation, true);
+        }
+
+        List<String> sentences = segments.stream().map(SentenceSegmenter.Segment::text).toList();
+        logger.info("Translating text as {} segments", sentences.size());
+
+        // A sentence the limiter sheds fails the paragraph as unavailable, which is answered with 503
+        List<TranslationResult> segmentResults = translateBatch(sentences, TranslationPriority.INTERACTIVE, true);
+        List<String> translatedSentences = new ArrayList<>(segmentResults.size());
+        boolean fromCache = true;
+        for (TranslationResult segmentResult : segmentResults) {
+            if (segmentResult == null) {
+                // Report an open circuit as such rather than as a failed translation
+                translatorClient.checkAvailable();
+                return null;
+            }
+            translatedSentences.add(segmentResult.translation().translatedText());
+            fromCache &= segmentResult.fromCache();
+        }
+
+        String translatedText = SentenceSegmenter.join(translatedSentences, segments);
+        return new TranslationResult(store(key, text, translatedText), fromCache);
+    }
+
+    /**
+     * Translates many texts at once: one multi-document read for stored translations, parallel
+     * translator calls for the rest, and the new results queued for a group-committed write.
+     * @param priority admission priority of the translator calls
+     * @return one result per input text, in input order; null where the translator failed
+     */
+    public List<TranslationResult> translateBatch(List<String> texts, TranslationPriority priority) throws ExecutionException, InterruptedException {
+        return translateBatch(texts, priority, false);
+    }
+
+    /**
+     * @param throwIfUnavailable whether a call refused by the circuit breaker or the concurrency
+     *                           limiter fails the whole batch, once the translations that did
+     *                           succeed are queued, rather than leaving a null result
+     * @throws TranslatorUnavailableException if throwIfUnavailable and a call was refused
+     */
+    private List<TranslationResult> translateBatch(List<String> texts, TranslationPriority priority, boolean throwIfUnavailable) throws ExecutionException, InterruptedException {
+        Map<String, TranslationResult> resultsByKey = new HashMap<>();
+        Map<String, String> pending = new LinkedHashMap<>();
+
+        for (String text : texts) {
+            String key = TranslationKeys.documentId(text);
+            if (resultsByKey.containsKey(key) || pending.containsKey(key)) {
+                continue;
+            }
+            CachedTranslation cachedTranslation = findInMemory(key);
+            if (cachedTranslation == null) {
+                cachedTranslation = translationWriteBehind.getPending(key);
+            }
+            if (cachedTranslation != null) {
+                resultsByKey.put(key, new TranslationResult(cachedTranslation, true));
+            } else {
+                pending.put(key, text);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            Map<String, Map<String, Object>> stored = firestoreService.findTranslationsByKeys(pending);
+            for (Map.Entry<String, Map<String, Object>> entry : stored.entrySet()) {
+                CachedTranslation storedTranslation = CachedTranslation.fromDocument(entry.getValue());
+                translationCache.put(entry.getKey(), storedTranslation);
+                resultsByKey.put(entry.getKey(), new TranslationResult(storedTranslation, true));
+                pending.remove(entry.getKey());
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            logger.info("Batch translating {} of {} texts with the model", pending.size(), texts.size());
+            ExecutorService executor = priority == TranslationPriority.INTERACTIVE ? interactiveExecutor : translationExecutor;
+            Map<String, Future<String>> calls = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : pending.entrySet()) {
+                calls.put(entry.getKey(), executor.submit(() -> translatorClient.translate(entry.getValue(), priority)));
+            }
+
+            List<CachedTranslation> newTranslations = new ArrayList<>();
+            TranslatorUnavailableException unavailable = null;
+            for (Map.Entry<String, Future<String>> call : calls.entrySet()) {
+                String key = call.getKey();
+                String text = pending.get(key);
+                try {
+                    String translatedText = call.getValue().get();
+                    if (translatedText != null) {
+                        newTranslations.add(new CachedTranslation(key, text, translatedText));
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof TranslatorUnavailableException refused) {
+                        logger.warn("Batch translation refused for text: {}: {}", text, refused.getMessage());
+                        if (unavailable == null || refused.getRetryAfterSeconds() > unavailable.getRetryAfterSeconds()) {
+                            unavailable = refused;
+                        }
+                    } else {
+                        logger.error("Batch translation failed for text: {}", text, e.getCause());
+                    }
+                }
+            }
+
+            translationWriteBehind.enqueueAll(newTranslations);
+            for (CachedTranslation newTranslation : newTranslations) {
+                fuzzyTranslationIndex.add(newTranslation);
+                dictionaryService.add(newTranslation);
+                translationCache.put(newTranslation.documentId(), newTranslation);
+                resultsByKey.put(newTranslation.documentId(), new TranslationResult(newTranslation, false));
+            }
+            if (unavailable != null && throwIfUnavailable) {
+                throw unavailable;
+            }
+        }
+
+        List<TranslationResult> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(resultsByKey.get(TranslationKeys.documentId(text)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,340 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically writes the hottest cached translations to a compact binary file, and memory-maps
+ * that file on startup so a fresh instance serves popular phrases before its cache has warmed up.
+ *
+ * File layout (big-endian): magic, format version, created-at millis, entry count; then a sorted
+ * index of (64-bit key prefix, record offset); then records of length-prefixed UTF-8 document ID,
+ * original text and translated text.
+ */
+@Component
+public class TranslationSnapshot implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(TranslationSnapshot.class);
+    private static final int MAGIC = 0x4C425453; // "LBTS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int INDEX_ENTRY_BYTES = 8 + 4;
+
+    @Autowired
+    private TranslationCache translationCache;
+
+    @Value("${translation.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${translation.snapshot.path:data/translation-cache.snapshot}")
+    private Path snapshotPath;
+
+    @Value("${translation.snapshot.max-entries:20000}")
+    private int maxEntries;
+
+    @Value("${translation.snapshot.max-age:P7D}")
+    private Duration maxAge;
+
+    private volatile MappedByteBuffer mapped;
+    private volatile int entryCount;
+    private volatile long createdAtMillis;
+    // Keys written after the snapshot was taken, found at startup or stored since; the snapshot must not answer for them
+    private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
+    // Until staleKeys is complete no hit can be trusted, so lookups miss
+    private volatile boolean stalenessChecked;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong snapshotsWritten = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.isRegularFile(snapshotPath)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                logger.warn("Ignoring translation snapshot {} with unknown format", snapshotPath);
+                return;
+            }
+            long created = buffer.getLong(8);
+            if (System.currentTimeMillis() - created > maxAge.toMillis()) {
+                logger.info("Ignoring translation snapshot {} older than {}", snapshotPath, maxAge);
+                return;
+            }
+            int count = buffer.getInt(16);
+            if (!isValid(buffer, count)) {
+                logger.warn("Ignoring truncated or corrupt translation snapshot {}", snapshotPath);
+                return;
+            }
+            createdAtMillis = created;
+            entryCount = count;
+            mapped = buffer;
+            logger.info("Memory-mapped translation snapshot {} with {} entries", snapshotPath, entryCount);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            logger.warn("Could not load translation snapshot {}", snapshotPath, e);
+            return;
+        }
+        CompletableFuture.runAsync(this::checkStaleness);
+    }
+
+    /**
+     * Checks that the index is sorted and that every record it points to lies within the file, so
+     * lookups never read past the end of a truncated or corrupt snapshot.
+     */
+    static boolean isValid(ByteBuffer buffer, int count) {
+        int limit = buffer.limit();
+        if (count < 0 || count > (limit - HEADER_BYTES) / INDEX_ENTRY_BYTES) {
+            return false;
+        }
+        int recordsStart = HEADER_BYTES + count * INDEX_ENTRY_BYTES;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && indexPrefix(buffer, i - 1) > indexPrefix(buffer, i)) {
+                return false;
+            }
+            long offset = indexOffset(buffer, i);
+            if (offset < recordsStart) {
+                return false;
+            }
+            for (int f = 0; f < 3; f++) {
+                if (offset + 4 > limit) {
+                    return false;
+                }
+                int length = buffer.getInt((int) offset);
+                if (length < 0 || offset + 4 + length > limit) {
+                    return false;
+                }
+                offset += 4 + length;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the snapshot answering for a key whose translation is being stored, so a newer
+     * translation is never shadowed by the one in the snapshot.
+     */
+    public void invalidate(String key) {
+        if (mapped != null) {
+            staleKeys.add(key);
+        }
+    }
+
+    /**
+     * Marks every translation written since the snapshot was taken as stale. If the check fails
+     * the snapshot is never served.
+     */
+    private void checkStaleness() {
+        if (FirebaseApp.getApps().isEmpty()) {
+            // Nothing can have been written since: there is no store to write to
+            stalenessChecked = true;
+            return;
+        }
+        try {
+            List<QueryDocumentSnapshot> changed = FirestoreClient.getFirestore()
+                    .collection(MyFirestoreService.TRANSLATIONS_COLLECTION)
+                    .whereGreaterThan("timestamp", createdAtMillis)
+                    .select("timestamp")
+                    .get().get().getDocuments();
+            for (QueryDocumentSnapshot document : changed) {
+                staleKeys.add(document.getId());
+            }
+            stalenessChecked = true;
+            logger.info("Translation snapshot staleness check: {} keys changed since snapshot", staleKeys.size());
+        } catch (Exception e) {
+            logger.warn("Translation snapshot staleness check failed, not serving from the snapshot", e);
+        }
+    }
+
+    /**
+     * @return the snapshot's translation for the key, or null
+     */
+    public CachedTranslation lookup(String key) {
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null || !stalenessChecked || staleKeys.contains(key)) {
+            return null;
+        }
+        long prefix = keyPrefix(key);
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compare(indexPrefix(buffer, mid), prefix);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                // Walk back to the first entry with this prefix, then check each full key
+                while (mid > 0 && indexPrefix(buffer, mid - 1) == prefix) {
+                    mid--;
+                }
+                for (int i = mid; i < entryCount && indexPrefix(buffer, i) == prefix; i++) {
+                    CachedTranslation translation = readRecord(buffer, indexOffset(buffer, i));
+                    if (key.equals(translation.documentId())) {
+                        hits.incrementAndGet();
+                        return translation;
+                    }
+                }
+                break;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    @Scheduled(initialDelayString = "${translation.snapshot.interval:PT10M}", fixedDelayString = "${translation.snapshot.interval:PT10M}")
+    public void scheduledWrite() {
+        if (enabled) {
+            write();
+        }
+    }
+
+    @PreDestroy
+    public void writeOnShutdown() {
+        if (enabled) {
+            write();
+        }
+    }
+
+    /**
+     * Writes the hottest cached translations to a temporary file and atomically replaces the snapshot.
+     */
+    public void write() {
+        Map<String, CachedTranslation> hottest = translationCache.hottest(maxEntries);
+        if (hottest.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, CachedTranslation>> entries = new ArrayList<>(hottest.entrySet());
+        entries.sort((a, b) -> Long.compare(keyPrefix(a.getKey()), keyPrefix(b.getKey())));
+
+        List<byte[][]> records = new ArrayList<>(entries.size());
+        int recordBytes = 0;
+        for (Map.Entry<String, CachedTranslation> entry : entries) {
+            byte[][] fields = {
+                    entry.getKey().getBytes(StandardCharsets.UTF_8),
+                    nullToEmpty(entry.getValue().originalText()).getBytes(StandardCharsets.UTF_8),
+                    nullToEmpty(entry.getValue().translatedText()).getBytes(StandardCharsets.UTF_8)
+            };
+            records.add(fields);
+            recordBytes += 12 + fields[0].length + fields[1].length + fields[2].length;
+        }
+
+        int indexBytes = entries.size() * INDEX_ENTRY_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + indexBytes + recordBytes);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(System.currentTimeMillis()).putInt(entries.size());
+
+        int offset = HEADER_BYTES + indexBytes;
+        for (int i = 0; i < entries.size(); i++) {
+            buffer.putLong(keyPrefix(entries.get(i).getKey())).putInt(offset);
+            byte[][] fields = records.get(i);
+            offset += 12 + fields[0].length + fields[1].length + fields[2].length;
+        }
+        for (byte[][] fields : records) {
+            for (byte[] field : fields) {
+                buffer.putInt(field.length).put(field);
+            }
+        }
+        buffer.flip();
+
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "translation-cache", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotsWritten.incrementAndGet();
+            logger.info("Wrote translation snapshot {} with {} entries", snapshotPath, entries.size());
+        } catch (IOException e) {
+            logger.warn("Could not write translation snapshot {}", snapshotPath, e);
+        }
+    }
+
+    private static long indexPrefix(ByteBuffer buffer, int i) {
+        return buffer.getLong(HEADER_BYTES + i * INDEX_ENTRY_BYTES);
+    }
+
+    private static int indexOffset(ByteBuffer buffer, int i) {
+        return buffer.getInt(HEADER_BYTES + i * INDEX_ENTRY_BYTES + 8);
+    }
+
+    private static CachedTranslation readRecord(ByteBuffer buffer, int offset) {
+        String[] fields = new String[3];
+        for (int f = 0; f < fields.length; f++) {
+            int length = buffer.getInt(offset);
+            byte[] bytes = new byte[length];
+            buffer.get(offset + 4, bytes);
+            fields[f] = new String(bytes, StandardCharsets.UTF_8);
+            offset += 4 + length;
+        }
+        return new CachedTranslation(fields[0], fields[1], fields[2]);
+    }
+
+    /**
+     * First 64 bits of the hex SHA-256 document ID; collisions are resolved by the full key.
+     */
+    private static long keyPrefix(String key) {
+        try {
+            return Long.parseUnsignedLong(key.substring(0, Math.min(16, key.length())), 16);
+        } catch (NumberFormatException e) {
+            return key.hashCode();
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    @Override
+    public String metricsName() {
+        return "translationSnapshot";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("loaded", mapped != null);
+        metrics.put("entries", entryCount);
+        metrics.put("createdAt", createdAtMillis);
+        metrics.put("stalenessChecked", stalenessChecked);
+        metrics.put("staleKeys", staleKeys.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("snapshotsWritten", snapshotsWritten.get());
+        return metrics;
+    }
+}
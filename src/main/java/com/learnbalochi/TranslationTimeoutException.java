@@ -0,0 +1,11 @@
+package com.learnbalochi;
+
+/**
+ * Thrown when a caller gives up waiting for a translation that another request is producing.
+ */
+public class TranslationTimeoutException extends RuntimeException {
+
+    public TranslationTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,82 @@
+package com.learnbalochi;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Document ID to current ETag of the translations recently served over GET. Entries are only a
+ * few dozen bytes, so far more of them fit than in the translation cache, and a conditional GET
+ * that matches one is answered with 304 without loading the translation at all.
+ */
+@Component
+public class TranslationVersions implements MetricsSource {
+
+    private final Cache<String, String> versions;
+    private final AtomicLong notModified = new AtomicLong();
+
+    public TranslationVersions(
+            @Value("${translation.etag.max-entries:200000}") long maxEntries,
+            @Value("${translation.etag.fresh-for:PT1H}") Duration freshFor) {
+        // Past freshFor the version is re-read, so a changed translation is picked up eventually
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(freshFor)
+                .build();
+    }
+
+    /**
+     * @return the quoted ETag last served for the document, or null if it is not fresh
+     */
+    public String get(String key) {
+        return versions.getIfPresent(key);
+    }
+
+    /**
+     * Records and returns the quoted ETag for the translation.
+     */
+    public String put(String key, CachedTranslation translation) {
+        String etag = "\"" + TranslationKeys.version(translation) + "\"";
+        versions.put(key, etag);
+        return etag;
+    }
+
+    /**
+     * Weak comparison against an If-None-Match header, as RFC 9110 requires for GET.
+     */
+    public boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                notModified.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String metricsName() {
+        return "translationVersions";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", versions.estimatedSize());
+        metrics.put("notModified", notModified.get());
+        return metrics;
+    }
+}
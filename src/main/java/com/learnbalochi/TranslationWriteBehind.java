@@ -0,0 +1,196 @@
+package com.learnbalochi;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists new translations off the response path. Translations are queued and group-committed
+ * to "Translations" in write batches when the batch fills up or the flush interval passes.
+ * Document IDs are content-addressed, so callers know the ID before the write happens.
+ */
+@Component
+public class TranslationWriteBehind implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(TranslationWriteBehind.class);
+    // Firestore's limit on the writes in one WriteBatch
+    static final int MAX_BATCH_SIZE = 500;
+
+    @Autowired
+    private MyFirestoreService firestoreService;
+
+    @Autowired
+    private TranslationSnapshot translationSnapshot;
+
+    @Value("${translation.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${translation.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${translation.write-behind.flush-interval:PT0.5S}")
+    private Duration flushInterval;
+
+    @Value("${translation.write-behind.enqueue-timeout:PT0.2S}")
+    private Duration enqueueTimeout;
+
+    @Value("${translation.write-behind.max-retries:5}")
+    private int maxRetries;
+
+    private BlockingQueue<CachedTranslation> queue;
+    // Queued or committing translations, so lookups see them before Firestore does
+    private final Map<String, CachedTranslation> pending = new ConcurrentHashMap<>();
+    private Thread writer;
+    private volatile boolean running;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong synchronousWrites = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (batchSize > MAX_BATCH_SIZE) {
+            logger.warn("translation.write-behind.batch-size {} is above Firestore's {} writes per batch, using {}", batchSize, MAX_BATCH_SIZE, MAX_BATCH_SIZE);
+            batchSize = MAX_BATCH_SIZE;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::run, "translation-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a translation for persistence. When the queue stays full past the enqueue timeout the
+     * translation is written synchronously, which slows producers down to the writer's pace. That
+     * write is attempted once, without backoff, so it never holds the request thread for long.
+     */
+    public void enqueue(CachedTranslation translation) throws InterruptedException {
+        pending.put(translation.documentId(), translation);
+        translationSnapshot.invalidate(translation.documentId());
+        if (running && queue.offer(translation, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            enqueued.incrementAndGet();
+            return;
+        }
+        synchronousWrites.incrementAndGet();
+        commit(List.of(translation), 0);
+    }
+
+    public void enqueueAll(List<CachedTranslation> translations) throws InterruptedException {
+        for (CachedTranslation translation : translations) {
+            enqueue(translation);
+        }
+    }
+
+    /**
+     * @return a translation that is queued but may not be in Firestore yet, or null
+     */
+    public CachedTranslation getPending(String key) {
+        return pending.get(key);
+    }
+
+    private void run() {
+        List<CachedTranslation> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CachedTranslation first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Group commit: keep collecting until the batch is full or the flush interval has passed
+                long flushAt = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    long remaining = flushAt - System.nanoTime();
+                    CachedTranslation next = remaining > 0 && running
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch, maxRetries);
+                batch.clear();
+            } catch (InterruptedException e) {
+                logger.warn("Translation write-behind interrupted with {} translations still queued", queue.size() + batch.size());
+                return;
+            }
+        }
+    }
+
+    private void commit(List<CachedTranslation> batch, int retryLimit) throws InterruptedException {
+        long backoffMs = 100;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                firestoreService.saveTranslations(batch);
+                committed.addAndGet(batch.size());
+                batches.incrementAndGet();
+                break;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= retryLimit) {
+                    dropped.addAndGet(batch.size());
+                    logger.error("Dropping {} translations after {} failed write attempts", batch.size(), attempt + 1, e);
+                    break;
+                }
+                retries.incrementAndGet();
+                logger.warn("Translation batch write failed (attempt {}), retrying in {} ms", attempt + 1, backoffMs, e);
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, 10_000);
+            }
+        }
+        for (CachedTranslation translation : batch) {
+            pending.remove(translation.documentId(), translation);
+        }
+    }
+
+    /**
+     * Stops accepting queued writes and flushes everything still pending before shutdown.
+     */
+    @PreDestroy
+    public void flush() throws InterruptedException {
+        // The writer notices within one flush interval, then drains the queue without waiting
+        running = false;
+        writer.join(Duration.ofSeconds(30).toMillis());
+        logger.info("Translation write-behind stopped with {} translations still queued", queue.size());
+    }
+
+    @Override
+    public String metricsName() {
+        return "translationWriteBehind";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queued", queue.size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("enqueued", enqueued.get());
+        metrics.put("committed", committed.get());
+        metrics.put("batches", batches.get());
+        metrics.put("retries", retries.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("synchronousWrites", synchronousWrites.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,238 @@
+package com.learnbalochi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Calls the OpenAI-compatible balochi-translator model and cleans up its output.
+ */
+@Component
+public class TranslatorClient {
+    private static final Logger logger = LoggerFactory.getLogger(TranslatorClient.class);
+
+    @Autowired
+    @Qualifier("translatorRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CircuitBreaker translatorCircuitBreaker;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter translatorConcurrencyLimiter;
+
+    @Autowired
+    private ReplicaBalancer translatorBalancer;
+
+    /**
+     * Translates the text with the model.
+     * @return the cleaned translation, or null if the translator did not return one.
+     * @throws TranslatorUnavailableException if the circuit breaker is open or the translator is saturated
+     */
+    public String translate(String text, TranslationPriority priority) {
+        return callWithinLimits(priority, true, () -> callTranslator(text));
+    }
+
+    /**
+     * @throws TranslatorUnavailableException if the circuit breaker is open
+     */
+    public void checkAvailable() {
+        translatorCircuitBreaker.checkAvailable();
+    }
+
+    private String callTranslator(String text) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(buildRequestBody(text), headers);
+        ResponseEntity<Map> response = translatorBalancer.execute(
+                translatorUrl -> restTemplate.postForEntity(translatorUrl, request, Map.class));
+
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            Map<String, Object> choices = (Map<String, Object>) ((List<?>) response.getBody().get("choices")).get(0);
+            Map<String, Object> message = (Map<String, Object>) choices.get("message");
+            String rawTranslatedText = message.get("content").toString();
+
+            // Extract the actual translated text consistently
+            return extractTranslatedText(rawTranslatedText);
+        }
+        return null;
+    }
+
+    /**
+     * Translates the text with stream=true, passing each content delta to the consumer as it arrives.
+     * @return the cleaned translation assembled from all deltas.
+     * @throws TranslatorUnavailableException if the circuit breaker is open or the translator is saturated
+     */
+    public String translateStreaming(String text, Consumer<String> onToken) {
+        // A stream lasts as long as the model keeps generating, so its duration says nothing
+        // about upstream load and is kept out of the limiter's latency samples
+        return callWithinLimits(TranslationPriority.INTERACTIVE, false, () -> callTranslatorStreaming(text, onToken));
+    }
+
+    /**
+     * Takes the circuit breaker's permission before queueing for a limiter permit, so an open
+     * circuit fails fast and breaker rejections never reach the limiter's samples. A call the
+     * limiter turns away hands its breaker permission back.
+     */
+    private String callWithinLimits(TranslationPriority priority, boolean sampled, Supplier<String> call) {
+        translatorCircuitBreaker.acquirePermission();
+        boolean[] admitted = new boolean[1];
+        try {
+            return translatorConcurrencyLimiter.execute(priority, sampled, () -> {
+                admitted[0] = true;
+                return translatorCircuitBreaker.executePermitted(call);
+            });
+        } finally {
+            if (!admitted[0]) {
+                translatorCircuitBreaker.releasePermission();
+            }
+        }
+    }
+
+    private String callTranslatorStreaming(String text, Consumer<String> onToken) {
+        Map<String, Object> requestBody = buildRequestBody(text);
+        requestBody.put("stream", true);
+        // Beam search cannot emit partial output, so streamed completions sample instead
+        requestBody.put("use_beam_search", false);
+
+        // Tokens already sent to the client cannot be taken back, so streamed calls are never hedged
+        String rawTranslatedText = translatorBalancer.executeWithoutHedging(translatorUrl -> restTemplate.execute(translatorUrl, HttpMethod.POST,
+                request -> {
+                    request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                    objectMapper.writeValue(request.getBody(), requestBody);
+                },
+                response -> {
+                    StringBuilder assembled = new StringBuilder();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.startsWith("data:")) {
+                            continue;
+                        }
+                        String data = line.substring("data:".length()).trim();
+                        if ("[DONE]".equals(data)) {
+                            break;
+                        }
+                        JsonNode delta = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+                        if (delta.isTextual() && !delta.asText().isEmpty()) {
+                            assembled.append(delta.asText());
+                            onToken.accept(delta.asText());
+                        }
+                    }
+                    return assembled.toString();
+                }));
+
+        return extractTranslatedText(rawTranslatedText);
+    }
+
+    public Map<String, Object> buildRequestBody(String text) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "balochi-translator");
+
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(Map.of(
+                "role", "system",
+                "content", "You are a helpful assistant that translates English sentences into Balochi."
+        ));
+        messages.add(Map.of(
+                "role", "user",
+                "content", "Translate: " + text
+        ));
+
+        requestBody.put("messages", messages);
+        requestBody.put("max_completion_tokens", 256);
+        requestBody.put("temperature", 0.6);
+        requestBody.put("use_beam_search", true);
+        requestBody.put("top_p", 0.9);
+        return requestBody;
+    }
+
+    /**
+     * Extracts the actual translated text from the API response
+     * Handles both JSON-wrapped responses {"text":"..."} and plain text responses
+     */
+    public String extractTranslatedText(String rawResponse) {
+        if (rawResponse == null || rawResponse.trim().isEmpty()) {
+            return rawResponse;
+        }
+        
+        String response = rawResponse.trim();
+        logger.debug("Original response: '{}'", response);
+        
+        // Remove "Balochi: " prefix if present
+        if (response.startsWith("Balochi: ")) {
+            response = response.substring("Balochi: ".length());
+            logger.debug("After removing 'Balochi: ' prefix: '{}'", response);
+        }
+        
+        // Check if the response is wrapped in JSON format {"text":"..."}
+        if (response.startsWith("{\"text\":\"") && response.endsWith("\"}")) {
+            try {
+                // Extract the text value from the JSON
+                String jsonText = response.substring(8, response.length() - 2); // Remove {"text":" and "}
+                logger.debug("Extracted from JSON: '{}'", jsonText);
+                
+                // Clean any remaining quotes from the extracted JSON text
+                while (jsonText.startsWith("\"")) {
+                    jsonText = jsonText.substring(1);
+                }
+                while (jsonText.endsWith("\"")) {
+                    jsonText = jsonText.substring(0, jsonText.length() - 1);
+                }
+                
+                logger.debug("After cleaning JSON text: '{}'", jsonText);
+                return jsonText.trim();
+            } catch (Exception e) {
+                logger.warn("Failed to parse JSON-wrapped translation response: {}", response, e);
+                return response;
+            }
+        }
+        
+        // Remove multiple quotes at the beginning
+        int startQuotes = 0;
+        while (response.startsWith("\"")) {
+            response = response.substring(1);
+            startQuotes++;
+        }
+        logger.debug("Removed {} quotes from start: '{}'", startQuotes, response);
+        
+        // Remove multiple quotes at the end
+        int endQuotes = 0;
+        while (response.endsWith("\"")) {
+            response = response.substring(0, response.length() - 1);
+            endQuotes++;
+        }
+        logger.debug("Removed {} quotes from end: '{}'", endQuotes, response);
+        
+        // Final trim and return
+        String finalResult = response.trim();
+        logger.debug("Final cleaned text: '{}'", finalResult);
+        return finalResult;
+    }
+}
@@ -0,0 +1,17 @@
+package com.learnbalochi;
+
+/**
+ * Thrown instead of calling the translator when it is known to be unhealthy or overloaded.
+ */
+public class TranslatorUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TranslatorUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
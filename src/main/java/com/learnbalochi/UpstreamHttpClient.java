@@ -0,0 +1,176 @@
+package com.learnbalochi;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A RestTemplate for one upstream service, backed by its own keep-alive connection pool with
+ * explicit timeouts, and recording per-upstream latency and pool saturation.
+ */
+public class UpstreamHttpClient implements ClientHttpRequestInterceptor, MetricsSource, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamHttpClient.class);
+    private static final long[] LATENCY_BUCKETS_MS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    /**
+     * Pool and timeout settings, read from "{prefix}.http.*" properties.
+     */
+    public record Settings(int maxConnections, int maxConnectionsPerRoute, Duration connectTimeout,
+                           Duration readTimeout, Duration responseTimeout, Duration poolAcquireTimeout,
+                           Duration keepAlive) {
+
+        public static Settings from(Environment env, String prefix) {
+            String p = prefix + ".http.";
+            int maxConnections = env.getProperty(p + "max-connections", Integer.class, 50);
+            return new Settings(
+                    maxConnections,
+                    env.getProperty(p + "max-connections-per-route", Integer.class, maxConnections),
+                    env.getProperty(p + "connect-timeout", Duration.class, Duration.ofSeconds(2)),
+                    env.getProperty(p + "read-timeout", Duration.class, Duration.ofSeconds(30)),
+                    env.getProperty(p + "response-timeout", Duration.class, Duration.ofSeconds(60)),
+                    env.getProperty(p + "pool-acquire-timeout", Duration.class, Duration.ofSeconds(5)),
+                    env.getProperty(p + "keep-alive", Duration.class, Duration.ofSeconds(30)));
+        }
+    }
+
+    private final String name;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+
+    public UpstreamHttpClient(String name, Settings settings) {
+        this.name = name;
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(settings.poolAcquireTimeout()))
+                        .setResponseTimeout(Timeout.of(settings.responseTimeout()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(settings.keepAlive()))
+                .evictIdleConnections(TimeValue.of(settings.keepAlive()))
+                .build();
+
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+                ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+                // Lets a hedged call's loser be aborted mid-flight rather than left to finish
+                if (request instanceof Cancellable cancellable) {
+                    RequestCancellation.register(cancellable);
+                }
+                return request;
+            }
+        });
+        this.restTemplate.getInterceptors().add(this);
+        logger.info("Configured HTTP client for upstream '{}': {}", name, settings);
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getStatusCode().is5xxServerError()) {
+                failures.incrementAndGet();
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            recordLatency((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void recordLatency(long latencyMs) {
+        totalLatencyMs.addAndGet(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS_MS.length && latencyMs > LATENCY_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    @Override
+    public String metricsName() {
+        return "upstream." + name;
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long requestCount = requests.get();
+        metrics.put("requests", requestCount);
+        metrics.put("failures", failures.get());
+        metrics.put("meanLatencyMs", requestCount == 0 ? 0 : totalLatencyMs.get() / requestCount);
+        metrics.put("maxLatencyMs", maxLatencyMs.get());
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            histogram.put("le" + LATENCY_BUCKETS_MS[i] + "ms", latencyBuckets.get(i));
+        }
+        histogram.put("gt" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms", latencyBuckets.get(LATENCY_BUCKETS_MS.length));
+        metrics.put("latencyHistogram", histogram);
+
+        PoolStats pool = connectionManager.getTotalStats();
+        metrics.put("poolLeased", pool.getLeased());
+        metrics.put("poolAvailable", pool.getAvailable());
+        metrics.put("poolPending", pool.getPending());
+        metrics.put("poolMax", pool.getMax());
+        metrics.put("poolSaturation", pool.getMax() == 0 ? 0.0 : (double) pool.getLeased() / pool.getMax());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(int limit, int maxQueueSize, Duration deadline) {
+        Map<TranslationPriority, Duration> deadlines = new EnumMap<>(TranslationPriority.class);
+        for (TranslationPriority priority : TranslationPriority.values()) {
+            deadlines.put(priority, deadline);
+        }
+        return new AdaptiveConcurrencyLimiter("test", new AdaptiveConcurrencyLimiter.Settings(
+                limit, 1, limit, 1.5, maxQueueSize, deadlines));
+    }
+
+    private static int metric(AdaptiveConcurrencyLimiter limiter, String name) {
+        return ((Number) limiter.metrics().get(name)).intValue();
+    }
+
+    private static void awaitQueued(AdaptiveConcurrencyLimiter limiter, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metric(limiter, "queued") < queued) {
+            assertTrue(System.nanoTime() < deadline, "callers did not queue");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Occupies one permit until the returned latch is counted down.
+     */
+    private static CountDownLatch hold(AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread.startVirtualThread(() -> limiter.execute(TranslationPriority.BATCH, () -> {
+            admitted.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    void admitsQueuedCallersByPriority() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 10, Duration.ofSeconds(10));
+        CountDownLatch release = hold(limiter);
+        List<TranslationPriority> admissionOrder = new CopyOnWriteArrayList<>();
+
+        Thread backfill = Thread.startVirtualThread(() ->
+                limiter.execute(TranslationPriority.BACKFILL, () -> admissionOrder.add(TranslationPriority.BACKFILL)));
+        awaitQueued(limiter, 1);
+        Thread interactive = Thread.startVirtualThread(() ->
+                limiter.execute(TranslationPriority.INTERACTIVE, () -> admissionOrder.add(TranslationPriority.INTERACTIVE)));
+        awaitQueued(limiter, 2);
+
+        release.countDown();
+        backfill.join(5000);
+        interactive.join(5000);
+
+        assertEquals(List.of(TranslationPriority.INTERACTIVE, TranslationPriority.BACKFILL), admissionOrder);
+        assertEquals(0, metric(limiter, "inFlight"));
+    }
+
+    @Test
+    void rejectsCallersWhenTheQueueIsFull() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(10));
+        CountDownLatch release = hold(limiter);
+        Thread queued = Thread.startVirtualThread(() -> limiter.execute(TranslationPriority.BATCH, () -> "queued"));
+        awaitQueued(limiter, 1);
+
+        assertThrows(TranslatorUnavailableException.class,
+                () -> limiter.execute(TranslationPriority.INTERACTIVE, () -> "rejected"));
+        assertEquals(1, metric(limiter, "rejectedQueueFull"));
+
+        release.countDown();
+        queued.join(5000);
+    }
+
+    @Test
+    void rejectsCallersStillQueuedAtTheirDeadline() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 10, Duration.ofMillis(50));
+        CountDownLatch release = hold(limiter);
+
+        assertThrows(TranslatorUnavailableException.class,
+                () -> limiter.execute(TranslationPriority.INTERACTIVE, () -> "too late"));
+        assertEquals(1, metric(limiter, "rejectedDeadline"));
+        assertEquals(0, metric(limiter, "queued"));
+
+        release.countDown();
+    }
+
+    @Test
+    void tryAcquireOnlyTakesAFreePermit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 10, Duration.ofSeconds(10));
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.releaseUnsampled();
+        assertTrue(limiter.tryAcquire());
+        limiter.releaseUnsampled();
+
+        // Not ahead of callers that are already waiting
+        CountDownLatch release = hold(limiter);
+        Thread queued = Thread.startVirtualThread(() -> limiter.execute(TranslationPriority.BACKFILL, () -> "queued"));
+        awaitQueued(limiter, 1);
+        assertFalse(limiter.tryAcquire());
+
+        release.countDown();
+        queued.join(5000);
+        assertEquals(0, metric(limiter, "inFlight"));
+    }
+
+    @Test
+    void failuresShrinkTheLimitUnlessUnsampled() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 10, Duration.ofSeconds(10));
+        Runnable failing = () -> {
+            throw new IllegalStateException("upstream failed");
+        };
+
+        assertThrows(IllegalStateException.class, () -> limiter.execute(TranslationPriority.INTERACTIVE, false, () -> {
+            failing.run();
+            return null;
+        }));
+        assertEquals(10, metric(limiter, "limit"));
+
+        assertThrows(IllegalStateException.class, () -> limiter.execute(TranslationPriority.INTERACTIVE, () -> {
+            failing.run();
+            return null;
+        }));
+        assertEquals(9, metric(limiter, "limit"));
+        assertEquals(0, metric(limiter, "inFlight"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+    private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+    private static CircuitBreaker breaker(int window, int halfOpenProbes, Duration slowCallDuration) {
+        return new CircuitBreaker("test", new CircuitBreaker.Settings(
+                window, window, 0.5, 0.5, slowCallDuration, OPEN_DURATION, halfOpenProbes));
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        assertThrows(IllegalStateException.class, () -> breaker.execute(() -> {
+            throw new IllegalStateException("upstream failed");
+        }));
+    }
+
+    private static void open(CircuitBreaker breaker) {
+        breaker.execute(() -> "ok");
+        fail(breaker);
+        fail(breaker);
+        breaker.execute(() -> "ok");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void opensWhenTheFailureRateCrossesTheThresholdAndFailsFast() {
+        CircuitBreaker breaker = breaker(4, 1, Duration.ofSeconds(10));
+        breaker.execute(() -> "ok");
+        fail(breaker);
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "below minimum calls");
+
+        breaker.execute(() -> "ok");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(TranslatorUnavailableException.class, () -> breaker.execute(calls::incrementAndGet));
+        assertThrows(TranslatorUnavailableException.class, breaker::checkAvailable);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void clientErrorsDoNotCountAsFailures() {
+        CircuitBreaker breaker = breaker(4, 1, Duration.ofSeconds(10));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpClientErrorException.class, () -> breaker.execute(() -> {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensWhenCallsAreSlow() {
+        CircuitBreaker breaker = breaker(2, 1, Duration.ofMillis(1));
+        for (int i = 0; i < 2; i++) {
+            breaker.execute(() -> {
+                sleep(10);
+                return "ok";
+            });
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void closesAfterEnoughSuccessfulProbes() {
+        CircuitBreaker breaker = breaker(4, 2, Duration.ofSeconds(10));
+        open(breaker);
+        sleep(OPEN_DURATION.toMillis() + 20);
+
+        breaker.execute(() -> "probe");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.execute(() -> "probe");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() {
+        CircuitBreaker breaker = breaker(4, 2, Duration.ofSeconds(10));
+        open(breaker);
+        sleep(OPEN_DURATION.toMillis() + 20);
+
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(TranslatorUnavailableException.class, () -> breaker.execute(() -> "ok"));
+    }
+
+    @Test
+    void releasedPermissionFreesTheProbeSlot() {
+        CircuitBreaker breaker = breaker(4, 1, Duration.ofSeconds(10));
+        open(breaker);
+        sleep(OPEN_DURATION.toMillis() + 20);
+
+        breaker.acquirePermission();
+        assertThrows(TranslatorUnavailableException.class, breaker::acquirePermission);
+
+        breaker.releasePermission();
+        breaker.acquirePermission();
+        breaker.executePermitted(() -> "probe");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
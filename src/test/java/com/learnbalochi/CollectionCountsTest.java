@@ -0,0 +1,114 @@
+package com.learnbalochi;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.firestore.AggregateQuery;
+import com.google.cloud.firestore.AggregateQuerySnapshot;
+import com.google.cloud.firestore.Query;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollectionCountsTest {
+
+    /**
+     * A query whose count() aggregation answers with the next of the given counts each time.
+     */
+    private static Query countingQuery(long first, long... rest) {
+        AggregateQuerySnapshot firstSnapshot = mock(AggregateQuerySnapshot.class);
+        when(firstSnapshot.getCount()).thenReturn(first);
+        AggregateQuery aggregate = mock(AggregateQuery.class);
+        var stubbing = when(aggregate.get()).thenReturn(ApiFutures.immediateFuture(firstSnapshot));
+        for (long count : rest) {
+            AggregateQuerySnapshot snapshot = mock(AggregateQuerySnapshot.class);
+            when(snapshot.getCount()).thenReturn(count);
+            stubbing = stubbing.thenReturn(ApiFutures.immediateFuture(snapshot));
+        }
+        Query query = mock(Query.class);
+        when(query.count()).thenReturn(aggregate);
+        return query;
+    }
+
+    @Test
+    void repeatedCountIsServedFromTheCacheAsApproximate() throws Exception {
+        CollectionCounts counts = new CollectionCounts(Duration.ofMinutes(1), true);
+        Query query = countingQuery(12, 13);
+
+        assertEquals(new CollectionCounts.Count(12, false), counts.count("Poems", "fileName", query));
+        assertEquals(new CollectionCounts.Count(12, true), counts.count("Poems", "fileName", query));
+        verify(query, times(1)).count();
+        assertEquals(1L, counts.metrics().get("cacheHits"));
+    }
+
+    @Test
+    void everyCountIsExactWhenApproximationIsOff() throws Exception {
+        CollectionCounts counts = new CollectionCounts(Duration.ofMinutes(1), false);
+        Query query = countingQuery(12, 13);
+
+        assertEquals(new CollectionCounts.Count(12, false), counts.count("Poems", "fileName", query));
+        assertEquals(new CollectionCounts.Count(13, false), counts.count("Poems", "fileName", query));
+        assertEquals(2L, counts.metrics().get("aggregations"));
+    }
+
+    @Test
+    void filtersAreCountedSeparately() throws Exception {
+        CollectionCounts counts = new CollectionCounts(Duration.ofMinutes(1), true);
+
+        counts.count("Poems", "fileName", countingQuery(12));
+        counts.count("Poems", "public", countingQuery(5));
+
+        assertEquals(new CollectionCounts.Count(12, true), counts.count("Poems", "fileName", countingQuery(99)));
+        assertEquals(new CollectionCounts.Count(5, true), counts.count("Poems", "public", countingQuery(99)));
+    }
+
+    @Test
+    void invalidateDropsOnlyThatCollectionsCounts() throws Exception {
+        CollectionCounts counts = new CollectionCounts(Duration.ofMinutes(1), true);
+        counts.count("Poems", "fileName", countingQuery(12));
+        counts.count("Poems", "public", countingQuery(5));
+        counts.count("PoemsArchive", "fileName", countingQuery(7));
+
+        counts.invalidate("Poems");
+
+        assertEquals(new CollectionCounts.Count(13, false), counts.count("Poems", "fileName", countingQuery(13)));
+        assertEquals(new CollectionCounts.Count(6, false), counts.count("Poems", "public", countingQuery(6)));
+        assertEquals(new CollectionCounts.Count(7, true), counts.count("PoemsArchive", "fileName", countingQuery(99)));
+    }
+
+    @Test
+    void countStartedBeforeAWriteIsNotCached() throws Exception {
+        CollectionCounts counts = new CollectionCounts(Duration.ofMinutes(1), true);
+        SettableApiFuture<AggregateQuerySnapshot> inFlight = SettableApiFuture.create();
+        AggregateQuery aggregate = mock(AggregateQuery.class);
+        when(aggregate.get()).thenReturn(inFlight);
+        Query query = mock(Query.class);
+        when(query.count()).thenReturn(aggregate);
+
+        CompletableFuture<CollectionCounts.Count> before = counts.countAsync("Poems", "fileName", query);
+        counts.invalidate("Poems");
+        AggregateQuerySnapshot snapshot = mock(AggregateQuerySnapshot.class);
+        when(snapshot.getCount()).thenReturn(12L);
+        inFlight.set(snapshot);
+
+        assertEquals(new CollectionCounts.Count(12, false), before.get());
+        assertEquals(new CollectionCounts.Count(13, false), counts.count("Poems", "fileName", countingQuery(13)));
+    }
+
+    @Test
+    void expiredCountIsRecomputed() throws Exception {
+        CollectionCounts counts = new CollectionCounts(Duration.ofMillis(20), true);
+        Query query = countingQuery(12, 13);
+
+        counts.count("Poems", "fileName", query);
+        Thread.sleep(50);
+
+        assertEquals(new CollectionCounts.Count(13, false), counts.count("Poems", "fileName", query));
+    }
+}
@@ -0,0 +1,66 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DictionaryTrieTest {
+
+    private static DictionaryTrie trie(String... keys) {
+        Map<String, CachedTranslation> entries = new LinkedHashMap<>();
+        for (String key : keys) {
+            entries.put(key, new CachedTranslation("id-" + key, key, "translated " + key));
+        }
+        return DictionaryTrie.build(entries);
+    }
+
+    private static List<String> keys(List<CachedTranslation> translations) {
+        return translations.stream().map(CachedTranslation::originalText).toList();
+    }
+
+    @Test
+    void findsExactKeysOnly() {
+        DictionaryTrie trie = trie("water", "waterfall", "wind");
+
+        assertEquals(3, trie.size());
+        assertEquals("translated water", trie.get("water").translatedText());
+        assertEquals("translated waterfall", trie.get("waterfall").translatedText());
+        assertNull(trie.get("wat"), "a prefix of a key is not a key");
+        assertNull(trie.get("waters"));
+        assertNull(trie.get(""));
+    }
+
+    @Test
+    void completesShortestFirstThenAlphabetically() {
+        DictionaryTrie trie = trie("salamati", "salt", "sal", "salam", "sun");
+
+        assertEquals(List.of("sal", "salt", "salam", "salamati"), keys(trie.complete("sal", 10)));
+        assertEquals(List.of("sal", "salt"), keys(trie.complete("sal", 2)));
+        assertEquals(List.of("sun"), keys(trie.complete("su", 10)));
+        assertTrue(trie.complete("x", 10).isEmpty());
+    }
+
+    @Test
+    void handlesArabicScriptKeys() {
+        // "salaam" and "salaamati"
+        DictionaryTrie trie = trie("\u0633\u0644\u0627\u0645", "\u0633\u0644\u0627\u0645\u062A\u06CC");
+
+        assertEquals("translated \u0633\u0644\u0627\u0645", trie.get("\u0633\u0644\u0627\u0645").translatedText());
+        assertEquals(List.of("\u0633\u0644\u0627\u0645", "\u0633\u0644\u0627\u0645\u062A\u06CC"), keys(trie.complete("\u0633\u0644", 10)));
+    }
+
+    @Test
+    void emptyTrieFindsNothing() {
+        DictionaryTrie trie = DictionaryTrie.empty();
+
+        assertEquals(0, trie.size());
+        assertNull(trie.get("water"));
+        assertTrue(trie.complete("", 10).isEmpty());
+    }
+}
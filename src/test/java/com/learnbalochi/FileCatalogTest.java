@@ -0,0 +1,209 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Feeds listener snapshots to the catalog directly, the way the Firestore listener thread does.
+ */
+class FileCatalogTest {
+    private static final String COLLECTION = "inpage_converted_files";
+
+    private FileCatalog catalog;
+    // Every document the collection currently holds, for the snapshots' full document list
+    private final Map<String, QueryDocumentSnapshot> collection = new HashMap<>();
+    private final List<String> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        catalog = new FileCatalog();
+        ReflectionTestUtils.setField(catalog, "enabled", true);
+        ReflectionTestUtils.setField(catalog, "collectionName", COLLECTION);
+        // Long enough that a failed listener is never resubscribed during a test
+        ReflectionTestUtils.setField(catalog, "resubscribeDelayMs", 3_600_000L);
+        ReflectionTestUtils.setField(catalog, "awaitingFullSnapshot", true);
+        catalog.addChangeListener(new FileCatalog.ChangeListener() {
+            @Override
+            public void onFileChanged(String documentId, Map<String, Object> data) {
+                events.add("changed " + documentId);
+            }
+
+            @Override
+            public void onFileRemoved(String documentId) {
+                events.add("removed " + documentId);
+            }
+
+            @Override
+            public void onSnapshotApplied() {
+                events.add("applied");
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.stop();
+    }
+
+    private static Map<String, Object> file(String fileName, boolean isPublic) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("fileName", fileName);
+        data.put("authorName", List.of("Gul Khan Naseer"));
+        data.put("category", "poetry");
+        data.put("isPublic", isPublic);
+        data.put("uploaderUid", "uid-1");
+        return data;
+    }
+
+    private QueryDocumentSnapshot document(String documentId, Map<String, Object> data) {
+        QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+        when(document.getId()).thenReturn(documentId);
+        when(document.getData()).thenReturn(data);
+        return document;
+    }
+
+    private DocumentChange added(String documentId, Map<String, Object> data) {
+        QueryDocumentSnapshot document = document(documentId, data);
+        collection.put(documentId, document);
+        return change(DocumentChange.Type.ADDED, document);
+    }
+
+    private DocumentChange modified(String documentId, Map<String, Object> data) {
+        QueryDocumentSnapshot document = document(documentId, data);
+        collection.put(documentId, document);
+        return change(DocumentChange.Type.MODIFIED, document);
+    }
+
+    private DocumentChange removed(String documentId) {
+        return change(DocumentChange.Type.REMOVED, collection.remove(documentId));
+    }
+
+    private static DocumentChange change(DocumentChange.Type type, QueryDocumentSnapshot document) {
+        DocumentChange change = mock(DocumentChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getDocument()).thenReturn(document);
+        return change;
+    }
+
+    private void deliver(DocumentChange... changes) throws Exception {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocumentChanges()).thenReturn(List.of(changes));
+        when(snapshot.getDocuments()).thenReturn(new ArrayList<>(collection.values()));
+        onSnapshot(snapshot, null);
+    }
+
+    private void onSnapshot(QuerySnapshot snapshot, FirestoreException error) throws Exception {
+        Method onSnapshot = FileCatalog.class.getDeclaredMethod("onSnapshot", QuerySnapshot.class, FirestoreException.class);
+        onSnapshot.setAccessible(true);
+        onSnapshot.invoke(catalog, snapshot, error);
+    }
+
+    private List<String> listedIds() {
+        return catalog.listAll().stream().map(FileMetadata::documentId).toList();
+    }
+
+    @Test
+    void servesOnlyOnceTheInitialSnapshotIsApplied() throws Exception {
+        assertFalse(catalog.serves(COLLECTION));
+
+        deliver(added("b", file("Shair.inp", true)), added("a", file("Daptar.inp", false)));
+
+        assertTrue(catalog.serves(COLLECTION));
+        assertTrue(catalog.servesSearch(COLLECTION));
+        assertFalse(catalog.serves("other_collection"));
+        assertEquals(List.of("a", "b"), listedIds());
+        assertEquals(List.of("changed b", "changed a", "applied"), events);
+    }
+
+    @Test
+    void appliesModificationsAndRemovalsIncrementally() throws Exception {
+        deliver(added("a", file("Daptar.inp", true)), added("b", file("Shair.inp", true)));
+
+        deliver(modified("a", file("Zand.inp", true)));
+        assertEquals(List.of("b", "a"), listedIds());
+        assertEquals("Zand.inp", catalog.get("a").fileName());
+
+        deliver(removed("b"));
+        assertEquals(List.of("a"), listedIds());
+        assertFalse(catalog.contains("b"));
+        assertTrue(events.contains("removed b"));
+    }
+
+    @Test
+    void searchAndPrivacyUseTheAppliedMetadata() throws Exception {
+        deliver(added("a", file("Daptar.inp", true)), added("b", file("Shair.inp", false)));
+
+        assertEquals(List.of("a", "b"), catalog.matches("naseer", null, false).stream().map(FileMetadata::documentId).toList());
+        assertEquals(List.of("b"), catalog.matches("shair", null, false).stream().map(FileMetadata::documentId).toList());
+        assertEquals(List.of("a"), catalog.matches("", null, true).stream().map(FileMetadata::documentId).toList());
+        assertEquals(List.of("a", "b"), catalog.matches("", "uid-1", true).stream().map(FileMetadata::documentId).toList());
+    }
+
+    @Test
+    void inlineContentTurnsOffSearchFromMemory() throws Exception {
+        Map<String, Object> inline = file("Daptar.inp", true);
+        inline.put("content", "The whole text in one field");
+
+        deliver(added("a", inline));
+
+        assertTrue(catalog.serves(COLLECTION));
+        assertFalse(catalog.servesSearch(COLLECTION));
+    }
+
+    @Test
+    void failedListenerStopsServingUntilResynced() throws Exception {
+        deliver(added("a", file("Daptar.inp", true)), added("b", file("Shair.inp", true)));
+
+        onSnapshot(null, mock(FirestoreException.class));
+
+        assertFalse(catalog.serves(COLLECTION));
+        assertEquals(1L, catalog.metrics().get("listenerFailures"));
+    }
+
+    @Test
+    void resyncDropsFilesDeletedWhileDisconnected() throws Exception {
+        deliver(added("a", file("Daptar.inp", true)), added("b", file("Shair.inp", true)));
+        onSnapshot(null, mock(FirestoreException.class));
+
+        // A new listener's first snapshot lists the whole collection as added; "b" is gone
+        collection.remove("b");
+        ReflectionTestUtils.setField(catalog, "awaitingFullSnapshot", true);
+        deliver(added("a", file("Daptar.inp", true)), added("c", file("Zand.inp", true)));
+
+        assertTrue(catalog.serves(COLLECTION));
+        assertEquals(List.of("a", "c"), listedIds());
+        assertNull(catalog.get("b"));
+        assertTrue(events.contains("removed b"));
+    }
+
+    @Test
+    void keysetPagesFollowTheAppliedOrder() throws Exception {
+        deliver(added("a", file("Daptar.inp", true)), added("b", file("Daptar.inp", true)), added("c", file("Shair.inp", true)));
+
+        PaginatedResponse first = catalog.listAfter(null, 2, null, false);
+        PaginatedResponse second = catalog.listAfter(first.getNextPageToken(), 2, null, false);
+
+        assertEquals(List.of("a", "b"), first.getData().stream().map(item -> ((FileMetadata) item).documentId()).toList());
+        assertEquals(List.of("c"), second.getData().stream().map(item -> ((FileMetadata) item).documentId()).toList());
+        assertNull(second.getNextPageToken());
+    }
+}
@@ -0,0 +1,55 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileContentStoreTest {
+
+    @Test
+    void chunksJoinBackToTheContent() {
+        String content = "line of converted text\n".repeat(1000);
+
+        List<String> chunks = FileContentStore.split(content, 1000);
+
+        assertEquals(content, String.join("", chunks));
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.length() <= 1000));
+    }
+
+    @Test
+    void breaksAtALineBreakNearTheEndOfAChunk() {
+        String content = "a".repeat(95) + "\n" + "b".repeat(50);
+
+        List<String> chunks = FileContentStore.split(content, 100);
+
+        assertEquals(List.of("a".repeat(95) + "\n", "b".repeat(50)), chunks);
+    }
+
+    @Test
+    void cutsAtTheLimitWhenTheLastLineBreakIsTooEarly() {
+        String content = "a".repeat(10) + "\n" + "b".repeat(150);
+
+        List<String> chunks = FileContentStore.split(content, 100);
+
+        assertEquals(100, chunks.get(0).length());
+        assertEquals(content, String.join("", chunks));
+    }
+
+    @Test
+    void neverSplitsASurrogatePair() {
+        String emoji = "\uD83D\uDE00"; // one code point, two chars
+        String content = "a".repeat(99) + emoji + "b";
+
+        List<String> chunks = FileContentStore.split(content, 100);
+
+        assertEquals(List.of("a".repeat(99), emoji + "b"), chunks);
+    }
+
+    @Test
+    void emptyContentHasNoChunks() {
+        assertTrue(FileContentStore.split("", 100).isEmpty());
+    }
+}
@@ -0,0 +1,163 @@
+package com.learnbalochi;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.cloud.FirestoreClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Lists files through {@link MyFirestoreService}, so the listing queries run with their
+ * {@link FileMetadata#FIELDS} projection, and checks that every page carries the same metadata
+ * as the whole documents, chunk layout fields included. Seeds a throwaway collection with
+ * chunked files and one file in the single-field layout, then deletes it.
+ *
+ * Runs against the Firestore emulator (firebase emulators:start --only firestore) and is skipped
+ * unless FIRESTORE_EMULATOR_HOST is set.
+ */
+@EnabledIfEnvironmentVariable(named = "FIRESTORE_EMULATOR_HOST", matches = ".+")
+class FileListingEmulatorTest {
+    private static final int CHUNKED_FILES = 11;
+    private static final int PAGE_SIZE = 4;
+
+    private static FirebaseApp app;
+    private static Firestore db;
+    private static String collectionName;
+    private static MyFirestoreService service;
+    private static List<FileMetadata> expected;
+    private static final Map<String, String> contents = new HashMap<>();
+
+    @BeforeAll
+    static void seed() throws Exception {
+        if (FirebaseApp.getApps().isEmpty()) {
+            app = FirebaseApp.initializeApp(FirebaseOptions.builder()
+                    .setProjectId("demo-learnbalochi")
+                    .setCredentials(GoogleCredentials.create(new AccessToken("owner", null)))
+                    .build());
+        }
+        db = FirestoreClient.getFirestore();
+        collectionName = "listing_check_" + System.currentTimeMillis();
+        service = service();
+
+        for (int i = 0; i < CHUNKED_FILES; i++) {
+            // Repeated names so documentId has to break ties
+            String content = ("Chapter " + i + ". ").repeat(150 * (i + 1));
+            String documentId = service.addDocumentWithContent(collectionName, file("file-" + (i % 4) + ".inp", i), content);
+            contents.put(documentId, content);
+        }
+        // A file uploaded before content was chunked
+        Map<String, Object> singleField = file("file-0.inp", CHUNKED_FILES);
+        singleField.put("content", "The whole text in one field");
+        String documentId = service.addDocumentToCollection(collectionName, singleField);
+        contents.put(documentId, "The whole text in one field");
+
+        expected = new ArrayList<>();
+        CollectionReference collection = db.collection(collectionName);
+        for (DocumentSnapshot document : collection.get().get().getDocuments()) {
+            expected.add(FileMetadata.from(document));
+        }
+        expected.sort(Comparator.comparing(FileMetadata::fileName).thenComparing(FileMetadata::documentId));
+    }
+
+    @AfterAll
+    static void delete() throws Exception {
+        if (service == null) {
+            return;
+        }
+        for (String documentId : contents.keySet()) {
+            service.deleteDocumentInCollection(collectionName, documentId);
+        }
+        if (app != null) {
+            app.delete();
+        }
+    }
+
+    private static MyFirestoreService service() {
+        FileContentStore fileContentStore = new FileContentStore();
+        ReflectionTestUtils.setField(fileContentStore, "chunkChars", 1000);
+        ReflectionTestUtils.setField(fileContentStore, "chunksPerBatch", 8);
+
+        FileCatalog fileCatalog = mock(FileCatalog.class);
+        MyFirestoreService service = new MyFirestoreService();
+        ReflectionTestUtils.setField(service, "collectionCounts", new CollectionCounts(Duration.ofSeconds(30), false));
+        ReflectionTestUtils.setField(service, "fileContentStore", fileContentStore);
+        ReflectionTestUtils.setField(service, "fileCatalog", fileCatalog);
+        ReflectionTestUtils.setField(service, "searchIndex", mock(SearchIndex.class));
+        ReflectionTestUtils.setField(service, "searchResultCache", new SearchResultCache(fileCatalog, 10_000, Duration.ofMinutes(1)));
+        return service;
+    }
+
+    private static Map<String, Object> file(String fileName, int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("fileName", fileName);
+        data.put("authorName", List.of("Author " + i));
+        data.put("description", "File " + i);
+        data.put("category", "poetry");
+        data.put("isPublic", i % 2 == 0);
+        data.put("uploaderUid", "uid-" + (i % 3));
+        data.put("uploadDate", 1_700_000_000_000L + i);
+        return data;
+    }
+
+    @Test
+    void keysetPagesCarryTheMetadataOfTheWholeDocuments() throws Exception {
+        List<Object> listed = new ArrayList<>();
+        String pageToken = null;
+        do {
+            PaginatedResponse page = service.getDocumentsWithoutContentPage(collectionName, pageToken, PAGE_SIZE);
+            listed.addAll(page.getData());
+            assertEquals(expected.size(), page.getPagination().getTotalElements());
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+
+        assertEquals(expected, listed);
+    }
+
+    @Test
+    void offsetPagesCarryTheMetadataOfTheWholeDocuments() throws Exception {
+        List<Object> listed = new ArrayList<>();
+        int pages = (expected.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int page = 1; page <= pages; page++) {
+            listed.addAll(service.getAllDocumentsFromCollectionPaginated(collectionName, page, PAGE_SIZE).getData());
+        }
+
+        assertEquals(expected, listed);
+    }
+
+    @Test
+    void listedChunkLayoutMatchesTheStoredContent() throws Exception {
+        PaginatedResponse page = service.getDocumentsWithoutContentPage(collectionName, null, expected.size());
+
+        for (Object listed : page.getData()) {
+            FileMetadata metadata = (FileMetadata) listed;
+            String content = contents.get(metadata.documentId());
+            Map<String, Object> document = service.getDocumentById(collectionName, metadata.documentId());
+            assertEquals(content, document.get("content"));
+            if (metadata.contentChunks() == null) {
+                assertNull(metadata.contentLength());
+            } else {
+                assertEquals((long) content.length(), metadata.contentLength());
+                assertEquals((long) (content.length() + 999) / 1000, metadata.contentChunks());
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.learnbalochi;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares one listing call that reads whole documents and strips "content" (the old path)
+ * with one that selects {@link FileMetadata#FIELDS} (the projected path): bytes that would
+ * cross the network, and bytes allocated on the heap to decode and map the results.
+ * Decoding is simulated by building the field strings from their UTF-8 bytes.
+ *
+ * Not a unit test; run its main method after test-compile, optionally with
+ * [documents] [content characters per document].
+ */
+public class FileListingProjectionBenchmark {
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int contentChars = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        List<Map<String, byte[]>> stored = storedDocuments(documents, contentChars);
+
+        // Warm up both paths before measuring
+        for (int i = 0; i < 5; i++) {
+            listFull(stored);
+            listProjected(stored);
+        }
+
+        long fullWire = wireBytes(stored, true);
+        long projectedWire = wireBytes(stored, false);
+        long fullAllocated = allocatedPerCall(() -> listFull(stored));
+        long projectedAllocated = allocatedPerCall(() -> listProjected(stored));
+
+        System.out.printf("%d documents, %d content characters each%n", documents, contentChars);
+        System.out.printf("%-10s %15s %15s%n", "", "wire bytes", "allocated bytes");
+        System.out.printf("%-10s %15d %15d%n", "full", fullWire, fullAllocated);
+        System.out.printf("%-10s %15d %15d%n", "projected", projectedWire, projectedAllocated);
+        System.out.printf("%-10s %15d %15d%n", "saved", fullWire - projectedWire, fullAllocated - projectedAllocated);
+    }
+
+    private static List<Map<String, Object>> listFull(List<Map<String, byte[]>> stored) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int i = 0; i < stored.size(); i++) {
+            Map<String, Object> documentData = decode(stored.get(i), true);
+            Map<String, Object> documentWithoutContent = new HashMap<>(documentData);
+            documentWithoutContent.remove("content");
+            documentWithoutContent.put("documentId", "doc" + i);
+            result.add(documentWithoutContent);
+        }
+        return result;
+    }
+
+    private static List<FileMetadata> listProjected(List<Map<String, byte[]>> stored) {
+        List<FileMetadata> result = new ArrayList<>();
+        for (int i = 0; i < stored.size(); i++) {
+            result.add(FileMetadata.fromData("doc" + i, decode(stored.get(i), false)));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> decode(Map<String, byte[]> document, boolean withContent) {
+        Map<String, Object> data = new HashMap<>();
+        for (Map.Entry<String, byte[]> field : document.entrySet()) {
+            if (withContent || !field.getKey().equals("content")) {
+                data.put(field.getKey(), new String(field.getValue(), StandardCharsets.UTF_8));
+            }
+        }
+        data.put("isPublic", Boolean.TRUE);
+        data.put("uploadDate", 1_700_000_000_000L);
+        return data;
+    }
+
+    private static long wireBytes(List<Map<String, byte[]>> stored, boolean withContent) {
+        long bytes = 0;
+        for (Map<String, byte[]> document : stored) {
+            for (Map.Entry<String, byte[]> field : document.entrySet()) {
+                if (withContent || !field.getKey().equals("content")) {
+                    bytes += field.getKey().length() + field.getValue().length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long allocatedPerCall(Runnable call) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private static List<Map<String, byte[]>> storedDocuments(int count, int contentChars) {
+        // Balochi text in Arabic script: two bytes per character in UTF-8
+        String content = "\u0628\u0644\u0648\u0686\u06CC ".repeat(contentChars / 6 + 1).substring(0, contentChars);
+        List<Map<String, byte[]>> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, byte[]> document = new HashMap<>();
+            document.put("fileName", ("file-" + i + ".inp").getBytes(StandardCharsets.UTF_8));
+            document.put("authorName", ("Author " + i).getBytes(StandardCharsets.UTF_8));
+            document.put("description", "A converted InPage document".getBytes(StandardCharsets.UTF_8));
+            document.put("category", "poetry".getBytes(StandardCharsets.UTF_8));
+            document.put("uploaderEmail", ("user" + i + "@example.com").getBytes(StandardCharsets.UTF_8));
+            document.put("uploaderUid", ("uid-" + i).getBytes(StandardCharsets.UTF_8));
+            document.put("content", content.getBytes(StandardCharsets.UTF_8));
+            documents.add(document);
+        }
+        return documents;
+    }
+}
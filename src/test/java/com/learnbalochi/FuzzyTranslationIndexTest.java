@@ -0,0 +1,69 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyTranslationIndexTest {
+
+    private static FuzzyTranslationIndex index(boolean enabled, String... originalTexts) {
+        FuzzyTranslationIndex index = new FuzzyTranslationIndex();
+        ReflectionTestUtils.setField(index, "enabled", enabled);
+        for (int i = 0; i < originalTexts.length; i++) {
+            index.add(new CachedTranslation("doc-" + i, originalTexts[i], "translation " + i));
+        }
+        return index;
+    }
+
+    private static List<String> documentIds(List<FuzzyTranslationIndex.Match> matches) {
+        return matches.stream().map(match -> match.translation().documentId()).toList();
+    }
+
+    @Test
+    void findsNearDuplicatesIgnoringCaseAndPunctuation() {
+        FuzzyTranslationIndex index = index(true,
+                "The weather is very nice today",
+                "Where is the nearest hospital",
+                "My brother works in the city");
+
+        List<FuzzyTranslationIndex.Match> matches = index.findSimilar("the weather is very nice today!", 5, 0.8);
+
+        assertEquals(List.of("doc-0"), documentIds(matches));
+        assertTrue(matches.get(0).similarity() > 0.95);
+    }
+
+    @Test
+    void ranksCloserTextsFirstAndStopsAtK() {
+        FuzzyTranslationIndex index = index(true,
+                "I am going to the market tomorrow morning",
+                "I am going to the market tomorrow",
+                "I am going to the market",
+                "The children are playing outside");
+
+        List<FuzzyTranslationIndex.Match> matches = index.findSimilar("I am going to the market tomorrow", 2, 0.3);
+
+        assertEquals(2, matches.size());
+        assertEquals("doc-1", matches.get(0).translation().documentId());
+        assertTrue(matches.get(0).similarity() >= matches.get(1).similarity());
+        assertFalse(documentIds(matches).contains("doc-3"));
+    }
+
+    @Test
+    void unrelatedTextHasNoMatches() {
+        FuzzyTranslationIndex index = index(true, "The weather is very nice today");
+
+        assertTrue(index.findSimilar("Please close the door", 5, 0.5).isEmpty());
+    }
+
+    @Test
+    void disabledIndexMatchesNothing() {
+        FuzzyTranslationIndex index = index(false, "The weather is very nice today");
+
+        assertTrue(index.findSimilar("The weather is very nice today", 5, 0.0).isEmpty());
+    }
+}
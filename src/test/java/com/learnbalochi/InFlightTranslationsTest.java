@@ -0,0 +1,142 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightTranslationsTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static InFlightTranslations inFlight(long waitTimeoutMs) {
+        InFlightTranslations inFlight = new InFlightTranslations();
+        ReflectionTestUtils.setField(inFlight, "waitTimeoutMs", waitTimeoutMs);
+        return inFlight;
+    }
+
+    private static void awaitCoalesced(InFlightTranslations inFlight, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Long) inFlight.metrics().get("coalescedCalls") < expected) {
+            assertTrue(System.nanoTime() < deadline, "follower never joined the in-flight call");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Starts a leader whose loader blocks until the returned latch is released.
+     */
+    private Future<String> blockedLeader(InFlightTranslations inFlight, CountDownLatch started, CountDownLatch release, AtomicInteger loads) {
+        return executor.submit(() -> inFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return "leader";
+        }));
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        InFlightTranslations inFlight = inFlight(5_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> leader = blockedLeader(inFlight, started, release, loads);
+        started.await();
+        Future<String> follower = executor.submit(() -> inFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            return "follower";
+        }));
+        awaitCoalesced(inFlight, 1);
+        release.countDown();
+
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("leader", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, inFlight.metrics().get("inFlight"));
+    }
+
+    @Test
+    void finishedCallIsNotReused() throws Exception {
+        InFlightTranslations inFlight = inFlight(5_000);
+
+        assertEquals("first", inFlight.execute("key", () -> "first"));
+        assertEquals("second", inFlight.execute("key", () -> "second"));
+        assertEquals(2L, inFlight.metrics().get("leaderCalls"));
+    }
+
+    @Test
+    void followerGivesUpAfterTheTimeoutWithoutCancellingTheLeader() throws Exception {
+        InFlightTranslations inFlight = inFlight(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> leader = blockedLeader(inFlight, started, release, loads);
+        started.await();
+
+        assertThrows(TranslationTimeoutException.class, () -> inFlight.execute("key", () -> "follower"));
+        release.countDown();
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, inFlight.metrics().get("waitTimeouts"));
+    }
+
+    @Test
+    void followerTakesOverWhenTheLeaderIsInterrupted() throws Exception {
+        InFlightTranslations inFlight = inFlight(5_000);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> leader = blockedLeader(inFlight, started, new CountDownLatch(1), loads);
+        started.await();
+        Future<String> follower = executor.submit(() -> inFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            return "follower";
+        }));
+        awaitCoalesced(inFlight, 1);
+        leader.cancel(true);
+
+        assertEquals("follower", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+        assertEquals(1L, inFlight.metrics().get("cancelledLeaders"));
+    }
+
+    @Test
+    void leaderFailureReachesTheFollowers() throws Exception {
+        InFlightTranslations inFlight = inFlight(5_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> inFlight.execute("key", () -> {
+            started.countDown();
+            release.await();
+            throw new IllegalStateException("upstream failed");
+        }));
+        started.await();
+        Future<String> follower = executor.submit(() -> inFlight.execute("key", () -> "follower"));
+        awaitCoalesced(inFlight, 1);
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+        ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, followerFailure.getCause());
+    }
+}
@@ -0,0 +1,47 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageTokenTest {
+
+    @Test
+    void roundTripsTheSortKey() {
+        PageToken token = new PageToken("\u0628\u0644\u0648\u0686\u06CC file.inp", "abc123");
+
+        assertEquals(token, PageToken.decode(token.encode()));
+    }
+
+    @Test
+    void encodedTokenIsUrlSafe() {
+        String encoded = new PageToken("a/b+c?d=e", "id").encode();
+
+        assertEquals(encoded, encoded.replaceAll("[^A-Za-z0-9_-]", ""));
+    }
+
+    @Test
+    void rejectsTokensItDidNotIssue() {
+        assertThrows(InvalidPageTokenException.class, () -> PageToken.decode("not a token!"));
+        assertThrows(InvalidPageTokenException.class, () -> PageToken.decode(""));
+        assertThrows(InvalidPageTokenException.class, () -> PageToken.decode(new PageToken("file", "").encode()));
+    }
+
+    @Test
+    void fileAndLogTokensAreNotInterchangeable() {
+        String logToken = new LogPageToken("2024-05-01T10:00:00Z", "log-1").encode();
+        String fileToken = new PageToken("file.inp", "doc-1").encode();
+
+        assertThrows(InvalidPageTokenException.class, () -> PageToken.decode(logToken));
+        assertThrows(InvalidPageTokenException.class, () -> LogPageToken.decode(fileToken));
+    }
+
+    @Test
+    void logTokenRoundTripsTheSortKey() {
+        LogPageToken token = new LogPageToken("2024-05-01T10:00:00.123Z", "log-1");
+
+        assertEquals(token, LogPageToken.decode(token.encode()));
+        assertThrows(InvalidPageTokenException.class, () -> LogPageToken.decode(new LogPageToken("", "log-1").encode()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class PreTranslationJobsTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static PreTranslationJobs.Job runningFileJob() {
+        PreTranslationJobs.Job job = new PreTranslationJobs.Job("job-1", PreTranslationJobs.SourceType.FILE,
+                null, null, "book.txt", NOW - 60_000);
+        job.status = PreTranslationJobs.Status.RUNNING;
+        job.total = 1200;
+        job.position = 450;
+        job.processed = 440;
+        job.skipped = 10;
+        job.translated = 400;
+        job.failed = 40;
+        job.chunkCount = 3;
+        job.owner = "instance-a";
+        job.leaseExpiresAt = NOW + 300_000;
+        job.updatedAt = NOW;
+        return job;
+    }
+
+    @Test
+    void checkpointRestoresTheProgress() {
+        PreTranslationJobs.Job job = runningFileJob();
+
+        PreTranslationJobs.Job resumed = PreTranslationJobs.Job.fromDocument(job.id, job.toDocument());
+
+        assertEquals(job.toDocument(), resumed.toDocument());
+        assertEquals(450, resumed.position);
+        assertEquals(3, resumed.chunkCount);
+        assertNull(resumed.source);
+        assertTrue(resumed.isActive());
+    }
+
+    @Test
+    void collectionJobResumesAfterItsCursor() {
+        PreTranslationJobs.Job job = new PreTranslationJobs.Job("job-2", PreTranslationJobs.SourceType.COLLECTION,
+                "Poems", "content", "Poems", NOW);
+        job.cursor = "doc-42";
+
+        PreTranslationJobs.Job resumed = PreTranslationJobs.Job.fromDocument(job.id, job.toDocument());
+
+        assertEquals("Poems", resumed.source);
+        assertEquals("content", resumed.field);
+        assertEquals("doc-42", resumed.cursor);
+        assertEquals(PreTranslationJobs.Status.QUEUED, resumed.status);
+    }
+
+    @Test
+    void jobIsClaimableOnceItsLeaseRunsOut() {
+        Map<String, Object> document = runningFileJob().toDocument();
+
+        assertFalse(PreTranslationJobs.claimable(document, NOW));
+        assertTrue(PreTranslationJobs.claimable(document, NOW + 300_000));
+    }
+
+    @Test
+    void finishedJobsAreNeverClaimable() {
+        PreTranslationJobs.Job job = runningFileJob();
+        job.leaseExpiresAt = 0;
+
+        for (PreTranslationJobs.Status status : List.of(PreTranslationJobs.Status.COMPLETED,
+                PreTranslationJobs.Status.CANCELLED, PreTranslationJobs.Status.FAILED)) {
+            job.status = status;
+            assertFalse(PreTranslationJobs.claimable(job.toDocument(), NOW), status.name());
+        }
+    }
+
+    @Test
+    void jobCheckpointedBeforeLeasesIsClaimable() {
+        Map<String, Object> document = new HashMap<>(runningFileJob().toDocument());
+        document.remove("owner");
+        document.remove("leaseExpiresAt");
+
+        assertTrue(PreTranslationJobs.claimable(document, NOW));
+    }
+
+    @Test
+    void storedInputIsReadBackLineByLineAcrossChunks() throws Exception {
+        List<String> chunks = List.of("first line\nsec", "ond line\n", "third line");
+        FileContentStore store = spy(new FileContentStore());
+        doAnswer(invocation -> List.of(chunks.get(invocation.getArgument(2))))
+                .when(store).read(any(), any(), anyInt(), eq(1));
+
+        try (BufferedReader reader = new BufferedReader(store.reader(mock(Firestore.class), mock(DocumentReference.class), chunks.size()))) {
+            assertEquals(List.of("first line", "second line", "third line"), reader.lines().toList());
+        }
+    }
+
+    @Test
+    void missingInputChunkFailsTheRead() throws Exception {
+        FileContentStore store = spy(new FileContentStore());
+        DocumentReference file = mock(DocumentReference.class);
+        when(file.getPath()).thenReturn("PreTranslationJobs/job-1");
+        doAnswer(invocation -> (int) invocation.getArgument(2) == 0 ? List.of("first line\n") : List.of())
+                .when(store).read(any(), any(), anyInt(), eq(1));
+
+        BufferedReader reader = new BufferedReader(store.reader(mock(Firestore.class), file, 2));
+
+        assertEquals("first line", reader.readLine());
+        assertThrows(IOException.class, reader::readLine);
+    }
+
+    @Test
+    void interruptedReadKeepsTheInterrupt() throws Exception {
+        FileContentStore store = spy(new FileContentStore());
+        DocumentReference file = mock(DocumentReference.class);
+        when(file.getPath()).thenReturn("PreTranslationJobs/job-1");
+        doThrow(new InterruptedException()).when(store).read(any(), any(), anyInt(), eq(1));
+
+        try {
+            assertThrows(InterruptedIOException.class, () -> store.reader(mock(Firestore.class), file, 1).read());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
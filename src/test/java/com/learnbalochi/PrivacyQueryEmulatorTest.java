@@ -0,0 +1,118 @@
+package com.learnbalochi;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the privacy query ({@link MyFirestoreService#visibleFiles} in listing order, read a
+ * page at a time with startAfter cursors) returns exactly the files the Java filter
+ * {@link FileMetadata#isAccessibleTo} accepts, in the same order, for anonymous and signed-in
+ * users. Seeds a throwaway collection with every combination of isPublic (true, false, missing,
+ * and the string "true") and uploaderUid, then deletes it.
+ *
+ * Runs against the Firestore emulator (firebase emulators:start --only firestore) and is skipped
+ * unless FIRESTORE_EMULATOR_HOST is set.
+ */
+@EnabledIfEnvironmentVariable(named = "FIRESTORE_EMULATOR_HOST", matches = ".+")
+class PrivacyQueryEmulatorTest {
+    private static final int DOCUMENTS = 200;
+    private static final int PAGE_SIZE = 7;
+    private static final String[] UPLOADERS = {"uid-1", "uid-2", "uid-3", null};
+    private static final Object[] PUBLIC_VALUES = {true, false, null, "true"};
+
+    private static Firestore db;
+    private static CollectionReference collection;
+    private static List<FileMetadata> seeded;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        db = FirestoreOptions.newBuilder().setProjectId("demo-learnbalochi").build().getService();
+        collection = db.collection("privacy_check_" + System.currentTimeMillis());
+        seeded = new ArrayList<>();
+
+        Random random = new Random(42);
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Map<String, Object> data = new HashMap<>();
+            // Repeated names so documentId has to break ties
+            data.put("fileName", "file-" + random.nextInt(DOCUMENTS / 2 + 1) + ".inp");
+            data.put("authorName", List.of("Author " + i));
+            Object isPublic = PUBLIC_VALUES[i % PUBLIC_VALUES.length];
+            if (isPublic != null) {
+                data.put("isPublic", isPublic);
+            }
+            String uploaderUid = UPLOADERS[(i / PUBLIC_VALUES.length) % UPLOADERS.length];
+            if (uploaderUid != null) {
+                data.put("uploaderUid", uploaderUid);
+            }
+            String documentId = "doc-" + i;
+            batch.set(collection.document(documentId), data);
+            seeded.add(FileMetadata.fromData(documentId, data));
+        }
+        batch.commit().get();
+    }
+
+    @AfterAll
+    static void delete() throws Exception {
+        if (db == null) {
+            return;
+        }
+        WriteBatch batch = db.batch();
+        for (FileMetadata metadata : seeded) {
+            batch.delete(collection.document(metadata.documentId()));
+        }
+        batch.commit().get();
+        db.close();
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"uid-1", "uid-3", "someone-else"})
+    void queryReturnsWhatTheJavaFilterAccepts(String currentUserUid) throws Exception {
+        List<String> expected = seeded.stream()
+                .filter(metadata -> metadata.isAccessibleTo(currentUserUid))
+                .sorted(Comparator.comparing(FileMetadata::fileName).thenComparing(FileMetadata::documentId))
+                .map(FileMetadata::documentId)
+                .toList();
+        Query visible = MyFirestoreService.inListingOrder(MyFirestoreService.visibleFiles(collection, currentUserUid));
+
+        assertEquals(expected, readAllPages(visible));
+        assertEquals(expected.size(), visible.count().get().get().getCount());
+    }
+
+    private static List<String> readAllPages(Query visible) throws Exception {
+        List<String> documentIds = new ArrayList<>();
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = visible.select(FileMetadata.FIELDS).limit(PAGE_SIZE);
+            if (last != null) {
+                page = page.startAfter(last.getString("fileName"), last.getId());
+            }
+            List<QueryDocumentSnapshot> documents = page.get().get().getDocuments();
+            documents.forEach(document -> documentIds.add(document.getId()));
+            if (documents.size() < PAGE_SIZE) {
+                return documentIds;
+            }
+            last = documents.get(documents.size() - 1);
+        }
+    }
+}
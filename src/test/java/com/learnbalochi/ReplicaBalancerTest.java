@@ -0,0 +1,200 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaBalancerTest {
+    private static final Duration SLOW_RESPONSE = Duration.ofSeconds(2);
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private final UpstreamHttpClient httpClient = new UpstreamHttpClient("test", new UpstreamHttpClient.Settings(
+            10, 10, Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30)));
+    private final RestTemplate restTemplate = httpClient.getRestTemplate();
+
+    // So the first calls under test are not slowed down by connection setup and class loading
+    @BeforeEach
+    void warmUp() throws IOException {
+        StubUpstream upstream = replica("warm", Duration.ZERO);
+        for (int i = 0; i < 3; i++) {
+            restTemplate.getForObject(upstream.url(), String.class);
+        }
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+        httpClient.destroy();
+    }
+
+    private StubUpstream replica(String body, Duration delay) throws IOException {
+        return replica(body, delay, new AtomicBoolean());
+    }
+
+    /**
+     * A replica answering 200 with the body after the delay; while slowOnce is set, the next
+     * request it receives clears it and takes {@link #SLOW_RESPONSE} instead.
+     */
+    private StubUpstream replica(String body, Duration delay, AtomicBoolean slowOnce) throws IOException {
+        StubUpstream upstream = new StubUpstream(exchange -> {
+            sleep(slowOnce.compareAndSet(true, false) ? SLOW_RESPONSE : delay);
+            StubUpstream.respond(exchange, 200, "text/plain", body);
+        });
+        resources.add(upstream);
+        return upstream;
+    }
+
+    private StubUpstream failingReplica(int status) throws IOException {
+        StubUpstream upstream = new StubUpstream(exchange -> StubUpstream.respond(exchange, status, "text/plain", "error " + status));
+        resources.add(upstream);
+        return upstream;
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int limit) {
+        Map<TranslationPriority, Duration> deadlines = new EnumMap<>(TranslationPriority.class);
+        for (TranslationPriority priority : TranslationPriority.values()) {
+            deadlines.put(priority, Duration.ofSeconds(10));
+        }
+        return new AdaptiveConcurrencyLimiter("test", new AdaptiveConcurrencyLimiter.Settings(limit, 1, limit, 1.5, 10, deadlines));
+    }
+
+    private ReplicaBalancer balancer(List<StubUpstream> upstreams, int ejectAfterFailures, boolean hedging, AdaptiveConcurrencyLimiter limiter) {
+        ReplicaBalancer balancer = new ReplicaBalancer("test", new ReplicaBalancer.Settings(
+                upstreams.stream().map(StubUpstream::url).toList(),
+                ejectAfterFailures, Duration.ofSeconds(5), Duration.ofMinutes(1),
+                hedging, Duration.ofMillis(100), 1.0, 5), limiter);
+        resources.add(balancer::destroy);
+        return balancer;
+    }
+
+    private String get(ReplicaBalancer balancer) {
+        return balancer.execute(url -> restTemplate.getForObject(url, String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> replicaMetrics(ReplicaBalancer balancer, int index) {
+        return ((List<Map<String, Object>>) balancer.metrics().get("replicas")).get(index);
+    }
+
+    private static long metric(ReplicaBalancer balancer, String name) {
+        return ((Number) balancer.metrics().get(name)).longValue();
+    }
+
+    @Test
+    void failsOverAndEjectsAFailingReplica() throws IOException {
+        StubUpstream failing = failingReplica(500);
+        StubUpstream healthy = replica("healthy", Duration.ZERO);
+        // Ejected on its first failure; an untried replica is preferred, so that comes by the second call
+        ReplicaBalancer balancer = balancer(List.of(failing, healthy), 1, false, limiter(4));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("healthy", get(balancer));
+        }
+
+        assertEquals(1, failing.requests());
+        assertEquals(10, healthy.requests());
+        assertEquals(1, metric(balancer, "failovers"));
+        assertEquals(true, replicaMetrics(balancer, 0).get("ejected"));
+        assertEquals(false, replicaMetrics(balancer, 1).get("ejected"));
+    }
+
+    @Test
+    void clientErrorsAreNotRetriedOrCountedAgainstTheReplica() throws IOException {
+        StubUpstream first = failingReplica(400);
+        StubUpstream second = failingReplica(400);
+        ReplicaBalancer balancer = balancer(List.of(first, second), 3, false, limiter(4));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpClientErrorException.class, () -> get(balancer));
+        }
+
+        assertEquals(3, first.requests() + second.requests());
+        assertEquals(0, metric(balancer, "failovers"));
+        assertEquals(0L, replicaMetrics(balancer, 0).get("failures"));
+        assertEquals(0L, replicaMetrics(balancer, 1).get("failures"));
+    }
+
+    @Test
+    void hedgedCallReturnsTheFasterAnswerAndAbortsTheSlowRequest() throws Exception {
+        AtomicBoolean slowOnce = new AtomicBoolean();
+        AdaptiveConcurrencyLimiter limiter = limiter(4);
+        ReplicaBalancer balancer = balancer(List.of(
+                replica("answer", Duration.ZERO, slowOnce),
+                replica("answer", Duration.ZERO, slowOnce)), 3, true, limiter);
+        for (int i = 0; i < 20; i++) {
+            get(balancer); // latency samples for the hedge delay
+        }
+
+        long hedgesSent = metric(balancer, "hedgesSent");
+        long hedgesWon = metric(balancer, "hedgesWon");
+
+        slowOnce.set(true);
+        long start = System.nanoTime();
+        assertEquals("answer", get(balancer));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < SLOW_RESPONSE.toMillis() / 2, "waited " + elapsedMs + " ms for the slow replica");
+        assertEquals(hedgesSent + 1, metric(balancer, "hedgesSent"));
+
+        // The slow request was aborted rather than left running until it answered
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SLOW_RESPONSE.toMillis() / 2);
+        while ((int) replicaMetrics(balancer, 0).get("outstanding") + (int) replicaMetrics(balancer, 1).get("outstanding") > 0) {
+            assertTrue(System.nanoTime() < deadline, "losing request still outstanding");
+            Thread.sleep(10);
+        }
+        assertEquals(hedgesWon + 1, metric(balancer, "hedgesWon"));
+        assertEquals(0L, replicaMetrics(balancer, 0).get("failures"));
+        assertEquals(0L, replicaMetrics(balancer, 1).get("failures"));
+        assertEquals(0, limiter.metrics().get("inFlight"));
+    }
+
+    @Test
+    void skipsTheHedgeWhenTheLimiterHasNoPermitFree() throws IOException {
+        AtomicBoolean slowOnce = new AtomicBoolean();
+        AdaptiveConcurrencyLimiter limiter = limiter(1);
+        ReplicaBalancer balancer = balancer(List.of(
+                replica("answer", Duration.ZERO, slowOnce),
+                replica("answer", Duration.ZERO, slowOnce)), 3, true, limiter);
+        for (int i = 0; i < 20; i++) {
+            get(balancer);
+        }
+
+        long hedgesSent = metric(balancer, "hedgesSent");
+
+        assertTrue(limiter.tryAcquire());
+        try {
+            slowOnce.set(true);
+            assertEquals("answer", get(balancer));
+        } finally {
+            limiter.releaseUnsampled();
+        }
+
+        assertEquals(hedgesSent, metric(balancer, "hedgesSent"));
+        assertEquals(1, metric(balancer, "hedgesSkippedSaturated"));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Searches answered from memory through {@link MyFirestoreService}: the index or catalog match,
+ * and later pages come from the cached IDs without matching again.
+ */
+class SearchFilesTest {
+    private static final String COLLECTION = "inpage_converted_files";
+
+    private final SearchIndex searchIndex = mock(SearchIndex.class);
+    private final FileCatalog fileCatalog = mock(FileCatalog.class);
+    private final MyFirestoreService service = service();
+
+    private MyFirestoreService service() {
+        MyFirestoreService service = new MyFirestoreService();
+        ReflectionTestUtils.setField(service, "searchIndex", searchIndex);
+        ReflectionTestUtils.setField(service, "fileCatalog", fileCatalog);
+        ReflectionTestUtils.setField(service, "searchResultCache", new SearchResultCache(fileCatalog, 10_000, Duration.ofMinutes(1)));
+        return service;
+    }
+
+    private static FileMetadata file(String documentId) {
+        return new FileMetadata(documentId, documentId + ".inp", null, null, null, true, null, null, null, null, null);
+    }
+
+    private static List<String> ids(PaginatedResponse response) {
+        return response.getData().stream().map(item -> ((FileMetadata) item).documentId()).toList();
+    }
+
+    @Test
+    void indexSearchCompletesWithoutBlocking() throws Exception {
+        when(searchIndex.serves(COLLECTION)).thenReturn(true);
+        when(searchIndex.matches("shair", "uid-1", true)).thenReturn(List.of(file("a"), file("b"), file("c")));
+
+        CompletableFuture<PaginatedResponse> search = service.searchDocumentsWithPrivacyFilterAsync(COLLECTION, "shair", 1, 2, "uid-1");
+
+        assertTrue(search.isDone());
+        assertEquals(List.of("a", "b"), ids(search.get()));
+        assertEquals(3, search.get().getPagination().getTotalElements());
+    }
+
+    @Test
+    void laterPagesAreReadFromTheCachedIds() throws Exception {
+        when(fileCatalog.serves(COLLECTION)).thenReturn(true);
+        when(fileCatalog.servesSearch(COLLECTION)).thenReturn(true);
+        when(fileCatalog.matches("shair", null, false)).thenReturn(List.of(file("a"), file("b"), file("c")));
+        when(fileCatalog.get("c")).thenReturn(file("c"));
+
+        service.searchAllDocumentsFromCollectionAsync(COLLECTION, "shair", 1, 2).get();
+        PaginatedResponse second = service.searchAllDocumentsFromCollectionAsync(COLLECTION, "shair", 2, 2).get();
+
+        assertEquals(List.of("c"), ids(second));
+        assertEquals(3, second.getPagination().getTotalElements());
+        verify(fileCatalog, times(1)).matches("shair", null, false);
+    }
+
+    @Test
+    void filesDeletedSinceTheSearchAreLeftOut() throws Exception {
+        when(fileCatalog.serves(COLLECTION)).thenReturn(true);
+        when(fileCatalog.servesSearch(COLLECTION)).thenReturn(true);
+        when(fileCatalog.matches("shair", null, false)).thenReturn(List.of(file("a"), file("b")));
+        when(fileCatalog.get("a")).thenReturn(file("a"));
+
+        service.searchAllDocumentsFromCollectionAsync(COLLECTION, "shair", 1, 2).get();
+        PaginatedResponse again = service.searchAllDocumentsFromCollectionAsync(COLLECTION, "shair", 1, 2).get();
+
+        assertEquals(List.of("a"), ids(again));
+    }
+}
@@ -0,0 +1,133 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchIndexTest {
+    private static final String COLLECTION = "files";
+
+    private final FileCatalog fileCatalog = mock(FileCatalog.class);
+    private final SearchIndex index = new SearchIndex();
+
+    SearchIndexTest() {
+        when(fileCatalog.collectionName()).thenReturn(COLLECTION);
+        ReflectionTestUtils.setField(index, "fileCatalog", fileCatalog);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "contentMaxChars", 5_000_000);
+        ReflectionTestUtils.setField(index, "maxPrefixTerms", 200);
+    }
+
+    @AfterEach
+    void stop() {
+        index.stop();
+    }
+
+    private static Map<String, Object> file(String fileName, String author, String description, boolean isPublic, String uploaderUid) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("fileName", fileName);
+        data.put("authorName", List.of(author));
+        data.put("description", description);
+        data.put("isPublic", isPublic);
+        data.put("uploaderUid", uploaderUid);
+        return data;
+    }
+
+    private void index(String documentId, Map<String, Object> data, String content) {
+        index.index(COLLECTION, documentId, data, content);
+    }
+
+    private List<String> search(String query) {
+        return index.matches(query, null, false).stream().map(FileMetadata::documentId).toList();
+    }
+
+    @Test
+    void ranksMetadataMatchesAboveContentMatches() {
+        index("content", file("Stories.inp", "Karim", "Short stories", true, "uid-1"), "a chapter on grammar and spelling");
+        index("name", file("Balochi Grammar.inp", "Naseer", "A textbook", true, "uid-1"), "nouns and verbs");
+        index("other", file("Poems.inp", "Gul", "Collected poems", true, "uid-1"), "rivers and mountains");
+
+        assertEquals(List.of("name", "content"), search("grammar"));
+    }
+
+    @Test
+    void requiresEveryQueryWord() {
+        index("both", file("Balochi Poetry.inp", "Gul", "", true, "uid-1"), "");
+        index("one", file("Balochi Grammar.inp", "Naseer", "", true, "uid-1"), "");
+
+        assertEquals(List.of("both"), search("balochi poetry"));
+        assertTrue(search("balochi novels").isEmpty());
+    }
+
+    @Test
+    void matchesTheLastWordAndStarredWordsAsPrefixes() {
+        index("grammar", file("Balochi Grammar.inp", "Naseer", "", true, "uid-1"), "");
+
+        assertEquals(List.of("grammar"), search("balochi gram"));
+        assertTrue(search("bal grammar").isEmpty(), "only the last word is a prefix");
+        assertEquals(List.of("grammar"), search("bal* grammar"));
+    }
+
+    @Test
+    void exactMatchesRankAbovePrefixMatches() {
+        index("prefix", file("Grammatical notes.inp", "Naseer", "", true, "uid-1"), "");
+        index("exact", file("Gram.inp", "Naseer", "", true, "uid-1"), "");
+
+        assertEquals(List.of("exact", "prefix"), search("gram"));
+    }
+
+    @Test
+    void matchesAcrossArabicScriptSpellingVariants() {
+        // Content typed with Arabic kaf and yeh, queried with keheh and Farsi yeh
+        index("kitab", file("Book.inp", "Naseer", "", true, "uid-1"), "\u0643\u062A\u0627\u0628\u064A");
+
+        assertEquals(List.of("kitab"), search("\u06A9\u062A\u0627\u0628\u06CC"));
+    }
+
+    @Test
+    void metadataChangeKeepsTheIndexedContent() {
+        String content = "mountains and rivers";
+        Map<String, Object> data = file("Old name.inp", "Gul", "", true, "uid-1");
+        data.put("content", content);
+        index("file", data, content);
+
+        Map<String, Object> renamed = new HashMap<>(data);
+        renamed.put("fileName", "New title.inp");
+        index.onFileChanged("file", renamed);
+
+        assertEquals(List.of("file"), search("mountains"));
+        assertEquals(List.of("file"), search("title"));
+        assertTrue(search("old").isEmpty());
+    }
+
+    @Test
+    void removedFilesAreNotFound() {
+        index("file", file("Balochi Grammar.inp", "Naseer", "", true, "uid-1"), "verbs");
+
+        index.onFileRemoved("file");
+
+        assertTrue(search("grammar").isEmpty());
+        assertTrue(search("verbs").isEmpty());
+    }
+
+    @Test
+    void privacyFilterHidesOtherUsersPrivateFiles() {
+        index("public", file("Grammar one.inp", "Naseer", "", true, "uid-1"), "");
+        index("private", file("Grammar two.inp", "Naseer", "", false, "uid-2"), "");
+
+        List<FileMetadata> anonymous = index.matches("grammar", null, true);
+        List<FileMetadata> owner = index.matches("grammar", "uid-2", true);
+
+        assertEquals(List.of("public"), anonymous.stream().map(FileMetadata::documentId).toList());
+        assertEquals(2, owner.size());
+    }
+}
@@ -0,0 +1,123 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchResultCacheTest {
+    private static final String COLLECTION = "inpage_converted_files";
+
+    private final FileCatalog fileCatalog = mock(FileCatalog.class);
+
+    private SearchResultCache cache(long maxIds) {
+        return new SearchResultCache(fileCatalog, maxIds, Duration.ofMinutes(10));
+    }
+
+    private static SearchResultCache.Key key(String collectionName, String query) {
+        return SearchResultCache.Key.of(collectionName, SearchResultCache.Source.INDEX, query, null, false);
+    }
+
+    @Test
+    void cachedResultIsServedUntilTheCollectionChanges() {
+        SearchResultCache cache = cache(1000);
+        SearchResultCache.Key key = key(COLLECTION, "shair");
+
+        cache.put(key, cache.generation(COLLECTION), List.of("a", "b"));
+        assertEquals(List.of("a", "b"), cache.get(key));
+
+        cache.invalidate(COLLECTION);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void resultComputedBeforeAWriteIsNotCached() {
+        SearchResultCache cache = cache(1000);
+        SearchResultCache.Key key = key(COLLECTION, "shair");
+
+        long generation = cache.generation(COLLECTION);
+        cache.invalidate(COLLECTION);
+        cache.put(key, generation, List.of("a", "b"));
+
+        assertNull(cache.get(key));
+        cache.put(key, cache.generation(COLLECTION), List.of("a"));
+        assertEquals(List.of("a"), cache.get(key));
+    }
+
+    @Test
+    void invalidationOnlyTouchesItsCollection() {
+        SearchResultCache cache = cache(1000);
+        SearchResultCache.Key other = key("other_files", "shair");
+        long otherGeneration = cache.generation("other_files");
+
+        cache.invalidate(COLLECTION);
+        cache.put(other, otherGeneration, List.of("x"));
+
+        assertEquals(List.of("x"), cache.get(other));
+    }
+
+    @Test
+    void appliedCatalogSnapshotInvalidatesTheCatalogsCollection() {
+        when(fileCatalog.collectionName()).thenReturn(COLLECTION);
+        SearchResultCache cache = cache(1000);
+        verify(fileCatalog).addChangeListener(cache);
+        SearchResultCache.Key key = key(COLLECTION, "shair");
+        cache.put(key, cache.generation(COLLECTION), List.of("a"));
+
+        cache.onSnapshotApplied();
+
+        assertNull(cache.get(key));
+        assertEquals(1L, cache.metrics().get("invalidations"));
+    }
+
+    @Test
+    void cachedIdsCannotBeChangedByTheCaller() {
+        SearchResultCache cache = cache(1000);
+        SearchResultCache.Key key = key(COLLECTION, "shair");
+        List<String> ids = new ArrayList<>(List.of("a", "b"));
+
+        cache.put(key, cache.generation(COLLECTION), ids);
+        ids.add("c");
+
+        assertEquals(List.of("a", "b"), cache.get(key));
+        assertThrows(UnsupportedOperationException.class, () -> cache.get(key).add("d"));
+    }
+
+    @Test
+    void keysSeparateSourcesAndVisibility() {
+        SearchResultCache.Key index = SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.INDEX, "Shair", null, false);
+
+        assertEquals(index, SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.INDEX, "  shair ", null, false));
+        assertNotEquals(index, SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.FIRESTORE, "Shair", null, false));
+        assertEquals(SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.INDEX, "Shair", null, true),
+                SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.INDEX, "Shair", "", true));
+        assertNotEquals(SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.INDEX, "Shair", null, true),
+                SearchResultCache.Key.of(COLLECTION, SearchResultCache.Source.INDEX, "Shair", "uid-1", true));
+    }
+
+    @Test
+    void concurrentInvalidationsNeverLeaveAStaleResult() throws Exception {
+        SearchResultCache cache = cache(1000);
+        SearchResultCache.Key key = key(COLLECTION, "shair");
+
+        for (int round = 0; round < 200; round++) {
+            long generation = cache.generation(COLLECTION);
+            Thread writer = new Thread(() -> cache.invalidate(COLLECTION));
+            writer.start();
+            cache.put(key, generation, List.of("stale"));
+            writer.join();
+
+            // Once the write's invalidation is done, a result from before it must be gone
+            assertNull(cache.get(key));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchTextTest {
+
+    @Test
+    void foldsKeyboardVariantsOfArabicScriptLetters() {
+        // Arabic yeh, kaf and heh against their Farsi/Urdu counterparts
+        assertEquals(SearchText.normalize("\u06A9\u062A\u0627\u0628\u06CC"), SearchText.normalize("\u0643\u062A\u0627\u0628\u064A"));
+        assertEquals(SearchText.normalize("\u06C1"), SearchText.normalize("\u0647"));
+        assertEquals("\u0627", SearchText.normalize("\u0671"));
+    }
+
+    @Test
+    void keepsLettersDistinctInBalochiAndUrdu() {
+        assertEquals("\u06D2", SearchText.normalize("\u06D2"));
+        assertEquals("\u06BE", SearchText.normalize("\u06BE"));
+    }
+
+    @Test
+    void dropsDiacriticsTatweelAndInvisibleControls() {
+        // "salaam" with a fatha, a tatweel, a zero-width non-joiner and a right-to-left mark
+        assertEquals("\u0633\u0644\u0627\u0645", SearchText.normalize("\u0633\u064E\u0644\u0640\u0627\u200C\u0645\u200F"));
+        assertEquals("cafe", SearchText.normalize("Caf\u00E9"));
+    }
+
+    @Test
+    void mapsArabicIndicDigitsToAscii() {
+        assertEquals("2024", SearchText.normalize("\u0662\u0660\u0662\u0664"));
+        assertEquals("15", SearchText.normalize("\u06F1\u06F5"));
+    }
+
+    @Test
+    void tokenizesOnAnythingButLettersAndDigits() {
+        assertEquals(List.of("hello", "world", "42", "\u0633\u0644\u0627\u0645"),
+                SearchText.tokenize("Hello, world! (42) \u0633\u0644\u0627\u0645\u06D4"));
+        assertEquals(List.of(), SearchText.tokenize(null));
+    }
+}
@@ -0,0 +1,76 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SentenceSegmenterTest {
+
+    @Test
+    void splitsOnLatinTerminators() {
+        List<SentenceSegmenter.Segment> segments = SentenceSegmenter.split("Hello there. How are you? Fine!");
+
+        assertEquals(List.of(
+                new SentenceSegmenter.Segment("Hello there.", " "),
+                new SentenceSegmenter.Segment("How are you?", " "),
+                new SentenceSegmenter.Segment("Fine!", "")), segments);
+    }
+
+    @Test
+    void splitsOnArabicScriptTerminators() {
+        // "salaam. chon ay?" with the Arabic full stop and question mark
+        String text = "\u0633\u0644\u0627\u0645\u06D4 \u0686\u0648\u0646 \u0627\u06CC\u061F";
+
+        List<SentenceSegmenter.Segment> segments = SentenceSegmenter.split(text);
+
+        assertEquals(List.of(
+                new SentenceSegmenter.Segment("\u0633\u0644\u0627\u0645\u06D4", " "),
+                new SentenceSegmenter.Segment("\u0686\u0648\u0646 \u0627\u06CC\u061F", "")), segments);
+    }
+
+    @Test
+    void doesNotSplitInsideNumbersOrDomainNames() {
+        List<SentenceSegmenter.Segment> segments = SentenceSegmenter.split("Version 1.5 is out. See example.com for details.");
+
+        assertEquals(List.of(
+                new SentenceSegmenter.Segment("Version 1.5 is out.", " "),
+                new SentenceSegmenter.Segment("See example.com for details.", "")), segments);
+    }
+
+    @Test
+    void keepsClosingQuotesWithTheirSentence() {
+        List<SentenceSegmenter.Segment> segments = SentenceSegmenter.split("He said \"stop.\" Then he left...");
+
+        assertEquals(List.of(
+                new SentenceSegmenter.Segment("He said \"stop.\"", " "),
+                new SentenceSegmenter.Segment("Then he left...", "")), segments);
+    }
+
+    @Test
+    void blankLinesBecomePartOfTheSeparator() {
+        List<SentenceSegmenter.Segment> segments = SentenceSegmenter.split("First line\n\n  \nSecond line");
+
+        assertEquals(List.of(
+                new SentenceSegmenter.Segment("First line", "\n\n  \n"),
+                new SentenceSegmenter.Segment("Second line", "")), segments);
+    }
+
+    @Test
+    void joinRestoresTheOriginalLayout() {
+        String text = "One. Two?\n\nThree!";
+        List<SentenceSegmenter.Segment> segments = SentenceSegmenter.split(text);
+
+        List<String> translated = segments.stream().map(segment -> segment.text().toUpperCase()).toList();
+
+        assertEquals("ONE. TWO?\n\nTHREE!", SentenceSegmenter.join(translated, segments));
+    }
+
+    @Test
+    void nullAndBlankInputHaveNoSegments() {
+        assertTrue(SentenceSegmenter.split(null).isEmpty());
+        assertTrue(SentenceSegmenter.split("   \n ").isEmpty());
+    }
+}
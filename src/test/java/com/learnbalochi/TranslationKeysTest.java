@@ -0,0 +1,70 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationKeysTest {
+
+    @Test
+    void whitespaceAndCaseDoNotChangeTheKey() {
+        assertEquals(TranslationKeys.documentId("Good morning"), TranslationKeys.documentId("  good\tMORNING \n"));
+    }
+
+    @Test
+    void composedAndDecomposedFormsShareAKey() {
+        // Precomposed "\u00E9", and "e" followed by a combining acute accent
+        assertEquals(TranslationKeys.documentId("caf\u00E9"), TranslationKeys.documentId("cafe\u0301"));
+    }
+
+    @Test
+    void punctuationIsPartOfTheKey() {
+        assertNotEquals(TranslationKeys.documentId("Really?"), TranslationKeys.documentId("Really!"));
+    }
+
+    @Test
+    void keyIsHexSha256() {
+        String documentId = TranslationKeys.documentId("Hello");
+
+        assertEquals(64, documentId.length());
+        assertTrue(documentId.matches("[0-9a-f]+"));
+    }
+
+    @Test
+    void nullNormalizesToEmpty() {
+        assertEquals("", TranslationKeys.normalize(null));
+        assertEquals(TranslationKeys.documentId(""), TranslationKeys.documentId(null));
+    }
+
+    @Test
+    void versionChangesWithTheTranslatedText() {
+        String key = TranslationKeys.documentId("Hello");
+
+        String first = TranslationKeys.version(new CachedTranslation(key, "Hello", "Salaam"));
+
+        assertEquals(first, TranslationKeys.version(new CachedTranslation(key, "hello", "Salaam")));
+        assertNotEquals(first, TranslationKeys.version(new CachedTranslation(key, "Hello", "Drustag")));
+    }
+
+    @Test
+    void legacyFallbackStaysOnUntilAMigrationCompletes() {
+        TranslationKeyMigration migration = new TranslationKeyMigration();
+        ReflectionTestUtils.setField(migration, "legacyFallback", true);
+        assertTrue(migration.legacyFallbackActive());
+
+        ReflectionTestUtils.setField(migration, "completed", true);
+        assertFalse(migration.legacyFallbackActive());
+    }
+
+    @Test
+    void legacyFallbackCanBeTurnedOff() {
+        TranslationKeyMigration migration = new TranslationKeyMigration();
+        ReflectionTestUtils.setField(migration, "legacyFallback", false);
+
+        assertFalse(migration.legacyFallbackActive());
+    }
+}
@@ -0,0 +1,123 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationSnapshotTest {
+    private static final int ENTRIES = 50;
+
+    @TempDir
+    Path directory;
+
+    private Path snapshotPath() {
+        return directory.resolve("translation-cache.snapshot");
+    }
+
+    private TranslationSnapshot snapshot(TranslationCache cache) {
+        TranslationSnapshot snapshot = new TranslationSnapshot();
+        ReflectionTestUtils.setField(snapshot, "translationCache", cache);
+        ReflectionTestUtils.setField(snapshot, "enabled", true);
+        ReflectionTestUtils.setField(snapshot, "snapshotPath", snapshotPath());
+        ReflectionTestUtils.setField(snapshot, "maxEntries", 1000);
+        ReflectionTestUtils.setField(snapshot, "maxAge", Duration.ofDays(7));
+        return snapshot;
+    }
+
+    private static String text(int i) {
+        return "Sentence number " + i;
+    }
+
+    private void writeSnapshot() {
+        TranslationCache cache = new TranslationCache(1000, 1 << 20, Duration.ofHours(1));
+        for (int i = 0; i < ENTRIES; i++) {
+            String key = TranslationKeys.documentId(text(i));
+            cache.put(key, new CachedTranslation(key, text(i), "Translation " + i));
+        }
+        snapshot(cache).write();
+    }
+
+    /**
+     * Maps the snapshot the way a restarted instance does; with no Firebase app the staleness
+     * check has nothing to read, so it is run inline rather than waited for.
+     */
+    private TranslationSnapshot loadSnapshot() {
+        TranslationSnapshot snapshot = snapshot(new TranslationCache(1000, 1 << 20, Duration.ofHours(1)));
+        snapshot.load();
+        ReflectionTestUtils.invokeMethod(snapshot, "checkStaleness");
+        return snapshot;
+    }
+
+    @Test
+    void writtenTranslationsAreFoundAfterLoading() {
+        writeSnapshot();
+
+        TranslationSnapshot snapshot = loadSnapshot();
+
+        for (int i = 0; i < ENTRIES; i++) {
+            CachedTranslation translation = snapshot.lookup(TranslationKeys.documentId(text(i)));
+            assertEquals(text(i), translation.originalText());
+            assertEquals("Translation " + i, translation.translatedText());
+        }
+        assertNull(snapshot.lookup(TranslationKeys.documentId("Not in the snapshot")));
+    }
+
+    @Test
+    void storedKeysAreNoLongerAnsweredFromTheSnapshot() {
+        writeSnapshot();
+        TranslationSnapshot snapshot = loadSnapshot();
+        String key = TranslationKeys.documentId(text(7));
+
+        snapshot.invalidate(key);
+
+        assertNull(snapshot.lookup(key));
+        assertEquals(text(8), snapshot.lookup(TranslationKeys.documentId(text(8))).originalText());
+    }
+
+    @Test
+    void truncatedSnapshotIsIgnored() throws Exception {
+        writeSnapshot();
+        try (FileChannel channel = FileChannel.open(snapshotPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        TranslationSnapshot snapshot = loadSnapshot();
+
+        assertFalse((Boolean) snapshot.metrics().get("loaded"));
+        assertNull(snapshot.lookup(TranslationKeys.documentId(text(0))));
+    }
+
+    @Test
+    void corruptRecordOffsetIsIgnored() throws Exception {
+        writeSnapshot();
+        byte[] bytes = Files.readAllBytes(snapshotPath());
+        // The first index entry's record offset, past the 20-byte header and 8-byte key prefix
+        bytes[28] = 0x7F;
+        Files.write(snapshotPath(), bytes);
+
+        TranslationSnapshot snapshot = loadSnapshot();
+
+        assertFalse((Boolean) snapshot.metrics().get("loaded"));
+    }
+
+    @Test
+    void intactSnapshotIsValid() throws Exception {
+        writeSnapshot();
+
+        TranslationSnapshot snapshot = loadSnapshot();
+
+        assertTrue((Boolean) snapshot.metrics().get("loaded"));
+        assertEquals(ENTRIES, snapshot.metrics().get("entries"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TranslationVersionsTest {
+    private static final String TEXT = "Good morning";
+    private static final String KEY = TranslationKeys.documentId(TEXT);
+    private static final CachedTranslation TRANSLATION = new CachedTranslation(KEY, TEXT, "Sobah shar");
+
+    private final TranslationVersions versions = new TranslationVersions(1000, Duration.ofHours(1));
+    private final TranslationService translationService = mock(TranslationService.class);
+
+    private TranslateController controller() {
+        TranslateController controller = new TranslateController();
+        ReflectionTestUtils.setField(controller, "translationService", translationService);
+        ReflectionTestUtils.setField(controller, "translationVersions", versions);
+        ReflectionTestUtils.setField(controller, "browserMaxAge", Duration.ofHours(1));
+        ReflectionTestUtils.setField(controller, "sharedMaxAge", Duration.ofDays(1));
+        return controller;
+    }
+
+    @Test
+    void etagIsQuotedAndRemembered() {
+        String etag = versions.put(KEY, TRANSLATION);
+
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, versions.get(KEY));
+        assertNull(versions.get(TranslationKeys.documentId("Good night")));
+    }
+
+    @Test
+    void etagChangesWithTheTranslation() {
+        String etag = versions.put(KEY, TRANSLATION);
+
+        assertNotEquals(etag, versions.put(KEY, new CachedTranslation(KEY, TEXT, "Sohb shar")));
+    }
+
+    @Test
+    void matchesExactWeakListedAndWildcardTags() {
+        String etag = versions.put(KEY, TRANSLATION);
+
+        assertTrue(versions.matches(etag, etag));
+        assertTrue(versions.matches("W/" + etag, etag));
+        assertTrue(versions.matches("\"other\", " + etag, etag));
+        assertTrue(versions.matches("*", etag));
+        assertEquals(4L, versions.metrics().get("notModified"));
+    }
+
+    @Test
+    void doesNotMatchOtherOrMissingTags() {
+        String etag = versions.put(KEY, TRANSLATION);
+
+        assertFalse(versions.matches("\"other\"", etag));
+        assertFalse(versions.matches(etag.substring(1, etag.length() - 1), etag));
+        assertFalse(versions.matches(null, etag));
+        assertFalse(versions.matches(etag, null));
+    }
+
+    @Test
+    void getServesTheStoredTranslationWithItsEtag() throws Exception {
+        when(translationService.findTranslation(TEXT)).thenReturn(new TranslationResult(TRANSLATION, true));
+
+        ResponseEntity<Object> response = controller().translateTextCacheable(TEXT, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(versions.get(KEY), response.getHeaders().getETag());
+        assertEquals(TRANSLATION.toResponse(true), response.getBody());
+    }
+
+    @Test
+    void knownVersionIsAnsweredWith304WithoutLoadingTheTranslation() throws Exception {
+        String etag = versions.put(KEY, TRANSLATION);
+
+        ResponseEntity<Object> response = controller().translateTextCacheable(TEXT, etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verify(translationService, never()).findTranslation(TEXT);
+    }
+
+    @Test
+    void matchingVersionIsAnsweredWith304AfterLoading() throws Exception {
+        // A browser revalidating against a version this instance has not served yet
+        String etag = new TranslationVersions(1000, Duration.ofHours(1)).put(KEY, TRANSLATION);
+        when(translationService.findTranslation(TEXT)).thenReturn(new TranslationResult(TRANSLATION, true));
+
+        ResponseEntity<Object> response = controller().translateTextCacheable(TEXT, etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, versions.get(KEY));
+    }
+
+    @Test
+    void changedTranslationIsServedInFull() throws Exception {
+        // Served before the translation changed, by an instance whose version has since expired
+        String staleEtag = new TranslationVersions(1000, Duration.ofHours(1)).put(KEY, new CachedTranslation(KEY, TEXT, "Sohb shar"));
+        when(translationService.findTranslation(TEXT)).thenReturn(new TranslationResult(TRANSLATION, true));
+
+        ResponseEntity<Object> response = controller().translateTextCacheable(TEXT, staleEtag);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(staleEtag, response.getHeaders().getETag());
+    }
+
+    @Test
+    void missingTranslationIsNotFoundAndNotCached() throws Exception {
+        ResponseEntity<Object> response = controller().translateTextCacheable(TEXT, null);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals("no-store", response.getHeaders().getCacheControl());
+        assertNull(versions.get(KEY));
+    }
+}
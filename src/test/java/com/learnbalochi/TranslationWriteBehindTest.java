@@ -0,0 +1,167 @@
+package com.learnbalochi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TranslationWriteBehindTest {
+    private final MyFirestoreService firestoreService = mock(MyFirestoreService.class);
+    private final TranslationSnapshot translationSnapshot = mock(TranslationSnapshot.class);
+    // Copies of every batch handed to Firestore; the writer reuses its batch list
+    private final List<List<String>> writes = new CopyOnWriteArrayList<>();
+    private TranslationWriteBehind writeBehind;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    private TranslationWriteBehind writeBehind(int queueCapacity, int batchSize, int maxRetries) {
+        writeBehind = new TranslationWriteBehind();
+        ReflectionTestUtils.setField(writeBehind, "firestoreService", firestoreService);
+        ReflectionTestUtils.setField(writeBehind, "translationSnapshot", translationSnapshot);
+        ReflectionTestUtils.setField(writeBehind, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(writeBehind, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writeBehind, "flushInterval", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(writeBehind, "enqueueTimeout", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(writeBehind, "maxRetries", maxRetries);
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private void recordWrites() throws Exception {
+        doAnswer(invocation -> {
+            writes.add(ids(invocation.getArgument(0)));
+            return null;
+        }).when(firestoreService).saveTranslations(anyList());
+    }
+
+    private static List<String> ids(List<CachedTranslation> batch) {
+        List<String> ids = new ArrayList<>();
+        for (CachedTranslation translation : batch) {
+            ids.add(translation.documentId());
+        }
+        return ids;
+    }
+
+    private static CachedTranslation translation(String id) {
+        return new CachedTranslation(id, "text " + id, "translation " + id);
+    }
+
+    private static long metric(TranslationWriteBehind writeBehind, String name) {
+        return (Long) writeBehind.metrics().get(name);
+    }
+
+    @Test
+    void flushWritesEverythingQueuedInBatchesOfTheConfiguredSize() throws Exception {
+        recordWrites();
+        TranslationWriteBehind writeBehind = writeBehind(100, 2, 0);
+
+        for (int i = 0; i < 5; i++) {
+            writeBehind.enqueue(translation("t" + i));
+        }
+        writeBehind.flush();
+
+        List<String> written = new ArrayList<>();
+        for (List<String> batch : writes) {
+            assertTrue(batch.size() <= 2);
+            written.addAll(batch);
+        }
+        assertEquals(List.of("t0", "t1", "t2", "t3", "t4"), written);
+        assertEquals(5L, metric(writeBehind, "committed"));
+        assertNull(writeBehind.getPending("t0"));
+    }
+
+    @Test
+    void queuedTranslationsArePendingAndStaleInTheSnapshot() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(firestoreService).saveTranslations(anyList());
+        TranslationWriteBehind writeBehind = writeBehind(100, 10, 0);
+        CachedTranslation translation = translation("t0");
+
+        writeBehind.enqueue(translation);
+
+        assertSame(translation, writeBehind.getPending("t0"));
+        verify(translationSnapshot).invalidate("t0");
+        release.countDown();
+    }
+
+    @Test
+    void batchSizeIsCappedAtFirestoresWriteLimit() {
+        TranslationWriteBehind writeBehind = writeBehind(100, 1000, 0);
+
+        assertEquals(TranslationWriteBehind.MAX_BATCH_SIZE, ReflectionTestUtils.getField(writeBehind, "batchSize"));
+    }
+
+    @Test
+    void failedBatchesAreRetried() throws Exception {
+        doAnswer(invocation -> {
+            writes.add(ids(invocation.getArgument(0)));
+            if (writes.size() == 1) {
+                throw new IllegalStateException("unavailable");
+            }
+            return null;
+        }).when(firestoreService).saveTranslations(anyList());
+        TranslationWriteBehind writeBehind = writeBehind(100, 10, 2);
+
+        writeBehind.enqueue(translation("t0"));
+        writeBehind.flush();
+
+        assertEquals(List.of(List.of("t0"), List.of("t0")), writes);
+        assertEquals(1L, metric(writeBehind, "retries"));
+        assertEquals(1L, metric(writeBehind, "committed"));
+        assertEquals(0L, metric(writeBehind, "dropped"));
+    }
+
+    @Test
+    void fullQueueWritesSynchronouslyAndAttemptsOnce() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<String> batch = ids(invocation.getArgument(0));
+            writes.add(batch);
+            if (batch.contains("overflow")) {
+                throw new IllegalStateException("unavailable");
+            }
+            if (batch.contains("held")) {
+                writing.countDown();
+                release.await();
+            }
+            return null;
+        }).when(firestoreService).saveTranslations(anyList());
+        TranslationWriteBehind writeBehind = writeBehind(1, 10, 5);
+
+        // The writer holds the first translation, the second fills the queue
+        writeBehind.enqueue(translation("held"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writeBehind.enqueue(translation("queued"));
+        writeBehind.enqueue(translation("overflow"));
+
+        assertEquals(1L, metric(writeBehind, "synchronousWrites"));
+        assertEquals(1L, metric(writeBehind, "dropped"));
+        assertEquals(0L, metric(writeBehind, "retries"));
+        assertEquals(List.of(List.of("held"), List.of("overflow")), writes);
+        release.countDown();
+    }
+}
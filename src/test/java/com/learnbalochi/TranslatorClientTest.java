@@ -0,0 +1,167 @@
+package com.learnbalochi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslatorClientTest {
+    private static final List<String> EVENTS = List.of(
+            "{\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}",
+            "{\"choices\":[{\"delta\":{\"content\":\"Balochi: \"}}]}",
+            "{\"choices\":[{\"delta\":{\"content\":\"\\u0633\\u0644\\u0627\\u0645\"}}]}",
+            "{\"choices\":[{\"delta\":{\"content\":\" \\u062F\\u0648\\u0633\\u062A\"}}]}",
+            "[DONE]");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UpstreamHttpClient httpClient = new UpstreamHttpClient("test", new UpstreamHttpClient.Settings(
+            10, 10, Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30)));
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("test", new CircuitBreaker.Settings(
+            4, 4, 0.5, 1.0, Duration.ofSeconds(10), Duration.ofMinutes(1), 1));
+    private final AdaptiveConcurrencyLimiter limiter = limiter();
+    private StubUpstream upstream;
+    private ReplicaBalancer balancer;
+
+    @AfterEach
+    void close() throws IOException {
+        if (upstream != null) {
+            upstream.close();
+            balancer.destroy();
+        }
+        httpClient.destroy();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter() {
+        Map<TranslationPriority, Duration> deadlines = new EnumMap<>(TranslationPriority.class);
+        for (TranslationPriority priority : TranslationPriority.values()) {
+            deadlines.put(priority, Duration.ofSeconds(10));
+        }
+        return new AdaptiveConcurrencyLimiter("test", new AdaptiveConcurrencyLimiter.Settings(4, 1, 4, 1.5, 10, deadlines));
+    }
+
+    private TranslatorClient client(StubUpstream upstream) {
+        this.upstream = upstream;
+        this.balancer = new ReplicaBalancer("test", new ReplicaBalancer.Settings(
+                List.of(upstream.url()), 3, Duration.ofSeconds(5), Duration.ofMinutes(1),
+                false, Duration.ofMillis(100), 0.1, 20), limiter);
+        TranslatorClient client = new TranslatorClient();
+        ReflectionTestUtils.setField(client, "restTemplate", httpClient.getRestTemplate());
+        ReflectionTestUtils.setField(client, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(client, "translatorCircuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(client, "translatorConcurrencyLimiter", limiter);
+        ReflectionTestUtils.setField(client, "translatorBalancer", balancer);
+        return client;
+    }
+
+    private static double smoothedRttMs(AdaptiveConcurrencyLimiter limiter) {
+        return ((Number) limiter.metrics().get("smoothedRttMs")).doubleValue();
+    }
+
+    @Test
+    void streamsEachDeltaAsItArrives() throws IOException {
+        AtomicReference<JsonNode> requestBody = new AtomicReference<>();
+        CountDownLatch firstTokenDelivered = new CountDownLatch(1);
+        AtomicBoolean deliveredBeforeStreamEnded = new AtomicBoolean();
+        TranslatorClient client = client(new StubUpstream(exchange -> {
+            requestBody.set(objectMapper.readTree(exchange.getRequestBody()));
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < EVENTS.size(); i++) {
+                    out.write(("data: " + EVENTS.get(i) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    if (i == 1) {
+                        // Hold the rest of the stream back until the client has seen the first token
+                        deliveredBeforeStreamEnded.set(await(firstTokenDelivered));
+                    }
+                }
+            }
+        }));
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        String translation = client.translateStreaming("Hello friend", token -> {
+            tokens.add(token);
+            firstTokenDelivered.countDown();
+        });
+
+        assertEquals(List.of("Balochi: ", "\u0633\u0644\u0627\u0645", " \u062F\u0648\u0633\u062A"), tokens);
+        assertEquals("\u0633\u0644\u0627\u0645 \u062F\u0648\u0633\u062A", translation);
+        assertTrue(deliveredBeforeStreamEnded.get(), "tokens were buffered until the stream ended");
+        assertTrue(requestBody.get().path("stream").asBoolean());
+        assertFalse(requestBody.get().path("use_beam_search").asBoolean());
+        assertEquals("Translate: Hello friend", requestBody.get().path("messages").path(1).path("content").asText());
+    }
+
+    @Test
+    void streamsAreLeftOutOfTheLimiterSamples() throws IOException {
+        TranslatorClient client = client(new StubUpstream(exchange -> {
+            StringBuilder body = new StringBuilder();
+            EVENTS.forEach(event -> body.append("data: ").append(event).append("\n\n"));
+            StubUpstream.respond(exchange, 200, "text/event-stream", body.toString());
+        }));
+
+        client.translateStreaming("Hello friend", token -> sleep(20));
+
+        assertEquals(0.0, smoothedRttMs(limiter), 0.0);
+        assertEquals(0, limiter.metrics().get("inFlight"));
+    }
+
+    @Test
+    void plainTranslationIsCleanedAndSampled() throws IOException {
+        TranslatorClient client = client(new StubUpstream(exchange -> StubUpstream.respond(exchange, 200, "application/json",
+                "{\"choices\":[{\"message\":{\"content\":\"Balochi: \\u0633\\u0644\\u0627\\u0645\"}}]}")));
+
+        assertEquals("\u0633\u0644\u0627\u0645", client.translate("Hello", TranslationPriority.INTERACTIVE));
+        assertTrue(smoothedRttMs(limiter) > 0);
+    }
+
+    @Test
+    void openCircuitFailsFastWithoutCallingTheUpstream() throws IOException {
+        StubUpstream failing = new StubUpstream(exchange -> StubUpstream.respond(exchange, 500, "text/plain", "error"));
+        TranslatorClient client = client(failing);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> client.translate("Hello", TranslationPriority.INTERACTIVE));
+        }
+        int requests = failing.requests();
+
+        assertThrows(TranslatorUnavailableException.class, () -> client.translateStreaming("Hello", token -> { }));
+        assertEquals(requests, failing.requests());
+        assertEquals(0, limiter.metrics().get("inFlight"));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}